@@ -0,0 +1,121 @@
+package com.swinefeather.progression;
+
+import java.io.File;
+import java.io.FileReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parses a folder of real vanilla stat files with StatSnapshot's streaming parser and with the
+ * json-simple DOM path StatSyncTask used before it. Both produce the per-category stat maps
+ * and the advancement flags, so the numbers compare the same work.
+ * Run with: mvn -P benchmark test-compile exec:exec -Dstats.dir=&lt;world&gt;/stats
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx1g")
+public class StatParseBenchmark {
+    private static final String NAMESPACE = "minecraft:";
+
+    @Param("world/stats")
+    public String statsDir;
+
+    private File[] files;
+    private int next;
+
+    @Setup
+    public void setup() {
+        File[] found = new File(statsDir).listFiles((dir, name) -> name.endsWith(".json"));
+        if (found == null || found.length == 0) {
+            throw new IllegalStateException("No stat files in " + new File(statsDir).getAbsolutePath());
+        }
+        Arrays.sort(found);
+        files = found;
+    }
+
+    // One file per call, cycling through the folder so every size is measured
+    private File nextFile() {
+        File file = files[next];
+        next = (next + 1) % files.length;
+        return file;
+    }
+
+    @Benchmark
+    public void streaming(Blackhole blackhole) throws Exception {
+        blackhole.consume(StatSnapshot.parseFile(nextFile()));
+    }
+
+    @Benchmark
+    public void jsonSimple(Blackhole blackhole) throws Exception {
+        blackhole.consume(parseWithJsonSimple(nextFile()));
+    }
+
+    // The removed StatSyncTask.collectPlayerStats, without its logging
+    private static Map<String, Object> parseWithJsonSimple(File statFile) throws Exception {
+        Map<String, Object> stats = new HashMap<>();
+        try (FileReader reader = new FileReader(statFile)) {
+            JSONObject json = (JSONObject) new JSONParser().parse(reader);
+
+            JSONObject statsSection = (JSONObject) json.get("stats");
+            if (statsSection != null) {
+                for (Object categoryObj : statsSection.keySet()) {
+                    String category = (String) categoryObj;
+                    JSONObject categoryStats = (JSONObject) statsSection.get(category);
+                    Map<String, Object> categoryData = new HashMap<>();
+                    for (Object statObj : categoryStats.keySet()) {
+                        String statKey = statObj.toString();
+                        Object valueObj = categoryStats.get(statKey);
+                        String cleanStatKey = statKey.replace(NAMESPACE, "");
+                        if (valueObj instanceof Long) {
+                            categoryData.put(cleanStatKey, (Long) valueObj);
+                        } else if (valueObj instanceof Integer) {
+                            categoryData.put(cleanStatKey, ((Integer) valueObj).longValue());
+                        } else {
+                            categoryData.put(cleanStatKey, valueObj.toString());
+                        }
+                    }
+                    stats.put(category.replace(NAMESPACE, ""), categoryData);
+                }
+            }
+
+            JSONObject advancementsSection = (JSONObject) json.get("advancements");
+            if (advancementsSection != null) {
+                Map<String, Object> advancementsData = new HashMap<>();
+                for (Object advancementObj : advancementsSection.keySet()) {
+                    String advancementKey = advancementObj.toString();
+                    Object advancementValue = advancementsSection.get(advancementKey);
+                    String cleanAdvancementKey = advancementKey.replace(NAMESPACE, "");
+                    if (advancementValue instanceof JSONObject) {
+                        if (!((JSONObject) advancementValue).isEmpty()) {
+                            advancementsData.put(cleanAdvancementKey, true);
+                        }
+                    } else if (advancementValue instanceof Boolean) {
+                        advancementsData.put(cleanAdvancementKey, (Boolean) advancementValue);
+                    }
+                }
+                stats.put("advancements", advancementsData);
+            }
+        }
+        return stats;
+    }
+}
@@ -1,35 +1,42 @@
 package com.swinefeather.progression;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import com.swinefeather.progression.StatResolver;
 
 public class AchievementManager {
+    private static final String PLAYER_NAMESPACE = "player_achievements";
+    private static final String TOWN_NAMESPACE = "town_achievements";
+
     private final Main plugin;
     private final LogManager logManager;
     private final LevelManager levelManager;
-    private final Map<UUID, PlayerAchievementData> playerAchievements;
+    // Loaded on first use and evicted once cold; online players stay cached
+    private final RecordCache<UUID, PlayerAchievementData> playerAchievements;
     private final Map<String, TownAchievementData> townAchievements;
     private final List<AchievementDefinition> achievementDefinitions = new ArrayList<>();
     private final Gson gson;
     private final File achievementsDir;
     private final File playerAchievementsDir;
     private final File townAchievementsDir;
+    private final RecordStore store;
     public final StatResolver statResolver;
 
     public AchievementManager(Main plugin) {
         this.plugin = plugin;
         this.logManager = plugin.logManager;
         this.levelManager = plugin.levelManager;
-        this.playerAchievements = new ConcurrentHashMap<>();
         this.townAchievements = new ConcurrentHashMap<>();
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
+        this.gson = new Gson();
+        this.store = plugin.getRecordStore();
+        this.playerAchievements = new RecordCache<>(plugin.getConfig().getInt("level.record_cache_size", 1000),
+            this::readPlayerAchievementData, uuid -> plugin.getServer().getPlayer(uuid) == null);
         this.statResolver = new StatResolver(logManager);
         
         // Create directories
@@ -41,11 +48,6 @@ public class AchievementManager {
         this.achievementDefinitions.addAll(loadAchievementsFromConfig());
         logManager.debug("Loaded " + achievementDefinitions.size() + " achievements from config.yml");
         
-        // Create directories if they don't exist
-        achievementsDir.mkdirs();
-        playerAchievementsDir.mkdirs();
-        townAchievementsDir.mkdirs();
-        
         loadAchievementData();
     }
 
@@ -78,6 +80,8 @@ public class AchievementManager {
             String color = achSec.getString("color", "#ffffff");
             String type = achSec.getString("type", "player");
             AchievementDefinition achievement = new AchievementDefinition(id, name, description, stat, color, type);
+            // Town stats like population or balance come from Towny, not from stat files
+            achievement.setResolvedStat("player".equals(type) ? statResolver.compile(stat) : statResolver.unresolved(stat));
             org.bukkit.configuration.ConfigurationSection tiersSec = achSec.getConfigurationSection("tiers");
             if (tiersSec != null) {
                 for (String tierKey : tiersSec.getKeys(false)) {
@@ -98,15 +102,32 @@ public class AchievementManager {
     }
 
     public void checkPlayerAchievements(UUID playerUUID, String playerName, Map<String, Object> stats) {
-        Map<String, Object> flatStats = flattenStatsMap(stats);
-        PlayerAchievementData achievementData = playerAchievements.computeIfAbsent(playerUUID, 
-            k -> new PlayerAchievementData(playerUUID, playerName));
-        
-        achievementData.setPlayerName(playerName);
+        if (logManager.isDebugEnabled()) {
+            logManager.debug("[Achievement] Available stat keys for player " + playerName + ":");
+            for (String key : stats.keySet()) {
+                logManager.debug("[Achievement]   " + key + " = " + stats.get(key));
+            }
+        }
+        checkPlayerAchievements(playerUUID, playerName, achievement -> toIntValue(achievement.getResolvedStat().resolve(stats)));
+    }
+
+    /**
+     * Check player achievements against a parsed stat snapshot
+     */
+    public void checkPlayerAchievements(StatSnapshot snapshot) {
+        StatVector stats = snapshot.toStatVector();
+        checkPlayerAchievements(snapshot.getPlayerUUID(), snapshot.getPlayerName(), achievement -> toIntValue(achievement.getResolvedStat().resolve(stats)));
+    }
+
+    private void checkPlayerAchievements(UUID playerUUID, String playerName, java.util.function.ToIntFunction<AchievementDefinition> statValues) {
+        PlayerAchievementData achievementData = playerAchievements.getOrCreate(playerUUID, 
+            () -> new PlayerAchievementData(playerUUID, playerName));
         
-        logManager.debug("[Achievement] Available stat keys for player " + playerName + ":");
-        for (String key : stats.keySet()) {
-            logManager.debug("[Achievement]   " + key + " = " + stats.get(key));
+        // Syncs check every player, so only records that change are written back
+        boolean changed = false;
+        if (playerName != null && !playerName.equals(achievementData.getPlayerName())) {
+            achievementData.setPlayerName(playerName);
+            changed = true;
         }
         
         for (AchievementDefinition achievement : achievementDefinitions) {
@@ -114,17 +135,19 @@ public class AchievementManager {
             if (!"player".equals(achievement.getType())) continue;
             
             // Use the same stat extraction logic as awards/sqlstats
-            int currentValue = extractStatValue(flatStats, achievement.getStat());
-            logManager.debug("[Achievement] Checking " + achievement.getId() + " for player " + playerName + ": statKey=" + achievement.getStat() + ", value=" + currentValue);
+            int currentValue = statValues.applyAsInt(achievement);
+            if (logManager.isDebugEnabled()) {
+                logManager.debug("[Achievement] Checking " + achievement.getId() + " for player " + playerName + ": statKey=" + achievement.getStat() + ", value=" + currentValue);
+            }
             
             // Check each tier
             for (AchievementTier tier : achievement.getTiers()) {
-                logManager.debug("[Achievement]   Tier " + tier.getTier() + " threshold=" + tier.getThreshold() + ", currentValue=" + currentValue);
                 if (currentValue >= tier.getThreshold()) {
                     // Check if already unlocked
                     if (!achievementData.hasUnlockedTier(achievement.getId(), tier.getTier())) {
                         // Unlock achievement
                         achievementData.unlockTier(achievement.getId(), tier, currentValue);
+                        changed = true;
                         
                         // Award XP
                         int xpGained = calculateXPGain(tier.getPoints());
@@ -148,7 +171,13 @@ public class AchievementManager {
             }
         }
         
-        savePlayerAchievementData(playerUUID);
+        if (changed) {
+            savePlayerAchievementData(playerUUID, achievementData);
+        }
+    }
+
+    private static int toIntValue(Long value) {
+        return value != null ? value.intValue() : 0;
     }
 
     public void checkTownAchievements(String townName, Map<String, Object> townStats) {
@@ -345,35 +374,6 @@ public class AchievementManager {
         return points * 3;
     }
 
-    /**
-     * Extracts a stat value from the stats map, supporting dot notation (e.g. "custom_play_time" or "mined_dirt")
-     */
-    private int extractStatValue(Map<String, Object> stats, String statKey) {
-        if (stats == null || statKey == null) return 0;
-        Long value = statResolver.resolveStatValue(stats, statKey);
-        return value != null ? value.intValue() : 0;
-    }
-
-    private Map<String, Object> flattenStatsMap(Map<String, Object> nestedStats) {
-        Map<String, Object> flat = new java.util.HashMap<>();
-        if (nestedStats == null) return flat;
-        for (Map.Entry<String, Object> entry : nestedStats.entrySet()) {
-            String category = entry.getKey();
-            Object value = entry.getValue();
-            if (value instanceof Map) {
-                Map<?, ?> subMap = (Map<?, ?>) value;
-                for (Map.Entry<?, ?> subEntry : subMap.entrySet()) {
-                    String statKey = subEntry.getKey().toString();
-                    Object statValue = subEntry.getValue();
-                    flat.put(category + "." + statKey, statValue);
-                }
-            } else {
-                flat.put(category, value);
-            }
-        }
-        return flat;
-    }
-
     public PlayerAchievementData getPlayerAchievementData(UUID playerUUID) {
         return playerAchievements.get(playerUUID);
     }
@@ -387,46 +387,54 @@ public class AchievementManager {
     }
 
     private void loadAchievementData() {
-        // Load player achievements
-        File[] playerFiles = playerAchievementsDir.listFiles((dir, name) -> name.endsWith(".json"));
-        if (playerFiles != null) {
-            for (File file : playerFiles) {
-                try (Reader reader = new FileReader(file)) {
-                    PlayerAchievementData data = gson.fromJson(reader, PlayerAchievementData.class);
-                    if (data != null) {
-                        playerAchievements.put(data.getPlayerUUID(), data);
-                    }
-                } catch (Exception e) {
-                    logManager.severe("Failed to load player achievement data from " + file.getName(), e);
-                }
+        try {
+            // One-time import of the per-player and per-town files used before the record store
+            if (store.isEmpty(PLAYER_NAMESPACE) && playerAchievementsDir.isDirectory()) {
+                int imported = store.importDirectory(PLAYER_NAMESPACE, playerAchievementsDir, ".json", name -> true);
+                logManager.info("Imported " + imported + " player achievement files into the record store");
             }
-            logManager.debug("Loaded " + playerAchievements.size() + " player achievement records");
+            if (store.isEmpty(TOWN_NAMESPACE) && townAchievementsDir.isDirectory()) {
+                int imported = store.importDirectory(TOWN_NAMESPACE, townAchievementsDir, ".json", name -> true);
+                logManager.info("Imported " + imported + " town achievement files into the record store");
+            }
+        } catch (IOException e) {
+            logManager.severe("Failed to import achievement files into the record store", e);
         }
 
-        // Load town achievements
-        File[] townFiles = townAchievementsDir.listFiles((dir, name) -> name.endsWith(".json"));
-        if (townFiles != null) {
-            for (File file : townFiles) {
-                try (Reader reader = new FileReader(file)) {
-                    TownAchievementData data = gson.fromJson(reader, TownAchievementData.class);
+        // Player achievements are read on first use, see readPlayerAchievementData
+        try {
+            // Load town achievements
+            for (Map.Entry<String, byte[]> entry : store.readAll(TOWN_NAMESPACE).entrySet()) {
+                try {
+                    TownAchievementData data = gson.fromJson(new String(entry.getValue(), StandardCharsets.UTF_8), TownAchievementData.class);
                     if (data != null) {
                         townAchievements.put(data.getTownName(), data);
                     }
                 } catch (Exception e) {
-                    logManager.severe("Failed to load town achievement data from " + file.getName(), e);
+                    logManager.severe("Failed to load town achievement data for " + entry.getKey(), e);
                 }
             }
             logManager.debug("Loaded " + townAchievements.size() + " town achievement records");
+        } catch (IOException e) {
+            logManager.severe("Failed to read achievement data from the record store", e);
         }
     }
 
-    private void savePlayerAchievementData(UUID playerUUID) {
-        PlayerAchievementData data = playerAchievements.get(playerUUID);
-        if (data == null) return;
+    private PlayerAchievementData readPlayerAchievementData(UUID playerUUID) {
+        try {
+            byte[] value = store.get(PLAYER_NAMESPACE, playerUUID.toString());
+            if (value != null) {
+                return gson.fromJson(new String(value, StandardCharsets.UTF_8), PlayerAchievementData.class);
+            }
+        } catch (Exception e) {
+            logManager.severe("Failed to load player achievement data for " + playerUUID, e);
+        }
+        return null;
+    }
 
-        File playerFile = new File(playerAchievementsDir, playerUUID.toString() + ".json");
-        try (Writer writer = new FileWriter(playerFile)) {
-            gson.toJson(data, writer);
+    private void savePlayerAchievementData(UUID playerUUID, PlayerAchievementData data) {
+        try {
+            store.put(PLAYER_NAMESPACE, playerUUID.toString(), gson.toJson(data).getBytes(StandardCharsets.UTF_8));
         } catch (Exception e) {
             logManager.severe("Failed to save player achievement data for " + playerUUID, e);
         }
@@ -436,23 +444,30 @@ public class AchievementManager {
         TownAchievementData data = townAchievements.get(townName);
         if (data == null) return;
 
-        File townFile = new File(townAchievementsDir, townName + ".json");
-        try (Writer writer = new FileWriter(townFile)) {
-            gson.toJson(data, writer);
+        try {
+            store.put(TOWN_NAMESPACE, townName, gson.toJson(data).getBytes(StandardCharsets.UTF_8));
         } catch (Exception e) {
             logManager.severe("Failed to save town achievement data for " + townName, e);
         }
     }
 
     public void saveAllData() {
-        // Save all player data
-        for (UUID playerUUID : playerAchievements.keySet()) {
-            savePlayerAchievementData(playerUUID);
+        // One append per namespace instead of a file per player and town. Players that
+        // aren't cached are unchanged since they were last written
+        Map<String, byte[]> players = new LinkedHashMap<>();
+        for (Map.Entry<UUID, PlayerAchievementData> entry : playerAchievements.snapshot().entrySet()) {
+            players.put(entry.getKey().toString(), gson.toJson(entry.getValue()).getBytes(StandardCharsets.UTF_8));
         }
-
-        // Save all town data
-        for (String townName : townAchievements.keySet()) {
-            saveTownAchievementData(townName);
+        Map<String, byte[]> towns = new LinkedHashMap<>();
+        for (Map.Entry<String, TownAchievementData> entry : townAchievements.entrySet()) {
+            towns.put(entry.getKey(), gson.toJson(entry.getValue()).getBytes(StandardCharsets.UTF_8));
+        }
+        try {
+            store.putAll(PLAYER_NAMESPACE, players);
+            store.putAll(TOWN_NAMESPACE, towns);
+        } catch (IOException e) {
+            logManager.severe("Failed to save achievement data", e);
+            return;
         }
 
         logManager.debug("Saved all achievement data");
@@ -471,6 +486,7 @@ public class AchievementManager {
         private final String color;
         private final String type; // 'player' or 'town'
         private final List<AchievementTier> tiers;
+        private StatResolver.ResolvedStat resolvedStat;
 
         public AchievementDefinition(String id, String name, String description, String stat, String color, String type) {
             this.id = id;
@@ -493,6 +509,11 @@ public class AchievementManager {
         public String getColor() { return color; }
         public String getType() { return type; }
         public List<AchievementTier> getTiers() { return tiers; }
+        public StatResolver.ResolvedStat getResolvedStat() { return resolvedStat; }
+
+        public void setResolvedStat(StatResolver.ResolvedStat resolvedStat) {
+            this.resolvedStat = resolvedStat;
+        }
     }
 
     public static class AchievementTier {
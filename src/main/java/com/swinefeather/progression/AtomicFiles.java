@@ -0,0 +1,97 @@
+package com.swinefeather.progression;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Whole-file writes that never leave a half-written file behind. Content goes to a temp file in
+ * the target's folder, which is then renamed over the target, so after a crash the file holds
+ * either the old or the new content. The temp file is removed if writing fails.
+ */
+public final class AtomicFiles {
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Writes the content of a file to a stream.
+     */
+    public interface StreamContent {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Writes the content of a file as UTF-8 text.
+     */
+    public interface TextContent {
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * @param fsync Flush the data to disk before the rename, so a power loss can't leave an empty file
+     */
+    public static void write(File target, boolean fsync, StreamContent content) throws IOException {
+        File parent = target.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent.getPath());
+        }
+        File temp = new File(parent, target.getName() + TEMP_SUFFIX);
+        boolean moved = false;
+        try {
+            try (FileOutputStream file = new FileOutputStream(temp)) {
+                OutputStream out = new BufferedOutputStream(file, 1 << 16);
+                content.writeTo(out);
+                out.flush();
+                if (fsync) {
+                    file.getFD().sync();
+                }
+            }
+            try {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+            if (fsync) {
+                syncDirectory(parent);
+            }
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(temp.toPath());
+            }
+        }
+    }
+
+    public static void writeText(File target, boolean fsync, TextContent content) throws IOException {
+        write(target, fsync, out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            content.writeTo(writer);
+            writer.flush();
+        });
+    }
+
+    // Makes the rename itself durable; not every platform can open a folder, which is fine to skip
+    private static void syncDirectory(File directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported here
+        }
+    }
+}
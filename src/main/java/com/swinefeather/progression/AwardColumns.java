@@ -0,0 +1,406 @@
+package com.swinefeather.progression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Column-oriented copy of the stats the award definitions rank on: players get a dense ordinal
+ * and every distinct stat path gets one long[] column indexed by that ordinal. Awards sharing a
+ * stat path share the column, and ranking an award only touches its own column.
+ * After the initial build, single players can be put or removed so the store stays current
+ * between full calculations. Reads and writes synchronize on the store itself, except for the
+ * unlocked reads used to rank a freshly built store that no other thread can see yet.
+ */
+public class AwardColumns {
+    /**
+     * Called for every cell whose value changes while a player is put or removed.
+     */
+    public interface ChangeListener {
+        void changed(String statPath, int ordinal, long oldValue, long newValue);
+    }
+
+    private final Map<UUID, Integer> playerOrdinals = new HashMap<>();
+    private final Map<String, StatResolver.ResolvedStat> statPaths;
+    private final Map<String, long[]> columns = new HashMap<>();
+    private UUID[] players;
+    private String[] names;
+    // Removed players keep their ordinal with zeroed cells, so a returning player gets it back
+    private boolean[] present;
+    private int size;
+
+    private AwardColumns(UUID[] players, String[] names, Map<String, StatResolver.ResolvedStat> statPaths) {
+        this.players = players;
+        this.names = names;
+        this.present = new boolean[players.length];
+        this.size = players.length;
+        this.statPaths = statPaths;
+        Arrays.fill(present, true);
+        for (int i = 0; i < players.length; i++) {
+            playerOrdinals.put(players[i], i);
+        }
+    }
+
+    /**
+     * Resolve every stat path for every player once.
+     * @param playerStats Counters per player
+     * @param playerNames Display name per player
+     * @param statPaths Compiled stat paths of the awards being ranked, duplicates are fine
+     * @param pool Pool to fill the columns on, one task per column, or null to fill them on this thread
+     * @return The filled columns, 0 where a player has no value
+     */
+    public static AwardColumns build(Map<UUID, StatVector> playerStats, Map<UUID, String> playerNames,
+                                     Collection<StatResolver.ResolvedStat> statPaths, ExecutorService pool) {
+        UUID[] players = new UUID[playerStats.size()];
+        String[] names = new String[players.length];
+        StatVector[] vectors = new StatVector[players.length];
+        int ordinal = 0;
+        for (Map.Entry<UUID, StatVector> entry : playerStats.entrySet()) {
+            players[ordinal] = entry.getKey();
+            names[ordinal] = playerNames.get(entry.getKey());
+            vectors[ordinal] = entry.getValue();
+            ordinal++;
+        }
+
+        Map<String, StatResolver.ResolvedStat> distinct = new LinkedHashMap<>();
+        for (StatResolver.ResolvedStat statPath : statPaths) {
+            distinct.putIfAbsent(statPath.getStatPath(), statPath);
+        }
+
+        AwardColumns store = new AwardColumns(players, names, distinct);
+        if (pool == null) {
+            for (StatResolver.ResolvedStat statPath : distinct.values()) {
+                store.columns.put(statPath.getStatPath(), fillColumn(statPath, vectors));
+            }
+            return store;
+        }
+
+        List<Callable<long[]>> tasks = new ArrayList<>(distinct.size());
+        for (StatResolver.ResolvedStat statPath : distinct.values()) {
+            tasks.add(() -> fillColumn(statPath, vectors));
+        }
+        try {
+            List<Future<long[]>> results = pool.invokeAll(tasks);
+            int index = 0;
+            for (StatResolver.ResolvedStat statPath : distinct.values()) {
+                store.columns.put(statPath.getStatPath(), results.get(index++).get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building award columns", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to build award columns", e.getCause());
+        }
+        return store;
+    }
+
+    private static long[] fillColumn(StatResolver.ResolvedStat statPath, StatVector[] vectors) {
+        long[] column = new long[vectors.length];
+        for (int i = 0; i < vectors.length; i++) {
+            Long value = statPath.resolve(vectors[i]);
+            column[i] = value != null ? value : 0L;
+        }
+        return column;
+    }
+
+    /**
+     * Add a player or replace their values, re-resolving every stat path from their counters.
+     * @param listener Told about every cell that changed
+     * @return The player's ordinal
+     */
+    public synchronized int put(UUID player, String name, StatVector stats, ChangeListener listener) {
+        Integer existing = playerOrdinals.get(player);
+        int ordinal;
+        if (existing != null) {
+            ordinal = existing;
+        } else {
+            ordinal = size;
+            if (ordinal == players.length) {
+                grow(Math.max(16, ordinal * 2));
+            }
+            players[ordinal] = player;
+            playerOrdinals.put(player, ordinal);
+            size++;
+        }
+        present[ordinal] = true;
+        if (name != null) {
+            names[ordinal] = name;
+        }
+        for (StatResolver.ResolvedStat statPath : statPaths.values()) {
+            Long resolved = statPath.resolve(stats);
+            setCell(statPath.getStatPath(), ordinal, resolved != null ? resolved : 0L, listener);
+        }
+        return ordinal;
+    }
+
+    /**
+     * Zero every value of a player so they drop out of all rankings.
+     * @return false if the player wasn't in the store
+     */
+    public synchronized boolean remove(UUID player, ChangeListener listener) {
+        Integer ordinal = playerOrdinals.get(player);
+        if (ordinal == null || !present[ordinal]) {
+            return false;
+        }
+        for (String statPath : statPaths.keySet()) {
+            setCell(statPath, ordinal, 0L, listener);
+        }
+        present[ordinal] = false;
+        return true;
+    }
+
+    private void setCell(String statPath, int ordinal, long value, ChangeListener listener) {
+        long[] column = columns.get(statPath);
+        long previous = column[ordinal];
+        if (previous != value) {
+            column[ordinal] = value;
+            listener.changed(statPath, ordinal, previous, value);
+        }
+    }
+
+    private void grow(int capacity) {
+        players = Arrays.copyOf(players, capacity);
+        names = Arrays.copyOf(names, capacity);
+        present = Arrays.copyOf(present, capacity);
+        for (Map.Entry<String, long[]> entry : columns.entrySet()) {
+            entry.setValue(Arrays.copyOf(entry.getValue(), capacity));
+        }
+    }
+
+    /**
+     * @return Number of ordinals handed out, including removed players
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized UUID getPlayer(int ordinal) {
+        return players[ordinal];
+    }
+
+    public synchronized String getName(int ordinal) {
+        return names[ordinal];
+    }
+
+    /**
+     * @return Every player currently in the store
+     */
+    public synchronized Set<UUID> getPlayers() {
+        Set<UUID> current = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            if (present[i]) {
+                current.add(players[i]);
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return The column for a stat path, or null if it wasn't built. Only valid until the next put.
+     */
+    public synchronized long[] getColumn(String statPath) {
+        return columns.get(statPath);
+    }
+
+    /**
+     * Ordinals of every player with a positive value, highest value first. Ties keep ordinal order.
+     */
+    public synchronized int[] rank(String statPath) {
+        long[] column = columns.get(statPath);
+        if (column == null) {
+            return new int[0];
+        }
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (column[i] > 0) count++;
+        }
+        int[] ordinals = new int[count];
+        long[] values = new long[count];
+        int index = 0;
+        for (int i = 0; i < size; i++) {
+            if (column[i] > 0) {
+                ordinals[index] = i;
+                values[index] = column[i];
+                index++;
+            }
+        }
+        sortDescending(values, ordinals, 0, count - 1);
+        return ordinals;
+    }
+
+    /**
+     * Ordinals of the highest positive values only, best first, in the same order rank() gives.
+     * Uses a bounded min-heap, so the cost is O(n log limit) instead of sorting every player.
+     */
+    public synchronized int[] top(String statPath, int limit) {
+        return top(columns.get(statPath), size, limit);
+    }
+
+    /**
+     * top() without the lock, for ranking the store before it is shared. Several threads may
+     * call it at once as long as nobody puts or removes players.
+     */
+    int[] topUnlocked(String statPath, int limit) {
+        return top(columns.get(statPath), size, limit);
+    }
+
+    /**
+     * countRanked() without the lock, under the same rules as topUnlocked().
+     */
+    int countRankedUnlocked(String statPath) {
+        return countRanked(columns.get(statPath), size);
+    }
+
+    /**
+     * getColumn() without the lock, under the same rules as topUnlocked().
+     */
+    long[] getColumnUnlocked(String statPath) {
+        return columns.get(statPath);
+    }
+
+    private static int[] top(long[] column, int size, int limit) {
+        if (column == null || limit <= 0) {
+            return new int[0];
+        }
+        // heap[0] is the weakest of the entries kept so far
+        long[] heapValues = new long[limit];
+        int[] heapOrdinals = new int[limit];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            long value = column[i];
+            if (value <= 0) continue;
+            if (count < limit) {
+                heapValues[count] = value;
+                heapOrdinals[count] = i;
+                siftUp(heapValues, heapOrdinals, count);
+                count++;
+            } else if (before(value, i, heapValues[0], heapOrdinals[0])) {
+                heapValues[0] = value;
+                heapOrdinals[0] = i;
+                siftDown(heapValues, heapOrdinals, count);
+            }
+        }
+        sortDescending(heapValues, heapOrdinals, 0, count - 1);
+        return count == limit ? heapOrdinals : Arrays.copyOf(heapOrdinals, count);
+    }
+
+    /**
+     * @return How many players have a positive value for a stat path
+     */
+    public synchronized int countRanked(String statPath) {
+        return countRanked(columns.get(statPath), size);
+    }
+
+    private static int countRanked(long[] column, int size) {
+        if (column == null) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (column[i] > 0) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Build ranking entries for ordinals from rank() or top().
+     */
+    public synchronized List<AwardManager.AwardRanking> toRankings(String statPath, int[] ordinals) {
+        long[] column = columns.get(statPath);
+        List<AwardManager.AwardRanking> rankings = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals) {
+            rankings.add(new AwardManager.AwardRanking(players[ordinal], names[ordinal], column[ordinal]));
+        }
+        return rankings;
+    }
+
+    private static void siftUp(long[] values, int[] ordinals, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(values[parent], ordinals[parent], values[index], ordinals[index])) break;
+            swap(values, ordinals, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] values, int[] ordinals, int size) {
+        int index = 0;
+        while (true) {
+            int weakest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && before(values[weakest], ordinals[weakest], values[left], ordinals[left])) weakest = left;
+            if (right < size && before(values[weakest], ordinals[weakest], values[right], ordinals[right])) weakest = right;
+            if (weakest == index) return;
+            swap(values, ordinals, index, weakest);
+            index = weakest;
+        }
+    }
+
+    // Quicksort on the parallel arrays: value descending, then ordinal ascending
+    private static void sortDescending(long[] values, int[] ordinals, int low, int high) {
+        while (low < high) {
+            if (high - low < 16) {
+                for (int i = low + 1; i <= high; i++) {
+                    long value = values[i];
+                    int ordinal = ordinals[i];
+                    int j = i - 1;
+                    while (j >= low && before(value, ordinal, values[j], ordinals[j])) {
+                        values[j + 1] = values[j];
+                        ordinals[j + 1] = ordinals[j];
+                        j--;
+                    }
+                    values[j + 1] = value;
+                    ordinals[j + 1] = ordinal;
+                }
+                return;
+            }
+            int middle = (low + high) >>> 1;
+            long pivotValue = values[middle];
+            int pivotOrdinal = ordinals[middle];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (before(values[i], ordinals[i], pivotValue, pivotOrdinal)) i++;
+                while (before(pivotValue, pivotOrdinal, values[j], ordinals[j])) j--;
+                if (i <= j) {
+                    swap(values, ordinals, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            // Recurse into the smaller half so the stack stays logarithmic
+            if (j - low < high - i) {
+                sortDescending(values, ordinals, low, j);
+                low = i;
+            } else {
+                sortDescending(values, ordinals, i, high);
+                high = j;
+            }
+        }
+    }
+
+    static boolean before(long value, int ordinal, long otherValue, int otherOrdinal) {
+        return value > otherValue || (value == otherValue && ordinal < otherOrdinal);
+    }
+
+    private static void swap(long[] values, int[] ordinals, int a, int b) {
+        long value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+        int ordinal = ordinals[a];
+        ordinals[a] = ordinals[b];
+        ordinals[b] = ordinal;
+    }
+}
@@ -449,14 +449,7 @@ public class AwardCommands implements CommandExecutor, TabCompleter {
         CompletableFuture.runAsync(() -> {
             try {
                 // Load player stats from all worlds
-                Map<String, Object> playerStats = new HashMap<>();
-                for (org.bukkit.World world : plugin.getServer().getWorlds()) {
-                    java.io.File statFile = new java.io.File(world.getWorldFolder(), "stats/" + player.getUniqueId() + ".json");
-                    if (statFile.exists()) {
-                        Map<String, Object> worldStats = awardManager.loadStatsFromFile(player.getUniqueId(), statFile);
-                        playerStats.putAll(worldStats);
-                    }
-                }
+                Map<String, Object> playerStats = StatSnapshot.load(plugin.getServer(), player.getUniqueId(), player.getName(), plugin.getLogger()).toNestedMap();
                 
                 // Calculate awards for this player
                 Map<Player, Map<String, Object>> allPlayerStats = new HashMap<>();
@@ -497,14 +490,7 @@ public class AwardCommands implements CommandExecutor, TabCompleter {
         CompletableFuture.runAsync(() -> {
             try {
                 // Get player stats from all worlds
-                Map<String, Object> playerStats = new HashMap<>();
-                for (org.bukkit.World world : plugin.getServer().getWorlds()) {
-                    java.io.File statFile = new java.io.File(world.getWorldFolder(), "stats/" + player.getUniqueId() + ".json");
-                    if (statFile.exists()) {
-                        Map<String, Object> worldStats = awardManager.loadStatsFromFile(player.getUniqueId(), statFile);
-                        playerStats.putAll(worldStats);
-                    }
-                }
+                Map<String, Object> playerStats = StatSnapshot.load(plugin.getServer(), player.getUniqueId(), player.getName(), plugin.getLogger()).toNestedMap();
                 
                 // Show available stats
                 sender.sendMessage(ChatColor.GREEN + "=== Available Stats for " + playerName + " ===");
@@ -589,14 +575,7 @@ public class AwardCommands implements CommandExecutor, TabCompleter {
             return;
         }
         // Get all available stat keys for this player
-        Map<String, Object> playerStats = new HashMap<>();
-        for (org.bukkit.World world : player.getServer().getWorlds()) {
-            java.io.File statFile = new java.io.File(world.getWorldFolder(), "stats/" + player.getUniqueId() + ".json");
-            if (statFile.exists()) {
-                Map<String, Object> worldStats = awardManager.loadStatsFromFile(player.getUniqueId(), statFile);
-                playerStats.putAll(worldStats);
-            }
-        }
+        Map<String, Object> playerStats = StatSnapshot.load(player.getServer(), player.getUniqueId(), player.getName(), plugin.getLogger()).toNestedMap();
         List<String> availableStats = awardManager.getStatResolver().getAvailableStats(playerStats);
         sender.sendMessage(ChatColor.GOLD + "=== Available Stat Keys for " + playerName + " ===");
         for (String stat : availableStats) {
@@ -8,7 +8,11 @@ import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -22,15 +26,21 @@ public class AwardManager {
     private final LocalAwardStorage localStorage;
     
     // Award configuration
-    private final Map<String, AwardDefinition> awards = new ConcurrentHashMap<>();
+    // In config order, replaced as a whole on load so readers never see a partial map
+    private volatile Map<String, AwardDefinition> awards = Collections.emptyMap();
     private final Map<String, Double> tierPoints = new HashMap<>();
     private boolean enabled = false;
     private boolean autoCalculate = true;
     private int calculationInterval = 3600; // seconds
+    private int leaderboardSize = 10;
+    private int parallelism = 2;
     
     // Award data structures
-    private final Map<String, List<AwardRanking>> awardRankings = new ConcurrentHashMap<>();
+    private final Map<String, AwardLeaderboard> awardRankings = new ConcurrentHashMap<>();
     private final Map<UUID, PlayerAwards> playerAwards = new ConcurrentHashMap<>();
+    // Columns and leaderboards of the last calculation, kept current by updateAwards
+    private AwardColumns standingColumns;
+    private Map<String, List<AwardLeaderboard>> standingByPath = new HashMap<>();
     
     // Notification settings
     private boolean medalChangeNotifications = true;
@@ -44,7 +54,7 @@ public class AwardManager {
         this.supabaseManager = supabaseManager;
         this.webhookManager = webhookManager;
         this.statResolver = new StatResolver(logManager);
-        this.localStorage = new LocalAwardStorage(plugin, logManager);
+        this.localStorage = new LocalAwardStorage(plugin, logManager, ((Main) plugin).getRecordStore());
     }
     
     public boolean initialize(ConfigurationSection config) {
@@ -56,6 +66,9 @@ public class AwardManager {
         this.enabled = true;
         this.autoCalculate = config.getBoolean("auto_calculate", true);
         this.calculationInterval = config.getInt("calculation_interval", 3600);
+        // Medals need the top 3
+        this.leaderboardSize = Math.max(3, config.getInt("leaderboard_size", 10));
+        this.parallelism = Math.max(1, config.getInt("parallelism", 2));
         this.medalChangeNotifications = config.getBoolean("medal_change_notifications", true);
         this.awardAnnouncements = config.getBoolean("award_announcements", true);
         this.websiteUrl = config.getString("website_url", "");
@@ -101,6 +114,7 @@ public class AwardManager {
     private void loadAwardDefinitions(ConfigurationSection definitionsConfig) {
         if (definitionsConfig == null) return;
         
+        Map<String, AwardDefinition> loaded = new LinkedHashMap<>();
         for (String awardId : definitionsConfig.getKeys(false)) {
             ConfigurationSection awardConfig = definitionsConfig.getConfigurationSection(awardId);
             if (awardConfig != null) {
@@ -112,40 +126,105 @@ public class AwardManager {
                     awardConfig.getString("stat_path", ""),
                     awardConfig.getBoolean("enabled", true)
                 );
-                awards.put(awardId, award);
+                award.setResolvedStat(statResolver.compile(award.getStatPath()));
+                loaded.put(awardId, award);
             }
         }
+        awards = Collections.unmodifiableMap(loaded);
     }
     
     public void calculateAllAwards(Map<Player, Map<String, Object>> allPlayerStats) {
         if (!enabled) {
-                    logger.debug("Award system is disabled, skipping calculation");
-        return;
+            logger.debug("Award system is disabled, skipping calculation");
+            return;
+        }
+        
+        Map<UUID, StatVector> playerStats = new HashMap<>();
+        Map<UUID, String> playerNames = new HashMap<>();
+        for (Map.Entry<Player, Map<String, Object>> entry : allPlayerStats.entrySet()) {
+            playerStats.put(entry.getKey().getUniqueId(), StatVector.fromNestedMap(entry.getValue()));
+            playerNames.put(entry.getKey().getUniqueId(), entry.getKey().getName());
+        }
+        calculateAwards(playerStats, playerNames);
     }
     
-    logger.debug("Calculating awards for " + allPlayerStats.size() + " players");
-    logger.debug("Available awards: " + awards.size());
+    /**
+     * Rank every enabled award over the given players, then assign medals, save and sync them.
+     * @param playerStats Counters per player UUID
+     * @param playerNames Display name per player UUID
+     */
+    public synchronized void calculateAwards(Map<UUID, StatVector> playerStats, Map<UUID, String> playerNames) {
+        if (!enabled) {
+            logger.debug("Award system is disabled, skipping calculation");
+            return;
+        }
+        
+        logger.debug("Calculating awards for " + playerStats.size() + " players");
+        logger.debug("Available awards: " + awards.size());
+        
+        List<AwardDefinition> enabledAwards = new ArrayList<>();
+        List<StatResolver.ResolvedStat> statPaths = new ArrayList<>();
+        for (AwardDefinition award : awards.values()) {
+            if (award.isEnabled()) {
+                enabledAwards.add(award);
+                statPaths.add(award.getResolvedStat());
+            }
+        }
+        
+        // Rank every award independently, on a pool of its own so the scheduler's async threads stay free
+        List<AwardLeaderboard> leaderboards = new ArrayList<>(enabledAwards.size());
+        AwardColumns columns;
+        ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        try {
+            // Resolve each award's stat path once per player into columns, then rank column by column
+            columns = AwardColumns.build(playerStats, playerNames, statPaths, pool);
+            if (pool == null) {
+                for (AwardDefinition award : enabledAwards) {
+                    leaderboards.add(new AwardLeaderboard(columns, award.getStatPath(), leaderboardSize));
+                }
+            } else {
+                List<Callable<AwardLeaderboard>> tasks = new ArrayList<>(enabledAwards.size());
+                for (AwardDefinition award : enabledAwards) {
+                    tasks.add(() -> new AwardLeaderboard(columns, award.getStatPath(), leaderboardSize));
+                }
+                for (Future<AwardLeaderboard> result : pool.invokeAll(tasks)) {
+                    leaderboards.add(result.get());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warning("Award calculation interrupted, keeping the previous results");
+            return;
+        } catch (ExecutionException | IllegalStateException e) {
+            logger.severe("Award calculation failed, keeping the previous results", e.getCause() != null ? e.getCause() : e);
+            return;
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
         
         // Clear previous rankings
         awardRankings.clear();
         playerAwards.clear();
+        Map<String, List<AwardLeaderboard>> byPath = new HashMap<>();
         
-        // Calculate rankings for each award
-        for (AwardDefinition award : awards.values()) {
-            if (!award.isEnabled()) {
-                continue;
-            }
-            
-            logger.awardCalculation("Calculating award: " + award.getId() + " with stat path: " + award.getStatPath());
-            List<AwardRanking> rankings = calculateAwardRanking(award, allPlayerStats);
-            logger.awardCalculation("Found " + rankings.size() + " players for award " + award.getId());
+        // Merge in definition order on this thread, so medals and points don't depend on task timing
+        for (int i = 0; i < enabledAwards.size(); i++) {
+            AwardDefinition award = enabledAwards.get(i);
+            AwardLeaderboard leaderboard = leaderboards.get(i);
+            logger.awardCalculation("Found " + leaderboard.size() + " players for award " + award.getId() + " with stat path: " + award.getStatPath());
             
-            awardRankings.put(award.getId(), rankings);
+            awardRankings.put(award.getId(), leaderboard);
+            byPath.computeIfAbsent(award.getStatPath(), k -> new ArrayList<>()).add(leaderboard);
             
             // Assign medals and update player awards
-            assignMedals(award, rankings);
+            assignMedals(award, leaderboard.getTop(3));
         }
         
+        standingColumns = columns;
+        standingByPath = byPath;
+        
         // Update player total points
         updatePlayerTotalPoints();
         
@@ -163,233 +242,247 @@ public class AwardManager {
         
         // Send notifications
         if (medalChangeNotifications) {
-            sendMedalChangeNotifications();
+            sendMedalChangeNotifications(playerAwards.values());
         }
         
         // Send webhook notifications for medal changes
         if (webhookManager != null && webhookManager.isEnabled()) {
-            sendWebhookNotifications();
+            sendWebhookNotifications(playerAwards.values());
         }
         
         logger.debug("Award calculation completed");
     }
     
-    // New method to calculate awards for all players (ALL players, but handle online players carefully)
-    public void calculateAwardsForAllPlayers() {
+    /**
+     * @return The players ranked by the last calculation including later updates, or null if
+     *         awards haven't been calculated yet
+     */
+    public synchronized Set<UUID> getRankedPlayers() {
+        return standingColumns != null ? standingColumns.getPlayers() : null;
+    }
+    
+    /**
+     * Apply stat changes to the rankings of the last calculation instead of ranking everyone again.
+     * Only players whose stats changed are resolved, and medals, points, storage and Supabase are
+     * only touched for awards whose top 3 actually moved.
+     * @param changedStats New counters of players whose stats changed or who should be added
+     * @param removedPlayers Players to drop from every ranking
+     * @param playerNames Display names of the changed players
+     * @return false if there is nothing to update yet and calculateAwards has to run first
+     */
+    public synchronized boolean updateAwards(Map<UUID, StatVector> changedStats, Collection<UUID> removedPlayers, Map<UUID, String> playerNames) {
         if (!enabled) {
-                    logger.debug("Award system is disabled, skipping calculation");
-        return;
+            logger.debug("Award system is disabled, skipping update");
+            return true;
+        }
+        AwardColumns columns = standingColumns;
+        if (columns == null) {
+            return false;
+        }
+        
+        Map<String, List<AwardRanking>> previousTop = new HashMap<>();
+        for (Map.Entry<String, AwardLeaderboard> entry : awardRankings.entrySet()) {
+            previousTop.put(entry.getKey(), entry.getValue().getTop(3));
+        }
+        
+        Map<String, List<AwardLeaderboard>> byPath = standingByPath;
+        AwardColumns.ChangeListener listener = (statPath, ordinal, oldValue, newValue) -> {
+            List<AwardLeaderboard> leaderboards = byPath.get(statPath);
+            if (leaderboards != null) {
+                for (AwardLeaderboard leaderboard : leaderboards) {
+                    leaderboard.update(ordinal, oldValue, newValue);
+                }
+            }
+        };
+        for (UUID uuid : removedPlayers) {
+            columns.remove(uuid, listener);
+        }
+        for (Map.Entry<UUID, StatVector> entry : changedStats.entrySet()) {
+            columns.put(entry.getKey(), playerNames.get(entry.getKey()), entry.getValue(), listener);
+        }
+        
+        // Hand out medals only where the holder of a place changed
+        Set<UUID> affected = new HashSet<>();
+        Set<UUID> gained = new HashSet<>();
+        for (Map.Entry<String, AwardLeaderboard> entry : awardRankings.entrySet()) {
+            AwardDefinition award = awards.get(entry.getKey());
+            if (award != null) {
+                updateMedals(award, previousTop.get(entry.getKey()), entry.getValue().getTop(3), affected, gained);
+            }
+        }
+        
+        logger.debug("Updated awards for " + changedStats.size() + " changed and " + removedPlayers.size()
+            + " removed players, medals moved for " + affected.size() + " players");
+        if (affected.isEmpty()) {
+            return true;
+        }
+        
+        List<PlayerAwards> changedAwards = new ArrayList<>();
+        Map<UUID, PlayerAwards> keptAwards = new HashMap<>();
+        for (UUID uuid : affected) {
+            PlayerAwards playerAward = playerAwards.get(uuid);
+            if (playerAward == null) continue;
+            playerAward.calculateTotalPoints();
+            changedAwards.add(playerAward);
+            if (playerAward.getMedals().isEmpty()) {
+                playerAwards.remove(uuid);
+            } else {
+                keptAwards.put(uuid, playerAward);
+            }
+            // Local storage appends, so replace what the player had
+            localStorage.clearPlayerData(uuid);
+        }
+        localStorage.saveAllAwards(keptAwards);
+        
+        if (supabaseManager != null && supabaseManager.isEnabled()) {
+            syncAwardsToSupabase(changedAwards);
+            syncMedalsToSupabase(changedAwards);
+            syncPointsToSupabase(changedAwards);
+        }
+        
+        List<PlayerAwards> newMedals = new ArrayList<>();
+        for (UUID uuid : gained) {
+            PlayerAwards playerAward = playerAwards.get(uuid);
+            if (playerAward != null) {
+                newMedals.add(playerAward);
+            }
+        }
+        if (medalChangeNotifications) {
+            sendMedalChangeNotifications(newMedals);
+        }
+        if (webhookManager != null && webhookManager.isEnabled()) {
+            sendWebhookNotifications(newMedals);
+        }
+        return true;
     }
     
-    logger.debug("Calculating awards for ALL players (online and offline)");
+    private void updateMedals(AwardDefinition award, List<AwardRanking> before, List<AwardRanking> after, Set<UUID> affected, Set<UUID> gained) {
+        List<Integer> movedPlaces = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            AwardRanking previous = i < before.size() ? before.get(i) : null;
+            AwardRanking current = i < after.size() ? after.get(i) : null;
+            UUID previousHolder = previous != null ? previous.getPlayerUUID() : null;
+            UUID currentHolder = current != null ? current.getPlayerUUID() : null;
+            if (Objects.equals(previousHolder, currentHolder)) {
+                if (current != null && playerAwards.containsKey(currentHolder)) {
+                    playerAwards.get(currentHolder).updateMedalValue(award.getId(), current.getStatValue());
+                }
+                continue;
+            }
+            movedPlaces.add(i);
+            if (previousHolder != null) {
+                PlayerAwards playerAward = playerAwards.get(previousHolder);
+                if (playerAward != null) {
+                    playerAward.removeMedal(award.getId());
+                }
+                affected.add(previousHolder);
+            }
+        }
+        // Take medals away first, a player moving between places loses the old one and gets the new one
+        for (int place : movedPlaces) {
+            if (place < after.size()) {
+                assignMedal(award, after.get(place), place);
+                affected.add(after.get(place).getPlayerUUID());
+                gained.add(after.get(place).getPlayerUUID());
+            }
+        }
+    }
     
-    // Load all player stats from files
-    Map<UUID, Map<String, Object>> allStats = loadAllPlayerStats();
-    logger.debug("Loaded stats for " + allStats.size() + " players");
+    // New method to calculate awards for all players (ALL players, but handle online players carefully)
+    public void calculateAwardsForAllPlayers() {
+        if (!enabled) {
+            logger.debug("Award system is disabled, skipping calculation");
+            return;
+        }
         
-        // Create a map that handles ALL players
-        Map<String, Map<String, Object>> playerStatsMap = new HashMap<>();
-        Map<String, String> playerNames = new HashMap<>();
+        logger.debug("Calculating awards for ALL players (online and offline)");
         
+        // Load all player stats from files
+        Map<UUID, StatVector> allStats = loadAllPlayerVectors();
+        logger.debug("Loaded stats for " + allStats.size() + " players");
+        
+        Map<UUID, String> playerNames = new HashMap<>();
         int onlineCount = 0;
         int offlineCount = 0;
         
-        for (Map.Entry<UUID, Map<String, Object>> entry : allStats.entrySet()) {
-            UUID uuid = entry.getKey();
-            Map<String, Object> fileStats = entry.getValue();
-            
+        for (UUID uuid : allStats.keySet()) {
             // Check if player is online
             Player onlinePlayer = Bukkit.getPlayer(uuid);
             String playerName;
-            Map<String, Object> statsToUse;
             
             if (onlinePlayer != null) {
-                // For online players, use their file stats (same as calculateAwardsForPlayer method)
                 playerName = onlinePlayer.getName();
-                statsToUse = fileStats;
                 logger.playerProcessing("Processing online player with FILE stats: " + playerName);
                 onlineCount++;
             } else {
-                // For offline players, use the file stats
                 org.bukkit.OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(uuid);
                 playerName = offlinePlayer.getName();
                 if (playerName == null) {
                     playerName = "Unknown_" + uuid.toString().substring(0, 8);
                 }
-                statsToUse = fileStats;
                 logger.playerProcessing("Processing offline player with FILE stats: " + playerName + " (" + uuid + ")");
                 offlineCount++;
             }
             
-            playerStatsMap.put(playerName, statsToUse);
-            playerNames.put(playerName, uuid.toString());
+            playerNames.put(uuid, playerName);
         }
         
-        logger.debug("Processing " + playerStatsMap.size() + " total players");
+        logger.debug("Processing " + playerNames.size() + " total players (" + onlineCount + " online, " + offlineCount + " offline)");
         
-        // Calculate awards using the new method
-        calculateAllAwardsForAllPlayers(playerStatsMap, playerNames);
+        // Clear local storage for the players being processed to prevent conflicts
+        for (UUID uuid : playerNames.keySet()) {
+            localStorage.clearPlayerData(uuid);
+        }
+        calculateAwards(allStats, playerNames);
     }
     
     // New method to calculate awards for all players (including offline)
     public void calculateAllAwardsForAllPlayers(Map<String, Map<String, Object>> allPlayerStats, Map<String, String> playerNames) {
         if (!enabled) {
-                    logger.debug("Award system is disabled, skipping calculation");
-        return;
-    }
-    
-    logger.debug("Calculating awards for " + allPlayerStats.size() + " players (including offline)");
-    logger.debug("Available awards: " + awards.size());
-        
-        // Clear previous rankings and player awards to prevent duplicates
-        awardRankings.clear();
-        playerAwards.clear();
-        
-        // Also clear local storage for the players being processed to prevent conflicts
-        for (String playerName : allPlayerStats.keySet()) {
-            String playerUuid = playerNames.get(playerName);
-            if (playerUuid != null) {
-                try {
-                    UUID uuid = UUID.fromString(playerUuid);
-                    localStorage.clearPlayerData(uuid);
-                } catch (IllegalArgumentException e) {
-                    logger.warning("Invalid UUID for player " + playerName + ": " + playerUuid);
-                }
-            }
-        }
-        
-        // Calculate rankings for each award
-        for (AwardDefinition award : awards.values()) {
-            if (!award.isEnabled()) {
-                continue;
-            }
-            
-            logger.awardCalculation("Calculating award: " + award.getId() + " with stat path: " + award.getStatPath());
-            List<AwardRanking> rankings = calculateAwardRankingForAllPlayers(award, allPlayerStats, playerNames);
-            logger.awardCalculation("Found " + rankings.size() + " players for award " + award.getId());
-            
-            awardRankings.put(award.getId(), rankings);
-            
-            // Assign medals and update player awards
-            assignMedalsForAllPlayers(award, rankings);
-        }
-        
-        // Update player total points
-        updatePlayerTotalPoints();
-        
-        logger.debug("Award calculation completed. Total players with awards: " + playerAwards.size());
-        
-        // Sync to local storage
-        localStorage.saveAllAwards(playerAwards);
-        
-        // Also try to sync to Supabase if available
-        if (supabaseManager != null && supabaseManager.isEnabled()) {
-            syncAllAwardsToSupabase();
-            syncAllMedalsToSupabase();
-            syncAllPointsToSupabase();
-        }
-        
-        // Send notifications
-        if (medalChangeNotifications) {
-            sendMedalChangeNotifications();
-        }
-        
-        // Send webhook notifications for medal changes
-        if (webhookManager != null && webhookManager.isEnabled()) {
-            sendWebhookNotifications();
-        }
-        
-        logger.debug("Award calculation completed for all players");
-    }
-    
-    private List<AwardRanking> calculateAwardRanking(AwardDefinition award, Map<Player, Map<String, Object>> allPlayerStats) {
-        List<AwardRanking> rankings = new ArrayList<>();
-        
-        for (Map.Entry<Player, Map<String, Object>> entry : allPlayerStats.entrySet()) {
-            Player player = entry.getKey();
-            Map<String, Object> stats = entry.getValue();
-            
-            Long statValue = getStatValue(stats, award.getStatPath());
-            if (statValue != null && statValue > 0) {
-                rankings.add(new AwardRanking(player.getUniqueId(), player.getName(), statValue));
-            }
+            logger.debug("Award system is disabled, skipping calculation");
+            return;
         }
         
-        // Sort by stat value (descending)
-        rankings.sort((a, b) -> Long.compare(b.getStatValue(), a.getStatValue()));
-        
-        return rankings;
-    }
-    
-    private List<AwardRanking> calculateAwardRankingForAllPlayers(AwardDefinition award, Map<String, Map<String, Object>> allPlayerStats, Map<String, String> playerNames) {
-        List<AwardRanking> rankings = new ArrayList<>();
-        int processedPlayers = 0;
-        int validStats = 0;
-        
-        logger.awardCalculation("Calculating ranking for award: " + award.getId() + " with " + allPlayerStats.size() + " players");
-        
+        Map<UUID, StatVector> playerStats = new HashMap<>();
+        Map<UUID, String> namesByUUID = new HashMap<>();
         for (Map.Entry<String, Map<String, Object>> entry : allPlayerStats.entrySet()) {
             String playerName = entry.getKey();
-            Map<String, Object> stats = entry.getValue();
             String playerUuid = playerNames.get(playerName);
-            
-            processedPlayers++;
-            
             if (playerUuid == null) {
                 logger.warning("No UUID found for player: " + playerName);
                 continue;
             }
-            
-            Long statValue = getStatValue(stats, award.getStatPath());
-            if (statValue != null && statValue > 0) {
-                try {
-                    UUID uuid = UUID.fromString(playerUuid);
-                    rankings.add(new AwardRanking(uuid, playerName, statValue));
-                    validStats++;
-                } catch (IllegalArgumentException e) {
-                    logger.warning("Invalid UUID for player " + playerName + ": " + playerUuid);
-                }
+            try {
+                UUID uuid = UUID.fromString(playerUuid);
+                playerStats.put(uuid, StatVector.fromNestedMap(entry.getValue()));
+                namesByUUID.put(uuid, playerName);
+            } catch (IllegalArgumentException e) {
+                logger.warning("Invalid UUID for player " + playerName + ": " + playerUuid);
             }
         }
         
-        // Sort by stat value (descending)
-        rankings.sort((a, b) -> Long.compare(b.getStatValue(), a.getStatValue()));
-        
-        logger.awardCalculation("Award " + award.getId() + ": processed " + processedPlayers + " players, found " + validStats + " valid stats, " + rankings.size() + " rankings");
-        
-        return rankings;
-    }
-    
-    private Long getStatValue(Map<String, Object> stats, String statPath) {
-        return statResolver.resolveStatValue(stats, statPath);
+        // Also clear local storage for the players being processed to prevent conflicts
+        for (UUID uuid : namesByUUID.keySet()) {
+            localStorage.clearPlayerData(uuid);
+        }
+        calculateAwards(playerStats, namesByUUID);
     }
     
     private void assignMedals(AwardDefinition award, List<AwardRanking> rankings) {
         for (int i = 0; i < Math.min(rankings.size(), 3); i++) {
-            AwardRanking ranking = rankings.get(i);
-            String medalType = i == 0 ? "gold" : i == 1 ? "silver" : "bronze";
-            double points = tierPoints.getOrDefault(award.getTier() + "." + medalType, 0.0);
-            
-            // Create or update player awards
-            PlayerAwards playerAward = playerAwards.computeIfAbsent(ranking.getPlayerUUID(), 
-                k -> new PlayerAwards(ranking.getPlayerUUID(), ranking.getPlayerName()));
-            
-            playerAward.addMedal(award.getId(), medalType, points, i + 1, ranking.getStatValue());
+            assignMedal(award, rankings.get(i), i);
         }
     }
     
-    private void assignMedalsForAllPlayers(AwardDefinition award, List<AwardRanking> rankings) {
-        for (int i = 0; i < Math.min(rankings.size(), 3); i++) {
-            AwardRanking ranking = rankings.get(i);
-            String medalType = i == 0 ? "gold" : i == 1 ? "silver" : "bronze";
-            double points = tierPoints.getOrDefault(award.getTier() + "." + medalType, 0.0);
-            
-            // Create or update player awards
-            PlayerAwards playerAward = playerAwards.computeIfAbsent(ranking.getPlayerUUID(), 
-                k -> new PlayerAwards(ranking.getPlayerUUID(), ranking.getPlayerName()));
-            
-            playerAward.addMedal(award.getId(), medalType, points, i + 1, ranking.getStatValue());
-        }
+    private void assignMedal(AwardDefinition award, AwardRanking ranking, int place) {
+        String medalType = place == 0 ? "gold" : place == 1 ? "silver" : "bronze";
+        double points = tierPoints.getOrDefault(award.getTier() + "." + medalType, 0.0);
+        
+        // Create or update player awards
+        PlayerAwards playerAward = playerAwards.computeIfAbsent(ranking.getPlayerUUID(), 
+            k -> new PlayerAwards(ranking.getPlayerUUID(), ranking.getPlayerName()));
+        
+        playerAward.addMedal(award.getId(), medalType, points, place + 1, ranking.getStatValue());
     }
     
     // Method to calculate awards for a specific player
@@ -402,14 +495,7 @@ public class AwardManager {
     logger.debug("Calculating awards for player: " + player.getName());
         
         // Get player stats from all worlds
-        Map<String, Object> playerStats = new HashMap<>();
-        for (org.bukkit.World world : plugin.getServer().getWorlds()) {
-            java.io.File statFile = new java.io.File(world.getWorldFolder(), "stats/" + player.getUniqueId() + ".json");
-            if (statFile.exists()) {
-                Map<String, Object> worldStats = loadStatsFromFile(player.getUniqueId(), statFile);
-                playerStats.putAll(worldStats);
-            }
-        }
+        Map<String, Object> playerStats = StatSnapshot.load(plugin.getServer(), player.getUniqueId(), player.getName(), plugin.getLogger()).toNestedMap();
         
         // Create single player map
         Map<String, Map<String, Object>> playerStatsMap = new HashMap<>();
@@ -429,203 +515,103 @@ public class AwardManager {
     
     public Map<UUID, Map<String, Object>> loadAllPlayerStats() {
         Map<UUID, Map<String, Object>> allStats = new HashMap<>();
+        for (Map.Entry<UUID, StatSnapshot> entry : loadAllPlayerSnapshots().entrySet()) {
+            allStats.put(entry.getKey(), entry.getValue().toNestedMap());
+        }
+        return allStats;
+    }
+
+    /**
+     * Parse every player's stat files once, merging counters across worlds.
+     * @return Snapshot per player UUID, players without any readable stats are left out
+     */
+    public Map<UUID, StatSnapshot> loadAllPlayerSnapshots() {
+        Map<UUID, StatSnapshot> snapshots = new HashMap<>();
+        loadSnapshots(snapshot -> snapshots.put(snapshot.getPlayerUUID(), snapshot));
+        return snapshots;
+    }
+
+    /**
+     * Load every player's counters as StatVectors. Each parsed snapshot is dropped as soon as its
+     * vector is built, so only the compact form of all players is held at once.
+     * @return Counters per player UUID, players without any readable stats are left out
+     */
+    public Map<UUID, StatVector> loadAllPlayerVectors() {
+        Map<UUID, StatVector> vectors = new HashMap<>();
+        loadSnapshots(snapshot -> vectors.put(snapshot.getPlayerUUID(), snapshot.toStatVector()));
+        return vectors;
+    }
+
+    private void loadSnapshots(java.util.function.Consumer<StatSnapshot> consumer) {
         int totalFiles = 0;
-        int loadedFiles = 0;
+        int loaded = 0;
         
-        for (org.bukkit.World world : plugin.getServer().getWorlds()) {
-            java.io.File statsFolder = new java.io.File(world.getWorldFolder(), "stats");
-            if (!statsFolder.exists() || !statsFolder.isDirectory()) {
-                logger.debug("Stats folder not found for world: " + world.getName());
-                continue;
-            }
+        for (Map.Entry<UUID, List<java.io.File>> entry : StatSnapshot.scanStatFiles(plugin.getServer(), plugin.getLogger()).entrySet()) {
+            UUID playerUUID = entry.getKey();
+            totalFiles += entry.getValue().size();
             
-            java.io.File[] statFiles = statsFolder.listFiles((dir, name) -> name.endsWith(".json"));
-            if (statFiles == null) {
-                logger.debug("No stat files found in world: " + world.getName());
+            StatSnapshot snapshot = StatSnapshot.load(playerUUID, null, entry.getValue(), plugin.getLogger());
+            if (snapshot.isEmpty()) {
+                logger.warning("Empty stats loaded for player: " + playerUUID);
                 continue;
             }
+            consumer.accept(snapshot);
+            loaded++;
             
-            logger.debug("Found " + statFiles.length + " stat files in world: " + world.getName());
-            totalFiles += statFiles.length;
-            
-            for (java.io.File statFile : statFiles) {
-                try {
-                    String fileName = statFile.getName();
-                    String uuidString = fileName.replace(".json", "");
-                    UUID playerUUID = UUID.fromString(uuidString);
-                    
-                    Map<String, Object> stats = loadStatsFromFile(playerUUID, statFile);
-                    if (!stats.isEmpty()) {
-                        // Merge stats from multiple worlds instead of overwriting
-                        if (allStats.containsKey(playerUUID)) {
-                            Map<String, Object> existingStats = allStats.get(playerUUID);
-                            // Merge the stats from this world with existing stats
-                            for (Map.Entry<String, Object> entry : stats.entrySet()) {
-                                String category = entry.getKey();
-                                Object categoryData = entry.getValue();
-                                
-                                if (existingStats.containsKey(category)) {
-                                    // If category exists, merge the individual stats
-                                    if (categoryData instanceof Map && existingStats.get(category) instanceof Map) {
-                                        @SuppressWarnings("unchecked")
-                                        Map<String, Object> existingCategory = (Map<String, Object>) existingStats.get(category);
-                                        @SuppressWarnings("unchecked")
-                                        Map<String, Object> newCategory = (Map<String, Object>) categoryData;
-                                        
-                                        // Merge individual stats, adding values for the same stat
-                                        for (Map.Entry<String, Object> statEntry : newCategory.entrySet()) {
-                                            String statKey = statEntry.getKey();
-                                            Object statValue = statEntry.getValue();
-                                            
-                                            if (existingCategory.containsKey(statKey)) {
-                                                // Add the values if both are numbers
-                                                Object existingValue = existingCategory.get(statKey);
-                                                if (statValue instanceof Number && existingValue instanceof Number) {
-                                                    long newValue = ((Number) statValue).longValue() + ((Number) existingValue).longValue();
-                                                    existingCategory.put(statKey, newValue);
-                                                } else {
-                                                    // If not numbers, use the higher value
-                                                    if (statValue instanceof Number && existingValue instanceof Number) {
-                                                        long newVal = ((Number) statValue).longValue();
-                                                        long existingVal = ((Number) existingValue).longValue();
-                                                        existingCategory.put(statKey, Math.max(newVal, existingVal));
-                                                    } else {
-                                                        existingCategory.put(statKey, statValue);
-                                                    }
-                                                }
-                                            } else {
-                                                existingCategory.put(statKey, statValue);
-                                            }
-                                        }
-                                    } else {
-                                        // If not maps, use the higher value
-                                        existingStats.put(category, categoryData);
-                                    }
-                                } else {
-                                    existingStats.put(category, categoryData);
-                                }
-                            }
-                        } else {
-                            allStats.put(playerUUID, stats);
-                        }
-                        loadedFiles++;
-                        
-                        // Check if player is online or offline
-                        Player onlinePlayer = Bukkit.getPlayer(playerUUID);
-                        if (onlinePlayer != null) {
-                            logger.playerProcessing("Loaded stats for online player: " + onlinePlayer.getName() + " (" + playerUUID + ")");
-                        } else {
-                            org.bukkit.OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(playerUUID);
-                            String playerName = offlinePlayer.getName();
-                            if (playerName == null) {
-                                playerName = "Unknown_" + uuidString.substring(0, 8);
-                            }
-                            logger.playerProcessing("Loaded stats for offline player: " + playerName + " (" + playerUUID + ")");
-                        }
-                        
-                        // Debug: Check if this is Aytte
-                        org.bukkit.OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(playerUUID);
-                        String playerName = offlinePlayer.getName();
-                        if (playerName != null && playerName.equals("Aytte")) {
-                            logger.debug("DEBUG: Found Aytte during loading! UUID: " + playerUUID + ", stats size: " + allStats.get(playerUUID).size());
-                        }
-                    } else {
-                        logger.warning("Empty stats loaded for player: " + playerUUID);
-                    }
-                } catch (Exception e) {
-                    logger.warning("Failed to load stats from file: " + statFile.getName() + " - " + e.getMessage());
-                }
+            if (logger.isVerboseEnabled()) {
+                Player onlinePlayer = Bukkit.getPlayer(playerUUID);
+                logger.playerProcessing("Loaded stats for " + (onlinePlayer != null ? "online" : "offline") + " player: " + playerUUID);
             }
         }
         
-        logger.debug("Total stat files found: " + totalFiles + ", successfully loaded: " + loadedFiles);
-        logger.debug("Total players with stats: " + allStats.size());
-        
-        return allStats;
+        logger.debug("Total stat files found: " + totalFiles + ", players with stats: " + loaded);
     }
     
     @SuppressWarnings("unused")
     public void syncAllAwardsToSupabase() {
+        syncAwardsToSupabase(new ArrayList<>(playerAwards.values()));
+    }
+    
+    private void syncAwardsToSupabase(Collection<PlayerAwards> players) {
         if (supabaseManager == null || !supabaseManager.isEnabled()) {
             logger.warning("SupabaseManager is not available or not enabled, cannot sync awards");
             return;
         }
         
-        // Make the entire sync process async to prevent server hanging
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            logger.debug("Syncing all awards to Supabase...");
-            int syncedCount = 0;
-            for (Map.Entry<UUID, PlayerAwards> entry : playerAwards.entrySet()) {
-                UUID uuid = entry.getKey();
-                PlayerAwards playerAward = entry.getValue();
-                String name = playerAward.getPlayerName();
-                logger.debug("Syncing awards for player: " + name + " (" + uuid + ") - " + playerAward.getMedals().size() + " medals");
-                for (PlayerMedal medal : playerAward.getMedals()) {
-                    AwardDefinition award = awards.get(medal.getAwardId());
-                    String awardName = award != null ? award.getName() : medal.getAwardId();
-                    String statPath = award != null ? award.getStatPath() : "";
-                    String awardDescription = award != null ? award.getDescription() : awardName;
-                    
-                    // Actually sync to Supabase with all required data
-                    supabaseManager.upsertPlayerAward(uuid, name, medal.getAwardId(), awardName, 
-                        awardDescription, medal.getPoints(), medal.getAwardedAt(), medal.getStatValue(), statPath);
-                    syncedCount++;
-                }
-            }
-            logger.debug("Synced " + syncedCount + " awards to Supabase");
-        });
+        // One player_awards row per medal, sent in batches off the calling thread
+        logger.debug("Syncing awards of " + players.size() + " players to Supabase...");
+        supabaseManager.upsertPlayerAwards(players, awards);
     }
     
     @SuppressWarnings("unused")
     public void syncAllMedalsToSupabase() {
+        syncMedalsToSupabase(new ArrayList<>(playerAwards.values()));
+    }
+    
+    private void syncMedalsToSupabase(Collection<PlayerAwards> players) {
         if (supabaseManager == null || !supabaseManager.isEnabled()) {
             logger.warning("SupabaseManager is not available or not enabled, cannot sync medals");
             return;
         }
         
-        // Make the entire sync process async to prevent server hanging
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            logger.debug("Syncing all medals to Supabase...");
-            int syncedCount = 0;
-            for (Map.Entry<UUID, PlayerAwards> entry : playerAwards.entrySet()) {
-                UUID uuid = entry.getKey();
-                PlayerAwards playerAward = entry.getValue();
-                String name = playerAward.getPlayerName();
-                logger.debug("Syncing medals for player: " + name + " (" + uuid + ") - " + playerAward.getMedals().size() + " medals");
-                
-                // Sync total medal counts for this player using the new medal counts method
-                supabaseManager.upsertPlayerMedalCounts(uuid, name, playerAward.getBronzeMedals(), 
-                    playerAward.getSilverMedals(), playerAward.getGoldMedals(), playerAward.getTotalMedals());
-                syncedCount++;
-            }
-            logger.debug("Synced " + syncedCount + " medal summaries to Supabase");
-        });
+        // Counts come from calculateTotalPoints, so nothing has to be read back from Supabase first
+        logger.debug("Syncing medals of " + players.size() + " players to Supabase...");
+        supabaseManager.upsertPlayerMedalCounts(players);
     }
     
     @SuppressWarnings("unused")
     public void syncAllPointsToSupabase() {
+        syncPointsToSupabase(new ArrayList<>(playerAwards.values()));
+    }
+    
+    private void syncPointsToSupabase(Collection<PlayerAwards> players) {
         if (supabaseManager == null || !supabaseManager.isEnabled()) {
             logger.warning("SupabaseManager is not available or not enabled, cannot sync points");
             return;
         }
         
-        // Make the entire sync process async to prevent server hanging
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            logger.debug("Syncing all points to Supabase...");
-            int syncedCount = 0;
-            for (Map.Entry<UUID, PlayerAwards> entry : playerAwards.entrySet()) {
-                UUID uuid = entry.getKey();
-                PlayerAwards playerAward = entry.getValue();
-                String name = playerAward.getPlayerName();
-                logger.debug("Syncing points for player: " + name + " (" + uuid + ") - " + playerAward.getTotalPoints() + " points");
-                
-                // Actually sync points to Supabase
-                supabaseManager.upsertPlayerPoint(uuid, name, playerAward.getTotalPoints(), 
-                    playerAward.getBronzeMedals(), playerAward.getSilverMedals(), playerAward.getGoldMedals());
-                syncedCount++;
-            }
-            logger.debug("Synced " + syncedCount + " player points to Supabase");
-        });
+        logger.debug("Syncing points of " + players.size() + " players to Supabase...");
+        supabaseManager.upsertPlayerPoints(players);
     }
     
     @SuppressWarnings("unused")
@@ -641,9 +627,9 @@ public class AwardManager {
             int syncedCount = 0;
             
             // Sync each award's leaderboard
-            for (Map.Entry<String, List<AwardRanking>> entry : awardRankings.entrySet()) {
+            for (Map.Entry<String, AwardLeaderboard> entry : awardRankings.entrySet()) {
                 String awardId = entry.getKey();
-                List<AwardRanking> rankings = entry.getValue();
+                List<AwardRanking> rankings = entry.getValue().getRankings();
                 AwardDefinition award = awards.get(awardId);
                 String awardName = award != null ? award.getName() : awardId;
                 String statPath = award != null ? award.getStatPath() : "";
@@ -681,10 +667,10 @@ public class AwardManager {
         return tierPoints.getOrDefault(tierKey, 0.0);
     }
     
-    private void sendMedalChangeNotifications() {
+    private void sendMedalChangeNotifications(Collection<PlayerAwards> players) {
         // This will be implemented to send notifications about medal changes
         // For now, just log the changes
-        for (PlayerAwards playerAward : playerAwards.values()) {
+        for (PlayerAwards playerAward : players) {
             if (playerAward.hasNewMedals()) {
                 logger.info("Player " + playerAward.getPlayerName() + " earned new medals: " + 
                     playerAward.getNewMedalsCount() + " total medals, " + playerAward.getTotalPoints() + " points");
@@ -692,8 +678,8 @@ public class AwardManager {
         }
     }
     
-    private void sendWebhookNotifications() {
-        for (PlayerAwards playerAward : playerAwards.values()) {
+    private void sendWebhookNotifications(Collection<PlayerAwards> players) {
+        for (PlayerAwards playerAward : players) {
             if (playerAward.hasNewMedals()) {
                 for (PlayerMedal medal : playerAward.getMedals()) {
                     // Only send notifications for newly awarded medals
@@ -852,15 +838,16 @@ public class AwardManager {
             return;
         }
         
-        List<AwardRanking> rankings = awardRankings.get(awardId);
-        if (rankings == null || rankings.isEmpty()) {
+        AwardLeaderboard leaderboard = awardRankings.get(awardId);
+        if (leaderboard == null || leaderboard.isEmpty()) {
             sender.sendMessage("§eNo data available for " + award.getName());
             sender.sendMessage("§7Try running §f/awards recalculate §7to calculate awards for all players.");
             return;
         }
         
         sender.sendMessage("§a=== " + award.getName() + " Leaderboard ===");
-        for (int i = 0; i < Math.min(rankings.size(), 10); i++) {
+        List<AwardRanking> rankings = leaderboard.getTop(10);
+        for (int i = 0; i < rankings.size(); i++) {
             AwardRanking ranking = rankings.get(i);
             String medal = i == 0 ? "§6🥇" : i == 1 ? "§7🥈" : i == 2 ? "§c🥉" : "§7" + (i + 1);
             String formattedValue = formatStatValue(awardId, ranking.getStatValue());
@@ -1008,8 +995,8 @@ public class AwardManager {
         for (AwardDefinition award : awards.values()) {
             if (!award.isEnabled()) continue;
             
-            List<AwardRanking> rankings = awardRankings.get(award.getId());
-            if (rankings == null || rankings.isEmpty()) {
+            AwardLeaderboard leaderboard = awardRankings.get(award.getId());
+            if (leaderboard == null || leaderboard.isEmpty()) {
                 sender.sendMessage(String.format("§7%s: §cNo data", award.getId()));
                 logger.warning("No data for award: " + award.getId() + " (stat path: " + award.getStatPath() + ")");
                 // Optionally, show zero instead:
@@ -1017,7 +1004,7 @@ public class AwardManager {
                 continue;
             }
             
-            AwardRanking top = rankings.get(0);
+            AwardRanking top = leaderboard.getTop(1).get(0);
             String formattedValue = formatStatValue(award.getId(), top.getStatValue());
             sender.sendMessage(String.format("§7%s: §e%s §7(%s)", 
                 award.getId(), top.getPlayerName(), formattedValue));
@@ -1051,6 +1038,7 @@ public class AwardManager {
         private final String tier;
         private final String statPath;
         private final boolean enabled;
+        private StatResolver.ResolvedStat resolvedStat;
         
         public AwardDefinition(String id, String name, String description, String tier, String statPath, boolean enabled) {
             this.id = id;
@@ -1068,6 +1056,11 @@ public class AwardManager {
         public String getTier() { return tier; }
         public String getStatPath() { return statPath; }
         public boolean isEnabled() { return enabled; }
+        public StatResolver.ResolvedStat getResolvedStat() { return resolvedStat; }
+        
+        public void setResolvedStat(StatResolver.ResolvedStat resolvedStat) {
+            this.resolvedStat = resolvedStat;
+        }
     }
     
     public static class AwardRanking {
@@ -1087,6 +1080,139 @@ public class AwardManager {
         public long getStatValue() { return statValue; }
     }
     
+    /**
+     * Ranking of one award. The top entries are selected when the award is calculated and kept
+     * current as players' values change, the full ranking is only sorted if something asks for
+     * more than that. Once published it synchronizes on the shared columns, which every update
+     * already holds; the constructor reads the columns without locks, so the leaderboards of a
+     * freshly built store are ranked in parallel.
+     */
+    public static class AwardLeaderboard {
+        private final AwardColumns columns;
+        private final String statPath;
+        private final int[] topOrdinals;
+        private final long[] topValues;
+        private int topCount;
+        private int rankedCount;
+        private List<AwardRanking> fullRanking;
+        
+        /**
+         * @param columns A store no other thread changes while this runs, such as one just built
+         */
+        public AwardLeaderboard(AwardColumns columns, String statPath, int topSize) {
+            this.columns = columns;
+            this.statPath = statPath;
+            this.topOrdinals = new int[topSize];
+            this.topValues = new long[topSize];
+            select(columns.topUnlocked(statPath, topSize), columns.getColumnUnlocked(statPath));
+            this.rankedCount = columns.countRankedUnlocked(statPath);
+        }
+        
+        // Select the top entries again from the whole column, the caller holds the columns' lock
+        private void reselect() {
+            select(columns.top(statPath, topOrdinals.length), columns.getColumn(statPath));
+        }
+        
+        private void select(int[] ordinals, long[] column) {
+            topCount = ordinals.length;
+            for (int i = 0; i < topCount; i++) {
+                topOrdinals[i] = ordinals[i];
+                topValues[i] = column[ordinals[i]];
+            }
+        }
+        
+        /**
+         * Apply one player's changed value. The column must already hold the new value.
+         */
+        void update(int ordinal, long oldValue, long newValue) {
+            synchronized (columns) {
+                if (oldValue > 0) rankedCount--;
+                if (newValue > 0) rankedCount++;
+                fullRanking = null;
+                
+                int index = -1;
+                for (int i = 0; i < topCount; i++) {
+                    if (topOrdinals[i] == ordinal) {
+                        index = i;
+                        break;
+                    }
+                }
+                if (index >= 0) {
+                    if (newValue < oldValue) {
+                        // Someone outside the kept entries may overtake now
+                        reselect();
+                        return;
+                    }
+                    topValues[index] = newValue;
+                } else {
+                    if (newValue <= 0) return;
+                    if (topCount == topOrdinals.length) {
+                        int last = topCount - 1;
+                        if (!AwardColumns.before(newValue, ordinal, topValues[last], topOrdinals[last])) return;
+                        index = last;
+                    } else {
+                        index = topCount++;
+                    }
+                    topOrdinals[index] = ordinal;
+                    topValues[index] = newValue;
+                }
+                // Move the entry up to its place
+                while (index > 0 && AwardColumns.before(topValues[index], topOrdinals[index], topValues[index - 1], topOrdinals[index - 1])) {
+                    long value = topValues[index];
+                    topValues[index] = topValues[index - 1];
+                    topValues[index - 1] = value;
+                    int swapped = topOrdinals[index];
+                    topOrdinals[index] = topOrdinals[index - 1];
+                    topOrdinals[index - 1] = swapped;
+                    index--;
+                }
+            }
+        }
+        
+        /**
+         * @return The best entries, at most limit of them
+         */
+        public List<AwardRanking> getTop(int limit) {
+            synchronized (columns) {
+                if (limit <= topCount || topCount == rankedCount) {
+                    return keptRankings(Math.min(limit, topCount));
+                }
+                List<AwardRanking> rankings = getRankings();
+                return rankings.subList(0, Math.min(limit, rankings.size()));
+            }
+        }
+        
+        /**
+         * @return Every player with a positive value, best first
+         */
+        public List<AwardRanking> getRankings() {
+            synchronized (columns) {
+                if (fullRanking == null) {
+                    fullRanking = topCount == rankedCount ? keptRankings(topCount) : columns.toRankings(statPath, columns.rank(statPath));
+                }
+                return fullRanking;
+            }
+        }
+        
+        private List<AwardRanking> keptRankings(int count) {
+            List<AwardRanking> rankings = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                rankings.add(new AwardRanking(columns.getPlayer(topOrdinals[i]), columns.getName(topOrdinals[i]), topValues[i]));
+            }
+            return rankings;
+        }
+        
+        public String getStatPath() { return statPath; }
+        
+        public int size() {
+            synchronized (columns) {
+                return rankedCount;
+            }
+        }
+        
+        public boolean isEmpty() { return size() == 0; }
+    }
+    
     public static class PlayerMedal {
         private final String awardId;
         private final String medalType;
@@ -1104,6 +1230,15 @@ public class AwardManager {
             this.awardedAt = System.currentTimeMillis();
         }
         
+        private PlayerMedal(PlayerMedal medal, long statValue) {
+            this.awardId = medal.awardId;
+            this.medalType = medal.medalType;
+            this.points = medal.points;
+            this.rank = medal.rank;
+            this.statValue = statValue;
+            this.awardedAt = medal.awardedAt;
+        }
+        
         // Getters
         public String getAwardId() { return awardId; }
         public String getMedalType() { return medalType; }
@@ -1134,6 +1269,26 @@ public class AwardManager {
             hasNewMedals = true;
         }
         
+        /**
+         * Take away this player's medal for an award, if they hold one.
+         * @return true if a medal was removed
+         */
+        public boolean removeMedal(String awardId) {
+            return medals.removeIf(medal -> medal.getAwardId().equals(awardId));
+        }
+        
+        /**
+         * Update the stat value shown on a medal the player keeps, without treating it as newly awarded.
+         */
+        public void updateMedalValue(String awardId, long statValue) {
+            for (int i = 0; i < medals.size(); i++) {
+                PlayerMedal medal = medals.get(i);
+                if (medal.getAwardId().equals(awardId) && medal.getStatValue() != statValue) {
+                    medals.set(i, new PlayerMedal(medal, statValue));
+                }
+            }
+        }
+        
         public void calculateTotalPoints() {
             totalPoints = 0;
             goldMedals = 0;
@@ -1191,84 +1346,12 @@ public class AwardManager {
         public int getNewMedalsCount() { return totalMedals; }
     }
     
-    // Make this method public for use in loadAllPlayerStats
+    /**
+     * Parse a single world's stat file into the nested category map used by StatResolver.
+     * Prefer StatSnapshot when stats from every world are needed.
+     */
     public Map<String, Object> loadStatsFromFile(UUID playerUUID, java.io.File statFile) {
-        Map<String, Object> stats = new HashMap<>();
-        try (java.io.FileReader reader = new java.io.FileReader(statFile)) {
-            org.json.simple.parser.JSONParser parser = new org.json.simple.parser.JSONParser();
-            org.json.simple.JSONObject json = (org.json.simple.JSONObject) parser.parse(reader);
-            
-            // Debug: Check if this is Aytte's file
-            org.bukkit.OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(playerUUID);
-            String playerName = offlinePlayer.getName();
-            if (playerName != null && playerName.equals("Aytte")) {
-                logger.debug("DEBUG: Parsing Aytte's stats file: " + statFile.getName());
-                logger.debug("DEBUG: JSON keys: " + json.keySet());
-            }
-            
-            org.json.simple.JSONObject statsSection = (org.json.simple.JSONObject) json.get("stats");
-            if (statsSection != null) {
-                if (playerName != null && playerName.equals("Aytte")) {
-                    logger.debug("DEBUG: Aytte's stats section keys: " + statsSection.keySet());
-                }
-                
-                for (Object categoryObj : statsSection.keySet()) {
-                    String category = (String) categoryObj;
-                    org.json.simple.JSONObject categoryStats = (org.json.simple.JSONObject) statsSection.get(category);
-                    Map<String, Object> categoryData = new HashMap<>();
-                    
-                    if (playerName != null && playerName.equals("Aytte")) {
-                        logger.debug("DEBUG: Aytte's category '" + category + "' keys: " + categoryStats.keySet());
-                    }
-                    
-                    for (Object statObj : categoryStats.keySet()) {
-                        String statKey = statObj.toString();
-                        Object valueObj = categoryStats.get(statKey);
-                        String cleanStatKey = statKey.replace("minecraft:", "");
-                        if (valueObj instanceof Long) {
-                            categoryData.put(cleanStatKey, (Long) valueObj);
-                        } else if (valueObj instanceof Integer) {
-                            categoryData.put(cleanStatKey, ((Integer) valueObj).longValue());
-                        } else {
-                            categoryData.put(cleanStatKey, valueObj.toString());
-                        }
-                    }
-                    String cleanCategory = category.replace("minecraft:", "");
-                    stats.put(cleanCategory, categoryData);
-                }
-            } else {
-                if (playerName != null && playerName.equals("Aytte")) {
-                    logger.debug("DEBUG: Aytte's stats section is null!");
-                }
-            }
-            org.json.simple.JSONObject advancementsSection = (org.json.simple.JSONObject) json.get("advancements");
-            if (advancementsSection != null) {
-                Map<String, Object> advancementsData = new HashMap<>();
-                for (Object advancementObj : advancementsSection.keySet()) {
-                    String advancementKey = advancementObj.toString();
-                    Object advancementValue = advancementsSection.get(advancementKey);
-                    String cleanAdvancementKey = advancementKey.replace("minecraft:", "");
-                    if (advancementValue instanceof org.json.simple.JSONObject) {
-                        org.json.simple.JSONObject criteria = (org.json.simple.JSONObject) advancementValue;
-                        if (!criteria.isEmpty()) {
-                            advancementsData.put(cleanAdvancementKey, true);
-                        }
-                    } else if (advancementValue instanceof Boolean) {
-                        advancementsData.put(cleanAdvancementKey, (Boolean) advancementValue);
-                    }
-                }
-                stats.put("advancements", advancementsData);
-            }
-        } catch (Exception e) {
-            // Debug: Log the actual exception for Aytte
-            org.bukkit.OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(playerUUID);
-            String playerName = offlinePlayer.getName();
-            if (playerName != null && playerName.equals("Aytte")) {
-                logger.warning("DEBUG: Exception parsing Aytte's stats file: " + e.getMessage());
-                e.printStackTrace();
-            }
-        }
-        return stats;
+        return StatSnapshot.load(playerUUID, null, java.util.Collections.singletonList(statFile), plugin.getLogger()).toNestedMap();
     }
     
     // Debug method to check what stats a specific player has
@@ -1313,16 +1396,11 @@ public class AwardManager {
         logger.debug("DEBUG: Found player '" + playerName + "' with UUID: " + playerUUID);
         
         // Load and display their stats
-        Map<String, Object> allStats = new HashMap<>();
-        for (org.bukkit.World world : plugin.getServer().getWorlds()) {
-            java.io.File statFile = new java.io.File(world.getWorldFolder(), "stats/" + playerUUID + ".json");
-            if (statFile.exists()) {
-                logger.debug("DEBUG: Loading stats from file: " + statFile.getAbsolutePath());
-                Map<String, Object> worldStats = loadStatsFromFile(playerUUID, statFile);
-                allStats.putAll(worldStats);
-                logger.debug("DEBUG: Loaded " + worldStats.size() + " categories from " + world.getName());
-            }
+        StatSnapshot snapshot = StatSnapshot.load(plugin.getServer(), playerUUID, playerName, plugin.getLogger());
+        for (StatSnapshot.WorldStats worldStats : snapshot.getWorlds()) {
+            logger.debug("DEBUG: Loaded " + worldStats.getStats().size() + " categories from " + worldStats.getFile().getAbsolutePath());
         }
+        Map<String, Object> allStats = snapshot.toNestedMap();
         
         logger.debug("DEBUG: Player '" + playerName + "' has " + allStats.size() + " stat categories:");
         for (Map.Entry<String, Object> entry : allStats.entrySet()) {
@@ -0,0 +1,90 @@
+package com.swinefeather.progression;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Stops calls to a service that keeps failing. After failureThreshold failures in a row the
+ * breaker opens and calls are refused right away. Once openMillis have passed it lets a single
+ * trial call through (half-open): success closes it again, failure keeps it open for another period.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final Logger log;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openUntil;
+
+    /**
+     * @param name Used in log messages
+     * @param failureThreshold Failures in a row that open the breaker
+     * @param openMillis How long calls are refused before a trial call
+     */
+    public CircuitBreaker(String name, Logger log, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.log = log;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = Math.max(0L, openMillis);
+    }
+
+    /**
+     * @return true if a call may go ahead. Moving to half-open hands out exactly one trial call.
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() >= openUntil) {
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+                return false;
+            default:
+                // The trial call hasn't reported back yet
+                return false;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            log.info(name + " is reachable again, resuming.");
+        }
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    public synchronized void recordFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+            if (state == State.CLOSED) {
+                log.warning(name + " failed " + failures + " times in a row, pausing calls for " + TimeUnit.MILLISECONDS.toSeconds(openMillis) + "s.");
+            }
+            state = State.OPEN;
+            openUntil = System.currentTimeMillis() + openMillis;
+        }
+    }
+
+    /**
+     * @return true if calls currently go through without restriction
+     */
+    public synchronized boolean isClosed() {
+        return state == State.CLOSED;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return Seconds until the next trial call, 0 unless open
+     */
+    public synchronized long getRetrySeconds() {
+        return state == State.OPEN ? Math.max(0L, TimeUnit.MILLISECONDS.toSeconds(openUntil - System.currentTimeMillis())) : 0L;
+    }
+}
@@ -1,13 +1,25 @@
 package com.swinefeather.progression;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
@@ -18,10 +30,27 @@ public class DatabaseManager {
     private static final String[] STAT_CATEGORIES = {
         "broken", "crafted", "dropped", "killed", "killed_by", "picked_up", "mined", "custom", "used", "towny"
     };
+    // Players whose MySQL write was skipped or failed, written again once MySQL is reachable
+    private static final String PENDING_NAMESPACE = "mysql_pending";
+    private MySqlSchemaV2 schemaV2;
+    private BukkitTask migrationTask;
+
+    // Health as seen by the last probe or write, so callers never wait on a dead server
+    private final CircuitBreaker breaker;
+    private volatile boolean healthy;
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private final AtomicBoolean replaying = new AtomicBoolean();
+    private BukkitTask probeTask;
+    private volatile Runnable recoveryListener;
 
     public DatabaseManager(JavaPlugin plugin) {
         this.plugin = plugin;
+        this.breaker = new CircuitBreaker("MySQL", plugin.getLogger(),
+            plugin.getConfig().getInt("mysql.health.failure_threshold", 3),
+            plugin.getConfig().getLong("mysql.health.open_seconds", 30L) * 1000L);
         setupDataSource();
+        probe();
+        startProbe();
     }
 
     private void setupDataSource() {
@@ -32,6 +61,8 @@ public class DatabaseManager {
         config.addDataSourceProperty("cachePrepStmts", "true");
         config.addDataSourceProperty("prepStmtCacheSize", "250");
         config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        // Lets the driver send a JDBC batch as multi-row statements instead of one round trip per row
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
         config.setConnectionTimeout(60000);
         config.setMaximumPoolSize(10);
         try {
@@ -73,6 +104,16 @@ public class DatabaseManager {
                             "FOREIGN KEY (player_uuid) REFERENCES players(player_uuid))"
             ).executeUpdate();
 
+            if (plugin.getConfig().getInt("mysql.schema_version", 1) >= 2) {
+                MySqlSchemaV2 schema = new MySqlSchemaV2(Arrays.asList(STAT_CATEGORIES));
+                schema.createTables(conn);
+                schema.loadDictionary(conn);
+                schemaV2 = schema;
+                if (plugin.getConfig().getBoolean("mysql.schema_v2.migrate", true)) {
+                    startMigration();
+                }
+            }
+
             plugin.getLogger().info("Database tables created successfully.");
         } catch (SQLException e) {
             plugin.getLogger().severe(String.format("Failed to setup database: %s", e.getMessage()));
@@ -80,6 +121,42 @@ public class DatabaseManager {
         }
     }
 
+    /**
+     * Copy the v1 tables into the v2 tables in the background, a batch at a time.
+     */
+    private void startMigration() {
+        MySqlSchemaMigrator migrator = new MySqlSchemaMigrator(this, schemaV2, Arrays.asList(STAT_CATEGORIES), plugin.getLogger(),
+            plugin.getConfig().getInt("mysql.schema_v2.migrate_batch_rows", 5000));
+        long interval = Math.max(1L, plugin.getConfig().getLong("mysql.schema_v2.migrate_interval_ticks", 20L));
+        AtomicBoolean running = new AtomicBoolean();
+        migrationTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                // A slow batch must not overlap the next one
+                if (!running.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    if (migrator.step()) {
+                        plugin.getLogger().info("Schema v2 migration complete, " + migrator.getCopiedRows() + " rows copied this run.");
+                        cancel();
+                    }
+                } catch (SQLException e) {
+                    plugin.getLogger().warning("Schema v2 migration batch failed, retrying: " + e.getMessage());
+                } finally {
+                    running.set(false);
+                }
+            }
+        }.runTaskTimerAsynchronously(plugin, interval, interval);
+    }
+
+    /**
+     * @return The v2 tables, or null while the v1 schema is in use
+     */
+    public MySqlSchemaV2 getSchemaV2() {
+        return schemaV2;
+    }
+
     public void savePlayerInfo(UUID playerUUID, String playerName) {
         if (!plugin.getServer().getPluginManager().isPluginEnabled(plugin)) return;
 
@@ -117,7 +194,7 @@ public class DatabaseManager {
     public void savePlayerStats(String category, UUID playerUUID, Map<String, Long> stats) {
         if (!plugin.getServer().getPluginManager().isPluginEnabled(plugin)) return;
 
-        String tableName = "stats_" + sanitizeTableName(category);
+        String tableName = "stats_" + statCategory(category);
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
                      "INSERT INTO " + tableName + " (player_uuid, stat_key, stat_value) " +
@@ -139,6 +216,21 @@ public class DatabaseManager {
         }
     }
 
+    /**
+     * @param forceFull Write every stat row, not just the ones that changed since the last sync
+     * @return A writer that saves many players' info and stats in chunked transactions
+     */
+    public MySqlBulkWriter newBulkWriter(boolean forceFull) {
+        MySqlWriteLog writeLog = null;
+        if (plugin.getConfig().getBoolean("mysql.delta.enabled", true) && recordStore() != null) {
+            long reconcileMillis = plugin.getConfig().getLong("mysql.delta.full_write_hours", 24L) * 3600000L;
+            // Each schema has its own log, switching starts with a full write
+            String namespace = schemaV2 != null ? "mysql_written_v2" : "mysql_written";
+            writeLog = new MySqlWriteLog(recordStore(), ((Main) plugin).logManager, reconcileMillis, namespace);
+        }
+        return new MySqlBulkWriter(this, plugin.getLogger(), plugin.getConfig().getInt("mysql.bulk_chunk_rows", 5000), writeLog, forceFull, schemaV2);
+    }
+
     public void savePlaceholderStats(UUID playerUUID, Map<String, String> placeholders) {
         if (!plugin.getServer().getPluginManager().isPluginEnabled(plugin)) return;
 
@@ -158,6 +250,7 @@ public class DatabaseManager {
             plugin.getLogger().info(String.format("Saved %d placeholders for %s", results.length, playerUUID));
         } catch (SQLException e) {
             plugin.getLogger().severe(String.format("Failed to save placeholder stats for %s: %s", playerUUID, e.getMessage()));
+            reportFailure(e);
         }
     }
 
@@ -180,19 +273,169 @@ public class DatabaseManager {
             plugin.getLogger().info(String.format("Saved %d Towny stats for %s", results.length, playerUUID));
         } catch (SQLException e) {
             plugin.getLogger().severe(String.format("Failed to save Towny stats for %s: %s", playerUUID, e.getMessage()));
+            reportFailure(e);
         }
     }
 
+    /**
+     * @return The cached health state; false right away while the circuit breaker is open
+     */
     public boolean isConnected() {
+        return healthy && breaker.isClosed();
+    }
+
+    /**
+     * @return Connection state for status output
+     */
+    public String describeHealth() {
+        String state;
+        if (isConnected()) {
+            state = "§aConnected";
+        } else if (breaker.getState() == CircuitBreaker.State.OPEN) {
+            state = "§cDisconnected (next check in " + breaker.getRetrySeconds() + "s)";
+        } else {
+            state = "§cDisconnected";
+        }
+        int pending = getPendingPlayers().size();
+        return pending > 0 ? state + " §7(" + pending + " players queued)" : state;
+    }
+
+    /**
+     * Check the connection, unless the breaker is open and its wait isn't over yet.
+     */
+    private void probe() {
+        if (dataSource == null || !breaker.allowRequest()) {
+            return;
+        }
         try (Connection conn = dataSource.getConnection()) {
-            return conn.isValid(1);
+            if (!conn.isValid(1)) {
+                throw new SQLException("connection is not valid");
+            }
+            healthy = true;
+            breaker.recordSuccess();
         } catch (SQLException e) {
-            plugin.getLogger().severe(String.format("Database connection test failed: %s", e.getMessage()));
-            return false;
+            if (healthy || breaker.isClosed()) {
+                plugin.getLogger().severe(String.format("Database connection test failed: %s", e.getMessage()));
+            }
+            healthy = false;
+            breaker.recordFailure();
+        }
+    }
+
+    private void startProbe() {
+        long interval = Math.max(1L, plugin.getConfig().getLong("mysql.health.probe_interval_seconds", 5L)) * 20L;
+        probeTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                // A probe waiting on the connection timeout must not pile up behind itself
+                if (!probing.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    probe();
+                } finally {
+                    probing.set(false);
+                }
+                Runnable listener = recoveryListener;
+                if (listener != null && isConnected() && !getPendingPlayers().isEmpty() && replaying.compareAndSet(false, true)) {
+                    plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                        try {
+                            listener.run();
+                        } finally {
+                            replaying.set(false);
+                        }
+                    });
+                }
+            }
+        }.runTaskTimerAsynchronously(plugin, interval, interval);
+    }
+
+    /**
+     * Feed a failed query into the health state. Only connection failures count, not bad statements.
+     */
+    public void reportFailure(SQLException e) {
+        if (isConnectionFailure(e)) {
+            healthy = false;
+            breaker.recordFailure();
         }
     }
 
+    /**
+     * @return true if the query failed because the connection did, false if MySQL rejected the statement
+     */
+    public static boolean isConnectionFailure(SQLException e) {
+        String sqlState = e.getSQLState();
+        return e instanceof SQLTransientConnectionException || e instanceof SQLNonTransientConnectionException
+            || (sqlState != null && sqlState.startsWith("08"));
+    }
+
+    /**
+     * @param listener Writes the queued players; runs on an async thread while MySQL is healthy and players are queued
+     */
+    public void setRecoveryListener(Runnable listener) {
+        this.recoveryListener = listener;
+    }
+
+    /**
+     * Remember players whose MySQL write didn't happen. Kept in the local record store, so it survives restarts.
+     */
+    public void queuePending(Collection<UUID> players) {
+        RecordStore store = recordStore();
+        if (store == null || players.isEmpty()) {
+            return;
+        }
+        Map<String, byte[]> records = new LinkedHashMap<>();
+        for (UUID playerUUID : players) {
+            records.put(playerUUID.toString(), new byte[0]);
+        }
+        try {
+            store.putAll(PENDING_NAMESPACE, records);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not queue " + players.size() + " players for MySQL: " + e.getMessage());
+        }
+    }
+
+    public Set<UUID> getPendingPlayers() {
+        Set<UUID> players = new HashSet<>();
+        RecordStore store = recordStore();
+        if (store == null || store.isEmpty(PENDING_NAMESPACE)) {
+            return players;
+        }
+        try {
+            for (String key : store.readAll(PENDING_NAMESPACE).keySet()) {
+                players.add(UUID.fromString(key));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            plugin.getLogger().warning("Could not read the MySQL queue: " + e.getMessage());
+        }
+        return players;
+    }
+
+    public void clearPending(Collection<UUID> players) {
+        RecordStore store = recordStore();
+        if (store == null) {
+            return;
+        }
+        try {
+            for (UUID playerUUID : players) {
+                store.delete(PENDING_NAMESPACE, playerUUID.toString());
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not update the MySQL queue: " + e.getMessage());
+        }
+    }
+
+    private RecordStore recordStore() {
+        return plugin instanceof Main ? ((Main) plugin).getRecordStore() : null;
+    }
+
     public void close() {
+        if (probeTask != null) {
+            probeTask.cancel();
+        }
+        if (migrationTask != null) {
+            migrationTask.cancel();
+        }
         if (dataSource != null) {
             dataSource.close();
         }
@@ -202,11 +445,27 @@ public class DatabaseManager {
         return dataSource.getConnection();
     }
 
-    private String sanitizeTableName(String name) {
+    static String sanitizeTableName(String name) {
         return name.replaceAll("[^a-zA-Z0-9_]", "_").toLowerCase();
     }
 
-    private String sanitizeStatKey(String key) {
+    /**
+     * @return The category as used in table names, "minecraft:mined" becomes "mined"
+     */
+    static String statCategory(String category) {
+        String sanitized = sanitizeTableName(category);
+        return sanitized.startsWith("minecraft_") ? sanitized.substring("minecraft_".length()) : sanitized;
+    }
+
+    static List<String> statCategories() {
+        return Arrays.asList(STAT_CATEGORIES);
+    }
+
+    static boolean isStatCategory(String category) {
+        return Arrays.asList(STAT_CATEGORIES).contains(category);
+    }
+
+    static String sanitizeStatKey(String key) {
         String sanitized = key.replaceAll("[^a-zA-Z0-9_]", "_").toLowerCase();
         // Always remove "minecraft:" prefix for cleaner stat names
         sanitized = sanitized.replace("minecraft_", "");
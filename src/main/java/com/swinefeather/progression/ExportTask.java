@@ -1,24 +1,25 @@
 package com.swinefeather.progression;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import org.bukkit.command.CommandSender;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import com.google.gson.stream.JsonWriter;
+
 public class ExportTask {
     private final JavaPlugin plugin;
     private final DatabaseManager dbManager;
@@ -50,103 +51,63 @@ public class ExportTask {
             }
 
             String fileName = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".json";
-            File jsonFile = new File(exportDir, fileName);
-            try (FileWriter writer = new FileWriter(jsonFile)) {
-                writer.write("{\n  \"timestamp\": \"" + LocalDateTime.now() + "\",\n  \"players\": [\n");
-
-                try (PreparedStatement playerStmt = conn.prepareStatement("SELECT * FROM players");
-                     ResultSet players = playerStmt.executeQuery()) {
-                    boolean firstPlayer = true;
-                    while (players.next()) {
-                        if (!firstPlayer) {
-                            writer.write(",\n");
-                        }
-                        firstPlayer = false;
-
-                        String uuid = players.getString("player_uuid");
-                        String name = players.getString("player_name");
-                        String firstJoined = players.getString("first_joined");
-                        String lastUpdated = players.getString("last_updated");
-                        writer.write("    {\n      \"uuid\": \"" + uuid + "\",\n      \"name\": \"" + name + "\",\n      \"first_joined\": \"" + firstJoined + "\",\n      \"last_updated\": \"" + lastUpdated + "\"");
-
-                        try (ResultSet tables = conn.getMetaData().getTables(null, null, "stats_%", null)) {
-                            while (tables.next()) {
-                                String table = tables.getString("TABLE_NAME");
-                                try (PreparedStatement statStmt = conn.prepareStatement(
-                                        "SELECT stat_key, stat_value FROM " + table + " WHERE player_uuid = ?")) {
-                                    statStmt.setString(1, uuid);
-                                    try (ResultSet stats = statStmt.executeQuery()) {
-                                        if (stats.next()) {
-                                            writer.write(",\n      \"" + table + "\": {");
-                                            boolean firstStat = true;
-                                            do {
-                                                String statKey = stats.getString("stat_key");
-                                                long value = stats.getLong("stat_value");
-                                                if (value > 0) {
-                                                    if (!firstStat) writer.write(", ");
-                                                    writer.write("\"" + statKey + "\": " + value);
-                                                    firstStat = false;
-                                                }
-                                            } while (stats.next());
-                                            writer.write("}");
-                                        }
-                                    }
-                                }
-                            }
-                        }
-
-                        try (PreparedStatement placeholderStmt = conn.prepareStatement(
-                                "SELECT * FROM stats_placeholders WHERE player_uuid = ?")) {
-                            placeholderStmt.setString(1, uuid);
-                            try (ResultSet placeholders = placeholderStmt.executeQuery()) {
-                                if (placeholders.next()) {
-                                    writer.write(",\n      \"stats_placeholders\": [");
-                                    boolean firstPlaceholder = true;
-                                    do {
-                                        if (!firstPlaceholder) writer.write(", ");
-                                        String key = placeholders.getString("placeholder_key");
-                                        writer.write("{\"key\": \"" + key +
-                                                "\", \"value\": \"" + placeholders.getString("value") + "\"}");
-                                        firstPlaceholder = false;
-                                    } while (placeholders.next());
-                                    writer.write("]");
-                                }
-                            }
-                        }
-
-                        writer.write("\n    }");
-                    }
-                }
-
-                writer.write("\n  ]\n}");
+            String compression = plugin.getConfig().getBoolean("export.compression")
+                ? plugin.getConfig().getString("export.compression_format", "zip").toLowerCase() : "none";
+            File exportFile;
+            if (compression.equals("gzip")) {
+                exportFile = new File(exportDir, fileName + ".gz");
+            } else if (compression.equals("zip")) {
+                exportFile = new File(exportDir, fileName + ".zip");
+            } else {
+                exportFile = new File(exportDir, fileName);
             }
 
-            if (plugin.getConfig().getBoolean("export.compression")) {
-                File zipFile = new File(exportDir, fileName + ".zip");
-                try (FileInputStream fis = new FileInputStream(jsonFile);
-                     FileOutputStream fos = new FileOutputStream(zipFile);
-                     ZipOutputStream zos = new ZipOutputStream(fos)) {
-                    ZipEntry zipEntry = new ZipEntry(fileName);
-                    zos.putNextEntry(zipEntry);
-                    byte[] buffer = new byte[1024];
-                    int length;
-                    while ((length = fis.read(buffer)) > 0) {
-                        zos.write(buffer, 0, length);
+            StatExporter exporter = new StatExporter(conn, dbManager.getSchemaV2(), DatabaseManager.statCategories(),
+                plugin.getConfig().getInt("export.page_rows", 5000), (done, total) -> {
+                    String message = String.format("Export progress: %d/%d players", done, total);
+                    plugin.getLogger().info(message);
+                    if (sender != null) {
+                        sender.sendMessage("§7" + message);
                     }
-                    zos.closeEntry();
+                });
+            long[] exported = new long[1];
+            // The JSON goes straight into the compressed stream, nothing is held in memory or written twice
+            AtomicFiles.write(exportFile, false, out -> {
+                ZipOutputStream zip = null;
+                GZIPOutputStream gzip = null;
+                OutputStream stream = out;
+                if (compression.equals("gzip")) {
+                    gzip = new GZIPOutputStream(out, 1 << 16);
+                    stream = gzip;
+                } else if (compression.equals("zip")) {
+                    zip = new ZipOutputStream(out);
+                    zip.putNextEntry(new ZipEntry(fileName));
+                    stream = zip;
                 }
-                jsonFile.delete();
-                if (sender != null) {
-                    sender.sendMessage(String.format("§aExported stats to %s", zipFile.getName()));
+                JsonWriter json = new JsonWriter(new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8)));
+                json.setIndent("  ");
+                try {
+                    exported[0] = exporter.export(json);
+                } catch (SQLException e) {
+                    // Surfaces as the export failure below; the partial file is discarded
+                    throw new IOException(e.getMessage(), e);
                 }
-            } else {
-                if (sender != null) {
-                    sender.sendMessage(String.format("§aExported stats to %s", fileName));
+                json.flush();
+                if (zip != null) {
+                    zip.closeEntry();
+                    zip.finish();
+                }
+                if (gzip != null) {
+                    gzip.finish();
                 }
+            });
+
+            if (sender != null) {
+                sender.sendMessage(String.format("§aExported %d players to %s", exported[0], exportFile.getName()));
             }
 
             if (plugin.getConfig().getString("logging.level", "minimal").equalsIgnoreCase("debug")) {
-                plugin.getLogger().info(String.format("Export completed: %s", fileName));
+                plugin.getLogger().info(String.format("Export completed: %s", exportFile.getName()));
             }
         } catch (SQLException | IOException e) {
             if (sender != null) {
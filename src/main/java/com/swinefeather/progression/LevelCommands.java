@@ -2,25 +2,18 @@ package com.swinefeather.progression;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
-import org.bukkit.World;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
 import net.md_5.bungee.api.chat.TextComponent;
 import net.md_5.bungee.api.chat.ClickEvent;
 import net.md_5.bungee.api.chat.HoverEvent;
 
-import java.io.File;
-import java.io.FileReader;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
 public class LevelCommands implements CommandExecutor, TabCompleter {
@@ -276,13 +269,7 @@ public class LevelCommands implements CommandExecutor, TabCompleter {
             return;
         }
 
-        LevelManager.PlayerLevelData levelData = levelManager.getPlayerLevelData(targetUUID);
-        if (levelData == null) {
-            levelData = new LevelManager.PlayerLevelData(targetUUID, targetName, level, levelDef.getXpRequired());
-        } else {
-            levelData.setLevel(level);
-            levelData.setTotalXP(levelDef.getXpRequired());
-        }
+        levelManager.setPlayerLevel(targetUUID, targetName, level, levelDef.getXpRequired());
 
         sender.sendMessage(ChatColor.GREEN + "Set " + targetName + "'s level to " + level + " (" + levelDef.getTitle() + ")!");
     }
@@ -306,10 +293,8 @@ public class LevelCommands implements CommandExecutor, TabCompleter {
         }
 
         // Reset level data
-        LevelManager.PlayerLevelData levelData = levelManager.getPlayerLevelData(targetUUID);
-        if (levelData != null) {
-            levelData.setLevel(1);
-            levelData.setTotalXP(0);
+        if (levelManager.getPlayerLevelData(targetUUID) != null) {
+            levelManager.setPlayerLevel(targetUUID, targetName, 1, 0);
         }
 
         // Reset achievement data
@@ -362,28 +347,12 @@ public class LevelCommands implements CommandExecutor, TabCompleter {
         }
 
         // Get player stats to calculate progress
-        Map<String, Object> playerStats = new HashMap<>();
-        for (World world : plugin.getServer().getWorlds()) {
-            File statsFolder = new File(world.getWorldFolder(), "stats");
-            if (statsFolder.exists() && statsFolder.isDirectory()) {
-                File statFile = new File(statsFolder, targetUUID + ".json");
-                if (statFile.exists()) {
-                    try (FileReader reader = new FileReader(statFile)) {
-                        JSONObject root = (JSONObject) new JSONParser().parse(reader);
-                        JSONObject stats = (JSONObject) root.get("stats");
-                        if (stats != null) {
-                            playerStats.putAll(stats);
-                        }
-                    } catch (Exception e) {
-                        plugin.getLogger().warning("Failed to read stats for " + targetName + ": " + e.getMessage());
-                    }
-                }
-            }
-        }
+        StatSnapshot snapshot = StatSnapshot.load(plugin.getServer(), targetUUID, targetName, plugin.getLogger());
+        StatVector playerStats = snapshot.toStatVector();
 
         // Check and unlock achievements based on current stats
         if (achievementManager != null) {
-            achievementManager.checkPlayerAchievements(targetUUID, targetName, playerStats);
+            achievementManager.checkPlayerAchievements(snapshot);
         }
 
         AchievementManager.PlayerAchievementData achievementData = achievementManager.getPlayerAchievementData(targetUUID);
@@ -410,7 +379,7 @@ public class LevelCommands implements CommandExecutor, TabCompleter {
             int currentValue = 0;
             
             // Use StatResolver to get current stat value
-            Long statValue = plugin.achievementManager.statResolver.resolveStatValue(playerStats, achievement.getStat());
+            Long statValue = achievement.getResolvedStat().resolve(playerStats);
             if (statValue != null) {
                 currentValue = statValue.intValue();
             }
@@ -569,25 +538,7 @@ public class LevelCommands implements CommandExecutor, TabCompleter {
         }
 
         // Get player stats to verify they can claim
-        Map<String, Object> playerStats = new HashMap<>();
-        for (World world : plugin.getServer().getWorlds()) {
-            File statsFolder = new File(world.getWorldFolder(), "stats");
-            if (statsFolder.exists() && statsFolder.isDirectory()) {
-                File statFile = new File(statsFolder, targetUUID + ".json");
-                if (statFile.exists()) {
-                    try (FileReader reader = new FileReader(statFile)) {
-                        JSONObject root = (JSONObject) new JSONParser().parse(reader);
-                        JSONObject stats = (JSONObject) root.get("stats");
-                        if (stats != null) {
-                            playerStats.putAll(stats);
-                        }
-                    } catch (Exception e) {
-                        sender.sendMessage(ChatColor.RED + "Failed to read stats for " + targetName + ": " + e.getMessage());
-                        return;
-                    }
-                }
-            }
-        }
+        StatVector playerStats = StatSnapshot.load(plugin.getServer(), targetUUID, targetName, plugin.getLogger()).toStatVector();
 
         // Find the achievement and tier
         AchievementManager.AchievementDefinition achievement = null;
@@ -612,7 +563,7 @@ public class LevelCommands implements CommandExecutor, TabCompleter {
         }
 
         // Check if player has reached the threshold
-        Long statValue = plugin.achievementManager.statResolver.resolveStatValue(playerStats, achievement.getStat());
+        Long statValue = achievement.getResolvedStat().resolve(playerStats);
         if (statValue == null || statValue < achievementTier.getThreshold()) {
             sender.sendMessage(ChatColor.RED + "Player has not reached the threshold for this achievement!");
             return;
@@ -92,7 +92,7 @@ public class LevelDatabaseManager {
                 logManager.severe("Error syncing player level data for " + playerName + ": " + e.getMessage());
                 return false;
             }
-        });
+        }, plugin.getRemoteExecutor());
     }
 
     // Sync level definitions to database
@@ -185,7 +185,7 @@ public class LevelDatabaseManager {
                 logManager.severe("Error syncing level definitions: " + e.getMessage());
                 return false;
             }
-        });
+        }, plugin.getRemoteExecutor());
     }
 
     // Sync achievement definitions to database
@@ -279,7 +279,7 @@ public class LevelDatabaseManager {
                 logManager.severe("Error syncing achievement definitions: " + e.getMessage());
                 return false;
             }
-        });
+        }, plugin.getRemoteExecutor());
     }
 
     // Sync unlocked achievement to database
@@ -330,7 +330,7 @@ public class LevelDatabaseManager {
                 logManager.severe("Error syncing unlocked achievement " + achievementId + " tier " + tier + ": " + e.getMessage());
                 return false;
             }
-        });
+        }, plugin.getRemoteExecutor());
     }
 
     // Get player level data from database
@@ -364,7 +364,7 @@ public class LevelDatabaseManager {
                 logManager.severe("Error getting player level data for " + playerUUID + ": " + e.getMessage());
             }
             return null;
-        });
+        }, plugin.getRemoteExecutor());
     }
 
     // Get level leaderboard from database
@@ -393,7 +393,7 @@ public class LevelDatabaseManager {
                 logManager.severe("Error getting level leaderboard: " + e.getMessage());
             }
             return null;
-        });
+        }, plugin.getRemoteExecutor());
     }
 
     // Get achievement progress from database
@@ -422,7 +422,7 @@ public class LevelDatabaseManager {
                 logManager.severe("Error getting achievement progress for " + playerUUID + ": " + e.getMessage());
             }
             return null;
-        });
+        }, plugin.getRemoteExecutor());
     }
 
     // Sync town data to database
@@ -483,7 +483,7 @@ public class LevelDatabaseManager {
                 logManager.severe("Error syncing town data for " + townName + ": " + e.getMessage());
                 return false;
             }
-        });
+        }, plugin.getRemoteExecutor());
     }
 
     // Sync town level data to database
@@ -534,7 +534,7 @@ public class LevelDatabaseManager {
                 logManager.severe("Error syncing town level data for " + townName + ": " + e.getMessage());
                 return false;
             }
-        });
+        }, plugin.getRemoteExecutor());
     }
 
     public void shutdown() {
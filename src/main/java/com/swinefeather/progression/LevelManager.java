@@ -1,20 +1,29 @@
 package com.swinefeather.progression;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.io.*;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class LevelManager {
+    private static final String PLAYER_NAMESPACE = "player_levels";
+    private static final String TOWN_NAMESPACE = "town_levels";
+    // Name, level and XP per player, small enough to keep every player in memory for leaderboards
+    private static final String RANK_NAMESPACE = "player_level_ranks";
+
     private final Main plugin;
     private final LogManager logManager;
-    private final Map<UUID, PlayerLevelData> playerLevels;
+    // Full records are loaded on first use; online players and unsaved changes are never evicted
+    private final RecordCache<UUID, PlayerLevelData> playerLevels;
+    private final Map<UUID, LevelRank> levelRanks = new ConcurrentHashMap<>();
     public final Map<String, TownLevelData> townLevels;
     private final List<LevelDefinition> playerLevelDefinitions;
     private final List<LevelDefinition> townLevelDefinitions;
@@ -23,13 +32,25 @@ public class LevelManager {
     private final File townLevelsFile;
     private final File playerLevelsDir;
     private final File townLevelsDir;
+    private final RecordStore store;
+    // Write-behind: XP grants only mark the player or town, the flush task saves and syncs them
+    private final Map<UUID, PlayerLevelData> dirtyPlayers = new ConcurrentHashMap<>();
+    private final Set<String> dirtyTowns = ConcurrentHashMap.newKeySet();
+    // Players the running flush is writing; they stay cached until the store has the new copy
+    private final Set<UUID> savingPlayers = ConcurrentHashMap.newKeySet();
+    // Held for a whole flush, so the timer's flush and the one at shutdown never overlap
+    private final Object flushLock = new Object();
+    private BukkitTask flushTask;
 
     public LevelManager(Main plugin) {
         this.plugin = plugin;
         this.logManager = plugin.logManager;
-        this.playerLevels = new ConcurrentHashMap<>();
         this.townLevels = new ConcurrentHashMap<>();
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
+        this.gson = new Gson();
+        this.store = plugin.getRecordStore();
+        this.playerLevels = new RecordCache<>(plugin.getConfig().getInt("level.record_cache_size", 1000),
+            this::readPlayerLevelData,
+            uuid -> !dirtyPlayers.containsKey(uuid) && !savingPlayers.contains(uuid) && plugin.getServer().getPlayer(uuid) == null);
         
         // Create directories
         this.playerLevelsDir = new File(plugin.getDataFolder(), "levels/players");
@@ -41,11 +62,15 @@ public class LevelManager {
         this.playerLevelDefinitions = initializePlayerLevels();
         this.townLevelDefinitions = initializeTownLevels();
         
-        // Create directories if they don't exist
-        playerLevelsDir.mkdirs();
-        townLevelsDir.mkdirs();
-        
         loadLevelData();
+        
+        long flushTicks = 20L * Math.max(1, plugin.getConfig().getInt("level.flush_interval_seconds", 10));
+        flushTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                flushDirty();
+            }
+        }.runTaskTimerAsynchronously(plugin, flushTicks, flushTicks);
     }
 
     private List<LevelDefinition> initializePlayerLevels() {
@@ -141,21 +166,25 @@ public class LevelManager {
     }
 
     public void addPlayerXP(UUID playerUUID, String playerName, int xp) {
-        PlayerLevelData levelData = playerLevels.computeIfAbsent(playerUUID, 
-            k -> new PlayerLevelData(playerUUID, playerName, 1, 0));
-        
-        int oldLevel = levelData.getLevel();
-        int oldXP = levelData.getTotalXP();
-        
-        levelData.addXP(xp);
-        levelData.setPlayerName(playerName);
-        levelData.setLastUpdated(System.currentTimeMillis());
-        
-        // Recalculate level
-        int newLevel = calculatePlayerLevel(levelData.getTotalXP());
-        levelData.setLevel(newLevel);
-        
-        int newXP = levelData.getTotalXP();
+        PlayerLevelData levelData = playerLevels.getOrCreate(playerUUID, 
+            () -> new PlayerLevelData(playerUUID, playerName, 1, 0));
+        
+        int oldLevel;
+        int newLevel;
+        int newXP;
+        synchronized (levelData) {
+            oldLevel = levelData.getLevel();
+            
+            levelData.addXP(xp);
+            levelData.setPlayerName(playerName);
+            levelData.setLastUpdated(System.currentTimeMillis());
+            
+            // Recalculate level
+            newLevel = calculatePlayerLevel(levelData.getTotalXP());
+            levelData.setLevel(newLevel);
+            
+            newXP = levelData.getTotalXP();
+        }
         
         // Check for level up
         if (newLevel > oldLevel) {
@@ -195,20 +224,35 @@ public class LevelManager {
             }
         }
         
-        // Save the updated data
-        savePlayerLevelData(playerUUID);
-        
-        // Sync to database if enabled
-        if (plugin.levelDatabaseManager != null && plugin.levelDatabaseManager.isEnabled()) {
-            plugin.levelDatabaseManager.syncPlayerLevel(playerUUID, playerName, newLevel, newXP);
-        }
+        // Saved and synced by the next flush, together with any other XP granted until then
+        dirtyPlayers.put(playerUUID, levelData);
         
-        // Sync to Supabase if enabled
-        if (plugin.supabaseManager != null && plugin.supabaseManager.isEnabled()) {
-            plugin.supabaseManager.syncPlayerLevel(playerUUID, playerName, newLevel, newXP);
+        logManager.debug("Added " + xp + " XP to " + playerName + " (Total: " + newXP + ", Level: " + newLevel + ")");
+    }
+
+    /**
+     * Set a player's level and total XP outright, as the admin commands do. The rank index is
+     * updated right away and the record is saved and synced by the next flush.
+     */
+    public void setPlayerLevel(UUID playerUUID, String playerName, int level, int totalXP) {
+        PlayerLevelData levelData = playerLevels.getOrCreate(playerUUID,
+            () -> new PlayerLevelData(playerUUID, playerName, level, totalXP));
+        
+        LevelRank rank;
+        synchronized (levelData) {
+            levelData.setLevel(level);
+            levelData.setTotalXP(totalXP);
+            if (playerName != null) {
+                levelData.setPlayerName(playerName);
+            }
+            levelData.setLastUpdated(System.currentTimeMillis());
+            rank = LevelRank.of(levelData);
+            // Marked while still locked, so a flush can't save the old values and clear the mark
+            dirtyPlayers.put(playerUUID, levelData);
         }
+        levelRanks.put(playerUUID, rank);
         
-        logManager.debug("Added " + xp + " XP to " + playerName + " (Total: " + newXP + ", Level: " + newLevel + ")");
+        logManager.debug("Set " + playerName + " to level " + level + " (Total: " + totalXP + " XP)");
     }
 
     public void addTownXP(String townName, int xp) {
@@ -235,8 +279,8 @@ public class LevelManager {
             }
         }
         
-        // Save the updated data
-        saveTownLevelData(townName);
+        // Saved by the next flush
+        dirtyTowns.add(townName);
         
         logManager.debug("Added " + xp + " XP to town " + townName + " (Total: " + newXP + ", Level: " + newLevel + ")");
     }
@@ -275,8 +319,19 @@ public class LevelManager {
         return new ArrayList<>(townLevelDefinitions);
     }
 
+    /**
+     * Every player's name, level and XP from the rank index, without loading their full records.
+     * @return Detached copies, changing them has no effect
+     */
     public List<PlayerLevelData> getAllPlayerLevelData() {
-        return new ArrayList<>(playerLevels.values());
+        List<PlayerLevelData> all = new ArrayList<>(levelRanks.size());
+        for (Map.Entry<UUID, LevelRank> entry : levelRanks.entrySet()) {
+            LevelRank rank = entry.getValue();
+            PlayerLevelData data = new PlayerLevelData(entry.getKey(), rank.getPlayerName(), rank.getLevel(), rank.getTotalXP());
+            data.setLastUpdated(rank.getLastUpdated());
+            all.add(data);
+        }
+        return all;
     }
 
     public int calculatePlayerLevel(int totalXP) {
@@ -334,60 +389,164 @@ public class LevelManager {
     }
 
     private void loadLevelData() {
-        // Load player levels from individual files
-        if (playerLevelsDir.exists()) {
-            File[] playerFiles = playerLevelsDir.listFiles((dir, name) -> name.endsWith(".json"));
-            if (playerFiles != null) {
-                for (File playerFile : playerFiles) {
-                    try {
-                        String fileName = playerFile.getName();
-                        UUID playerUUID = UUID.fromString(fileName.substring(0, fileName.length() - 5));
-                        
-                        try (Reader reader = new FileReader(playerFile)) {
-                            PlayerLevelData data = gson.fromJson(reader, PlayerLevelData.class);
-                            if (data != null) {
-                                playerLevels.put(playerUUID, data);
-                            }
-                        }
-                    } catch (Exception e) {
-                        logManager.warning("Failed to load player level data from " + playerFile.getName() + ": " + e.getMessage());
+        try {
+            // One-time import of the per-player and per-town files used before the record store
+            if (store.isEmpty(PLAYER_NAMESPACE) && playerLevelsDir.isDirectory()) {
+                int imported = store.importDirectory(PLAYER_NAMESPACE, playerLevelsDir, ".json", LevelManager::isUUID);
+                logManager.info("Imported " + imported + " player level files into the record store");
+            }
+            if (store.isEmpty(TOWN_NAMESPACE) && townLevelsDir.isDirectory()) {
+                int imported = store.importDirectory(TOWN_NAMESPACE, townLevelsDir, ".json", name -> !name.equals("town_levels"));
+                logManager.info("Imported " + imported + " town level files into the record store");
+            }
+        } catch (IOException e) {
+            logManager.severe("Failed to import level files into the record store", e);
+        }
+
+        try {
+            if (store.isEmpty(RANK_NAMESPACE) && !store.isEmpty(PLAYER_NAMESPACE)) {
+                rebuildLevelRanks();
+            }
+            for (Map.Entry<String, byte[]> entry : store.readAll(RANK_NAMESPACE).entrySet()) {
+                try {
+                    levelRanks.put(UUID.fromString(entry.getKey()), LevelRank.fromBytes(entry.getValue()));
+                } catch (Exception e) {
+                    logManager.warning("Failed to load level rank for " + entry.getKey() + ": " + e.getMessage());
+                }
+            }
+            logManager.debug("Loaded " + levelRanks.size() + " player level ranks");
+
+            for (Map.Entry<String, byte[]> entry : store.readAll(TOWN_NAMESPACE).entrySet()) {
+                try {
+                    TownLevelData data = gson.fromJson(new String(entry.getValue(), StandardCharsets.UTF_8), TownLevelData.class);
+                    if (data != null) {
+                        townLevels.put(entry.getKey(), data);
                     }
+                } catch (Exception e) {
+                    logManager.warning("Failed to load town level data for " + entry.getKey() + ": " + e.getMessage());
                 }
-                logManager.debug("Loaded " + playerLevels.size() + " player level records from individual files");
             }
+            logManager.debug("Loaded " + townLevels.size() + " town level records");
+        } catch (IOException e) {
+            logManager.severe("Failed to read level data from the record store", e);
         }
+    }
 
-        // Load town levels from individual files
-        if (townLevelsDir.exists()) {
-            File[] townFiles = townLevelsDir.listFiles((dir, name) -> name.endsWith(".json"));
-            if (townFiles != null) {
-                for (File townFile : townFiles) {
-                    try {
-                        String fileName = townFile.getName();
-                        String townName = fileName.substring(0, fileName.length() - 5);
-                        
-                        try (Reader reader = new FileReader(townFile)) {
-                            TownLevelData data = gson.fromJson(reader, TownLevelData.class);
-                            if (data != null) {
-                                townLevels.put(townName, data);
-                            }
-                        }
-                    } catch (Exception e) {
-                        logManager.warning("Failed to load town level data from " + townFile.getName() + ": " + e.getMessage());
-                    }
+    // Only needed once, for stores written before the rank index existed
+    private void rebuildLevelRanks() throws IOException {
+        Map<String, byte[]> ranks = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> entry : store.readAll(PLAYER_NAMESPACE).entrySet()) {
+            try {
+                PlayerLevelData data = gson.fromJson(new String(entry.getValue(), StandardCharsets.UTF_8), PlayerLevelData.class);
+                if (data != null) {
+                    ranks.put(entry.getKey(), LevelRank.of(data).toBytes());
                 }
-                logManager.debug("Loaded " + townLevels.size() + " town level records from individual files");
+            } catch (Exception e) {
+                logManager.warning("Failed to load player level data for " + entry.getKey() + ": " + e.getMessage());
             }
         }
+        store.putAll(RANK_NAMESPACE, ranks);
+        logManager.info("Built the level rank index for " + ranks.size() + " players");
     }
 
-    private void savePlayerLevelData(UUID playerUUID) {
-        PlayerLevelData data = playerLevels.get(playerUUID);
-        if (data == null) return;
+    private PlayerLevelData readPlayerLevelData(UUID playerUUID) {
+        // An evicted record can't have unsaved changes, and one being flushed stays cached
+        PlayerLevelData pending = dirtyPlayers.get(playerUUID);
+        if (pending != null) {
+            return pending;
+        }
+        try {
+            byte[] value = store.get(PLAYER_NAMESPACE, playerUUID.toString());
+            if (value != null) {
+                return gson.fromJson(new String(value, StandardCharsets.UTF_8), PlayerLevelData.class);
+            }
+        } catch (Exception e) {
+            logManager.warning("Failed to load player level data for " + playerUUID + ": " + e.getMessage());
+        }
+        return null;
+    }
 
-        File playerFile = new File(playerLevelsDir, playerUUID.toString() + ".json");
-        try (Writer writer = new FileWriter(playerFile)) {
-            gson.toJson(data, writer);
+    private static boolean isUUID(String name) {
+        try {
+            UUID.fromString(name);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Save every player and town whose XP changed since the last flush, and send each changed
+     * player's latest level to the level database and Supabase once. A flush that is already
+     * running is waited for.
+     */
+    public void flushDirty() {
+        synchronized (flushLock) {
+            flushDirtyLocked();
+        }
+    }
+
+    private void flushDirtyLocked() {
+        int players = 0;
+        for (Iterator<Map.Entry<UUID, PlayerLevelData>> it = dirtyPlayers.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<UUID, PlayerLevelData> entry = it.next();
+            UUID playerUUID = entry.getKey();
+            PlayerLevelData data = entry.getValue();
+            // Pinned before the dirty mark goes, so the cache can't drop the record and reload
+            // the older stored copy while it is being written
+            savingPlayers.add(playerUUID);
+            // Removed before saving, so XP granted while saving marks the player again
+            it.remove();
+            try {
+                savePlayerLevelData(playerUUID, data);
+            } finally {
+                savingPlayers.remove(playerUUID);
+            }
+            String playerName;
+            int level;
+            int totalXP;
+            synchronized (data) {
+                playerName = data.getPlayerName();
+                level = data.getLevel();
+                totalXP = data.getTotalXP();
+            }
+            
+            // Sync to database if enabled
+            if (plugin.levelDatabaseManager != null && plugin.levelDatabaseManager.isEnabled()) {
+                plugin.levelDatabaseManager.syncPlayerLevel(playerUUID, playerName, level, totalXP);
+            }
+            
+            // Sync to Supabase if enabled
+            if (plugin.supabaseManager != null && plugin.supabaseManager.isEnabled()) {
+                plugin.supabaseManager.syncPlayerLevel(playerUUID, playerName, level, totalXP);
+            }
+            players++;
+        }
+        
+        int towns = 0;
+        for (Iterator<String> it = dirtyTowns.iterator(); it.hasNext(); ) {
+            String townName = it.next();
+            it.remove();
+            saveTownLevelData(townName);
+            towns++;
+        }
+        
+        if (players > 0 || towns > 0) {
+            logManager.debug("Flushed level data for " + players + " players and " + towns + " towns");
+        }
+    }
+
+    private void savePlayerLevelData(UUID playerUUID, PlayerLevelData data) {
+        try {
+            LevelRank rank;
+            byte[] value;
+            synchronized (data) {
+                rank = LevelRank.of(data);
+                value = gson.toJson(data).getBytes(StandardCharsets.UTF_8);
+            }
+            store.put(PLAYER_NAMESPACE, playerUUID.toString(), value);
+            store.put(RANK_NAMESPACE, playerUUID.toString(), rank.toBytes());
+            levelRanks.put(playerUUID, rank);
             logManager.debug("Saved player level data for " + playerUUID);
         } catch (Exception e) {
             logManager.severe("Failed to save player level data for " + playerUUID, e);
@@ -398,36 +557,17 @@ public class LevelManager {
         TownLevelData data = townLevels.get(townName);
         if (data == null) return;
 
-        File townFile = new File(townLevelsDir, townName + ".json");
-        try (Writer writer = new FileWriter(townFile)) {
-            gson.toJson(data, writer);
+        try {
+            store.put(TOWN_NAMESPACE, townName, gson.toJson(data).getBytes(StandardCharsets.UTF_8));
             logManager.debug("Saved town level data for " + townName);
         } catch (Exception e) {
             logManager.severe("Failed to save town level data for " + townName, e);
         }
     }
-    
+
     public PlayerLevelData loadPlayerLevelData(UUID playerUUID) {
-        // Check if already loaded in memory
-        if (playerLevels.containsKey(playerUUID)) {
-            return playerLevels.get(playerUUID);
-        }
-        
-        // Load from file
-        File playerFile = new File(playerLevelsDir, playerUUID.toString() + ".json");
-        if (playerFile.exists()) {
-            try (Reader reader = new FileReader(playerFile)) {
-                PlayerLevelData data = gson.fromJson(reader, PlayerLevelData.class);
-                if (data != null) {
-                    playerLevels.put(playerUUID, data);
-                    return data;
-                }
-            } catch (Exception e) {
-                logManager.warning("Failed to load player level data for " + playerUUID + ": " + e.getMessage());
-            }
-        }
-        
-        return null;
+        // Served from the cache, read from the record store on a miss
+        return playerLevels.get(playerUUID);
     }
     
     public TownLevelData loadTownLevelData(String townName) {
@@ -436,38 +576,60 @@ public class LevelManager {
             return townLevels.get(townName);
         }
         
-        // Load from file
-        File townFile = new File(townLevelsDir, townName + ".json");
-        if (townFile.exists()) {
-            try (Reader reader = new FileReader(townFile)) {
-                TownLevelData data = gson.fromJson(reader, TownLevelData.class);
+        // Load from the record store
+        try {
+            byte[] value = store.get(TOWN_NAMESPACE, townName);
+            if (value != null) {
+                TownLevelData data = gson.fromJson(new String(value, StandardCharsets.UTF_8), TownLevelData.class);
                 if (data != null) {
                     townLevels.put(townName, data);
                     return data;
                 }
-            } catch (Exception e) {
-                logManager.warning("Failed to load town level data for " + townName + ": " + e.getMessage());
             }
+        } catch (Exception e) {
+            logManager.warning("Failed to load town level data for " + townName + ": " + e.getMessage());
         }
         
         return null;
     }
 
     public void saveAllData() {
-        // Save all player data
-        for (UUID playerUUID : playerLevels.keySet()) {
-            savePlayerLevelData(playerUUID);
+        // One append per namespace instead of a file per player and town. Players that
+        // aren't cached are unchanged since they were last written
+        Map<String, byte[]> players = new LinkedHashMap<>();
+        Map<String, byte[]> ranks = new LinkedHashMap<>();
+        for (Map.Entry<UUID, PlayerLevelData> entry : playerLevels.snapshot().entrySet()) {
+            PlayerLevelData data = entry.getValue();
+            synchronized (data) {
+                LevelRank rank = LevelRank.of(data);
+                players.put(entry.getKey().toString(), gson.toJson(data).getBytes(StandardCharsets.UTF_8));
+                ranks.put(entry.getKey().toString(), rank.toBytes());
+                levelRanks.put(entry.getKey(), rank);
+            }
         }
-
-        // Save all town data
-        for (String townName : townLevels.keySet()) {
-            saveTownLevelData(townName);
+        Map<String, byte[]> towns = new LinkedHashMap<>();
+        for (Map.Entry<String, TownLevelData> entry : townLevels.entrySet()) {
+            towns.put(entry.getKey(), gson.toJson(entry.getValue()).getBytes(StandardCharsets.UTF_8));
+        }
+        try {
+            store.putAll(PLAYER_NAMESPACE, players);
+            store.putAll(RANK_NAMESPACE, ranks);
+            store.putAll(TOWN_NAMESPACE, towns);
+        } catch (IOException e) {
+            logManager.severe("Failed to save level data", e);
+            return;
         }
 
         logManager.debug("Saved all level data");
     }
 
     public void shutdown() {
+        if (flushTask != null) {
+            // Doesn't stop a flush that is running, flushDirty() below waits for it
+            flushTask.cancel();
+        }
+        // Remote level updates still pending go out before the sync managers stop
+        flushDirty();
         saveAllData();
     }
 
@@ -647,6 +809,56 @@ public class LevelManager {
         public String getColor() { return color; }
     }
 
+    /**
+     * The part of a player's level record that leaderboards need.
+     */
+    public static class LevelRank {
+        private final String playerName;
+        private final int level;
+        private final int totalXP;
+        private final long lastUpdated;
+
+        public LevelRank(String playerName, int level, int totalXP, long lastUpdated) {
+            this.playerName = playerName;
+            this.level = level;
+            this.totalXP = totalXP;
+            this.lastUpdated = lastUpdated;
+        }
+
+        static LevelRank of(PlayerLevelData data) {
+            return new LevelRank(data.getPlayerName(), data.getLevel(), data.getTotalXP(), data.getLastUpdated());
+        }
+
+        byte[] toBytes() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            try {
+                out.writeInt(level);
+                out.writeInt(totalXP);
+                out.writeLong(lastUpdated);
+                out.writeUTF(playerName != null ? playerName : "");
+            } catch (IOException e) {
+                // Writing to a byte array doesn't fail
+                throw new IllegalStateException(e);
+            }
+            return bytes.toByteArray();
+        }
+
+        static LevelRank fromBytes(byte[] value) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(value));
+            int level = in.readInt();
+            int totalXP = in.readInt();
+            long lastUpdated = in.readLong();
+            String name = in.readUTF();
+            return new LevelRank(name.isEmpty() ? null : name, level, totalXP, lastUpdated);
+        }
+
+        public String getPlayerName() { return playerName; }
+        public int getLevel() { return level; }
+        public int getTotalXP() { return totalXP; }
+        public long getLastUpdated() { return lastUpdated; }
+    }
+
     public static class PlayerLevelData {
         private UUID playerUUID;
         private String playerName;
@@ -1,208 +1,178 @@
 package com.swinefeather.progression;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import org.bukkit.plugin.Plugin;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 public class LocalAwardStorage {
+    private static final String AWARD_NAMESPACE = "award_entries";
+    private static final String MEDAL_NAMESPACE = "award_medals";
+    private static final String POINT_NAMESPACE = "award_points";
+
     private final Plugin plugin;
     private final LogManager logger;
     private final Gson gson;
     private final File dataFolder;
+    private final RecordStore store;
     
     // Data structures
     private final Map<UUID, PlayerAwardData> playerAwards = new ConcurrentHashMap<>();
     private final Map<UUID, PlayerMedalData> playerMedals = new ConcurrentHashMap<>();
     private final Map<UUID, PlayerPointData> playerPoints = new ConcurrentHashMap<>();
     
-    public LocalAwardStorage(Plugin plugin, LogManager logger) {
+    public LocalAwardStorage(Plugin plugin, LogManager logger, RecordStore store) {
         this.plugin = plugin;
         this.logger = logger;
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
+        this.gson = new Gson();
         this.dataFolder = new File(plugin.getDataFolder(), "awards");
-        
-        if (!dataFolder.exists()) {
-            dataFolder.mkdirs();
-        }
-        
-        // Create subdirectories
-        new File(dataFolder, "awards").mkdirs();
-        new File(dataFolder, "medals").mkdirs();
-        new File(dataFolder, "points").mkdirs();
+        this.store = store;
         
         loadAllData();
     }
     
     public void savePlayerAward(UUID playerUUID, String playerName, String awardId, String awardName, 
                                String tier, String medal, double points, long awardedAt) {
+        PlayerAwardData awardData = recordAward(playerUUID, playerName, awardId, awardName, tier, medal, points, awardedAt);
+        write(AWARD_NAMESPACE, Collections.singletonMap(playerUUID.toString(), toBytes(awardData)), "award data for " + playerUUID);
+    }
+    
+    public void savePlayerMedals(UUID playerUUID, String playerName, int bronzeCount, int silverCount, 
+                                int goldCount, int totalMedals) {
+        PlayerMedalData medalData = recordMedals(playerUUID, playerName, bronzeCount, silverCount, goldCount, totalMedals);
+        write(MEDAL_NAMESPACE, Collections.singletonMap(playerUUID.toString(), toBytes(medalData)), "medal data for " + playerUUID);
+    }
+    
+    public void savePlayerPoints(UUID playerUUID, String playerName, double totalPoints) {
+        PlayerPointData pointData = recordPoints(playerUUID, playerName, totalPoints);
+        write(POINT_NAMESPACE, Collections.singletonMap(playerUUID.toString(), toBytes(pointData)), "point data for " + playerUUID);
+    }
+    
+    private PlayerAwardData recordAward(UUID playerUUID, String playerName, String awardId, String awardName,
+                                        String tier, String medal, double points, long awardedAt) {
         PlayerAwardData awardData = playerAwards.computeIfAbsent(playerUUID, 
             k -> new PlayerAwardData(playerUUID, playerName));
         
         AwardEntry award = new AwardEntry(awardId, awardName, tier, medal, points, awardedAt);
         awardData.addAward(award);
-        
-        savePlayerAwardData(playerUUID, awardData);
         logger.verbose("Saved award for " + playerName + ": " + awardName + " (" + medal + ")");
+        return awardData;
     }
     
-    public void savePlayerMedals(UUID playerUUID, String playerName, int bronzeCount, int silverCount, 
-                                int goldCount, int totalMedals) {
+    private PlayerMedalData recordMedals(UUID playerUUID, String playerName, int bronzeCount, int silverCount,
+                                         int goldCount, int totalMedals) {
         PlayerMedalData medalData = new PlayerMedalData(playerUUID, playerName, bronzeCount, silverCount, goldCount, totalMedals);
         playerMedals.put(playerUUID, medalData);
-        
-        savePlayerMedalData(playerUUID, medalData);
         logger.verbose("Saved medals for " + playerName + ": " + totalMedals + " total (" + goldCount + "G, " + silverCount + "S, " + bronzeCount + "B)");
+        return medalData;
     }
     
-    public void savePlayerPoints(UUID playerUUID, String playerName, double totalPoints) {
+    private PlayerPointData recordPoints(UUID playerUUID, String playerName, double totalPoints) {
         PlayerPointData pointData = new PlayerPointData(playerUUID, playerName, totalPoints);
         playerPoints.put(playerUUID, pointData);
-        
-        savePlayerPointData(playerUUID, pointData);
         logger.verbose("Saved points for " + playerName + ": " + totalPoints);
+        return pointData;
     }
     
+    /**
+     * Update every player's awards, medals and points in memory, then write each kind in one append.
+     */
     public void saveAllAwards(Map<UUID, AwardManager.PlayerAwards> allPlayerAwards) {
+        Map<String, byte[]> awards = new LinkedHashMap<>();
+        Map<String, byte[]> medals = new LinkedHashMap<>();
+        Map<String, byte[]> points = new LinkedHashMap<>();
         for (Map.Entry<UUID, AwardManager.PlayerAwards> entry : allPlayerAwards.entrySet()) {
             UUID playerUUID = entry.getKey();
             AwardManager.PlayerAwards playerAward = entry.getValue();
             
             // Save individual awards
+            PlayerAwardData awardData = null;
             for (AwardManager.PlayerMedal medal : playerAward.getMedals()) {
-                savePlayerAward(playerUUID, playerAward.getPlayerName(), 
+                awardData = recordAward(playerUUID, playerAward.getPlayerName(), 
                     medal.getAwardId(), medal.getAwardId(), // Using awardId as name for now
                     "stone", medal.getMedalType(), medal.getPoints(), medal.getAwardedAt());
             }
+            if (awardData != null) {
+                awards.put(playerUUID.toString(), toBytes(awardData));
+            }
             
             // Save medal summary
-            savePlayerMedals(playerUUID, playerAward.getPlayerName(), 
+            medals.put(playerUUID.toString(), toBytes(recordMedals(playerUUID, playerAward.getPlayerName(), 
                 playerAward.getBronzeMedals(), playerAward.getSilverMedals(), 
-                playerAward.getGoldMedals(), playerAward.getTotalMedals());
+                playerAward.getGoldMedals(), playerAward.getTotalMedals())));
             
             // Save total points
-            savePlayerPoints(playerUUID, playerAward.getPlayerName(), playerAward.getTotalPoints());
+            points.put(playerUUID.toString(), toBytes(recordPoints(playerUUID, playerAward.getPlayerName(), playerAward.getTotalPoints())));
         }
+        write(AWARD_NAMESPACE, awards, "award data");
+        write(MEDAL_NAMESPACE, medals, "medal data");
+        write(POINT_NAMESPACE, points, "point data");
         
         logger.verbose("Saved all award data for " + allPlayerAwards.size() + " players");
     }
     
-    private void savePlayerAwardData(UUID playerUUID, PlayerAwardData awardData) {
-        try {
-            File file = new File(dataFolder, "awards/" + playerUUID.toString() + ".json");
-            try (FileWriter writer = new FileWriter(file)) {
-                gson.toJson(awardData, writer);
-            }
-        } catch (IOException e) {
-            logger.severe("Failed to save award data for " + playerUUID, e);
-        }
+    private byte[] toBytes(Object data) {
+        return gson.toJson(data).getBytes(StandardCharsets.UTF_8);
     }
     
-    private void savePlayerMedalData(UUID playerUUID, PlayerMedalData medalData) {
+    private void write(String namespace, Map<String, byte[]> values, String context) {
         try {
-            File file = new File(dataFolder, "medals/" + playerUUID.toString() + ".json");
-            try (FileWriter writer = new FileWriter(file)) {
-                gson.toJson(medalData, writer);
-            }
+            store.putAll(namespace, values);
         } catch (IOException e) {
-            logger.severe("Failed to save medal data for " + playerUUID, e);
+            logger.severe("Failed to save " + context, e);
         }
     }
     
-    private void savePlayerPointData(UUID playerUUID, PlayerPointData pointData) {
+    private void loadAllData() {
         try {
-            File file = new File(dataFolder, "points/" + playerUUID.toString() + ".json");
-            try (FileWriter writer = new FileWriter(file)) {
-                gson.toJson(pointData, writer);
-            }
+            // One-time import of the three per-player folders used before the record store
+            importLegacy(AWARD_NAMESPACE, "awards");
+            importLegacy(MEDAL_NAMESPACE, "medals");
+            importLegacy(POINT_NAMESPACE, "points");
+            
+            load(AWARD_NAMESPACE, PlayerAwardData.class, playerAwards, "award");
+            load(MEDAL_NAMESPACE, PlayerMedalData.class, playerMedals, "medal");
+            load(POINT_NAMESPACE, PlayerPointData.class, playerPoints, "point");
         } catch (IOException e) {
-            logger.severe("Failed to save point data for " + playerUUID, e);
+            logger.severe("Failed to read local award data from the record store", e);
         }
-    }
-    
-    private void loadAllData() {
-        loadAwardsData();
-        loadMedalsData();
-        loadPointsData();
         logger.debug("Loaded local award data: " + playerAwards.size() + " awards, " + 
                    playerMedals.size() + " medals, " + playerPoints.size() + " points");
     }
     
-    private void loadAwardsData() {
-        File awardsFolder = new File(dataFolder, "awards");
-        if (!awardsFolder.exists()) return;
-        
-        File[] files = awardsFolder.listFiles((dir, name) -> name.endsWith(".json"));
-        if (files == null) return;
-        
-        for (File file : files) {
-            try {
-                String uuidString = file.getName().replace(".json", "");
-                UUID playerUUID = UUID.fromString(uuidString);
-                
-                try (FileReader reader = new FileReader(file)) {
-                    PlayerAwardData awardData = gson.fromJson(reader, PlayerAwardData.class);
-                    if (awardData != null) {
-                        playerAwards.put(playerUUID, awardData);
-                    }
-                }
-            } catch (Exception e) {
-                logger.warning("Failed to load award data from " + file.getName() + ": " + e.getMessage());
-            }
+    private void importLegacy(String namespace, String folder) throws IOException {
+        File legacyFolder = new File(dataFolder, folder);
+        if (store.isEmpty(namespace) && legacyFolder.isDirectory()) {
+            int imported = store.importDirectory(namespace, legacyFolder, ".json", LocalAwardStorage::isUUID);
+            logger.info("Imported " + imported + " " + folder + " files into the record store");
         }
     }
     
-    private void loadMedalsData() {
-        File medalsFolder = new File(dataFolder, "medals");
-        if (!medalsFolder.exists()) return;
-        
-        File[] files = medalsFolder.listFiles((dir, name) -> name.endsWith(".json"));
-        if (files == null) return;
-        
-        for (File file : files) {
+    private <T> void load(String namespace, Class<T> type, Map<UUID, T> target, String kind) throws IOException {
+        for (Map.Entry<String, byte[]> entry : store.readAll(namespace).entrySet()) {
             try {
-                String uuidString = file.getName().replace(".json", "");
-                UUID playerUUID = UUID.fromString(uuidString);
-                
-                try (FileReader reader = new FileReader(file)) {
-                    PlayerMedalData medalData = gson.fromJson(reader, PlayerMedalData.class);
-                    if (medalData != null) {
-                        playerMedals.put(playerUUID, medalData);
-                    }
+                T data = gson.fromJson(new String(entry.getValue(), StandardCharsets.UTF_8), type);
+                if (data != null) {
+                    target.put(UUID.fromString(entry.getKey()), data);
                 }
             } catch (Exception e) {
-                logger.warning("Failed to load medal data from " + file.getName() + ": " + e.getMessage());
+                logger.warning("Failed to load " + kind + " data for " + entry.getKey() + ": " + e.getMessage());
             }
         }
     }
     
-    private void loadPointsData() {
-        File pointsFolder = new File(dataFolder, "points");
-        if (!pointsFolder.exists()) return;
-        
-        File[] files = pointsFolder.listFiles((dir, name) -> name.endsWith(".json"));
-        if (files == null) return;
-        
-        for (File file : files) {
-            try {
-                String uuidString = file.getName().replace(".json", "");
-                UUID playerUUID = UUID.fromString(uuidString);
-                
-                try (FileReader reader = new FileReader(file)) {
-                    PlayerPointData pointData = gson.fromJson(reader, PlayerPointData.class);
-                    if (pointData != null) {
-                        playerPoints.put(playerUUID, pointData);
-                    }
-                }
-            } catch (Exception e) {
-                logger.warning("Failed to load point data from " + file.getName() + ": " + e.getMessage());
-            }
+    private static boolean isUUID(String name) {
+        try {
+            UUID.fromString(name);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
         }
     }
     
@@ -242,22 +212,11 @@ public class LocalAwardStorage {
         playerMedals.remove(playerUUID);
         playerPoints.remove(playerUUID);
         
-        // Delete files
+        // Delete stored records
         try {
-            File awardFile = new File(dataFolder, "awards/" + playerUUID.toString() + ".json");
-            if (awardFile.exists()) {
-                awardFile.delete();
-            }
-            
-            File medalFile = new File(dataFolder, "medals/" + playerUUID.toString() + ".json");
-            if (medalFile.exists()) {
-                medalFile.delete();
-            }
-            
-            File pointFile = new File(dataFolder, "points/" + playerUUID.toString() + ".json");
-            if (pointFile.exists()) {
-                pointFile.delete();
-            }
+            store.delete(AWARD_NAMESPACE, playerUUID.toString());
+            store.delete(MEDAL_NAMESPACE, playerUUID.toString());
+            store.delete(POINT_NAMESPACE, playerUUID.toString());
             
             logger.debug("Cleared all data for player: " + playerUUID);
         } catch (Exception e) {
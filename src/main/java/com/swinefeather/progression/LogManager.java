@@ -99,6 +99,14 @@ public class LogManager {
         }
     }
     
+    public boolean isStatDetailEnabled() {
+        return showStatDetails && isDebugEnabled();
+    }
+    
+    public boolean isAvailableStatsEnabled() {
+        return showAvailableStats && isMaxEnabled();
+    }
+    
     public boolean isMinimalEnabled() {
         return "minimal".equals(logLevel) || isVerboseEnabled();
     }
@@ -5,7 +5,6 @@ import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 
 import org.bukkit.command.Command;
@@ -35,7 +34,13 @@ public class Main extends JavaPlugin implements Listener {
     public LevelDatabaseManager levelDatabaseManager;
     public TownyManager townyManager;
     public CacheManager cacheManager;
+    private SyncManifest awardManifest;
+    private java.util.Set<UUID> lastAwardOnlinePlayers = new java.util.HashSet<>();
     private boolean disabled = false;
+    // Virtual threads for blocking remote I/O (Supabase and level database HTTP calls)
+    private java.util.concurrent.ExecutorService remoteExecutor;
+    // Levels, achievements and local awards, all in one file
+    private RecordStore recordStore;
 
     @Override
     public void onEnable() {
@@ -51,6 +56,16 @@ public class Main extends JavaPlugin implements Listener {
         
         // Initialize LogManager first
         logManager = new LogManager(this);
+        remoteExecutor = java.util.concurrent.Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("Progression-Remote-", 1).factory());
+        
+        try {
+            recordStore = new RecordStore(new File(getDataFolder(), "progression.store"), logManager);
+        } catch (IOException e) {
+            logManager.severe("Could not open the local record store! Plugin will be disabled.", e);
+            getServer().getPluginManager().disablePlugin(this);
+            return;
+        }
         
         logManager.debug("Progression v1.0 starting up...");
         
@@ -96,6 +111,9 @@ public class Main extends JavaPlugin implements Listener {
         placeholderManager.loadPlaceholders();
 
         statSyncTask = new StatSyncTask(this, dbManager, supabaseManager, placeholderManager);
+        if (dbManager != null) {
+            dbManager.setRecoveryListener(statSyncTask::syncPendingMysql);
+        }
 
         // Initialize WebhookManager
         webhookManager = new WebhookManager(this);
@@ -116,6 +134,12 @@ public class Main extends JavaPlugin implements Listener {
         awardManager = new AwardManager(this, supabaseManager, webhookManager, logManager);
         awardManager.initialize(getConfig().getConfigurationSection("awards"));
         
+        // Track which stat files the scheduled award recalculation has already seen
+        if (getConfig().getBoolean("sync-incremental", true)) {
+            awardManifest = new SyncManifest(new File(getDataFolder(), "award_manifest.json"), getLogger());
+            awardManifest.load();
+        }
+        
         // Initialize API
         ProgressionAPI.initialize(this);
 
@@ -194,6 +218,17 @@ public class Main extends JavaPlugin implements Listener {
             }
         }.runTaskTimerAsynchronously(this, exportInterval, exportInterval);
 
+        // One fsync covers every record saved since the previous one
+        long fsyncInterval = getConfig().getLong("storage.fsync_interval_seconds", 5L) * 20L;
+        if (fsyncInterval > 0) {
+            new BukkitRunnable() {
+                @Override
+                public void run() {
+                    recordStore.sync();
+                }
+            }.runTaskTimerAsynchronously(this, fsyncInterval, fsyncInterval);
+        }
+
         // DISABLED: Initial sync on startup to prevent level-up spam
         // The plugin will now only sync when players are online or when manually triggered
         logManager.debug("Skipping initial sync on startup to prevent level-up spam");
@@ -336,7 +371,7 @@ public class Main extends JavaPlugin implements Listener {
         }
         
         // Initialize Supabase manager
-        supabaseManager = new SupabaseManager(this, logManager);
+        supabaseManager = new SupabaseManager(this, logManager, remoteExecutor);
         if (!supabaseManager.initialize(getConfig().getConfigurationSection("supabase"))) {
             logManager.severe("Supabase initialization failed!");
             return false;
@@ -348,6 +383,10 @@ public class Main extends JavaPlugin implements Listener {
 
     @Override
     public void onDisable() {
+        // Flushes buffered level changes, so it runs while the sync managers are still up
+        if (levelManager != null) {
+            levelManager.shutdown();
+        }
         if (cacheManager != null) {
             cacheManager.shutdown();
         }
@@ -360,18 +399,47 @@ public class Main extends JavaPlugin implements Listener {
         if (webhookManager != null) {
             webhookManager.shutdown();
         }
-        if (levelManager != null) {
-            levelManager.shutdown();
-        }
         if (achievementManager != null) {
             achievementManager.shutdown();
         }
         if (levelDatabaseManager != null) {
             levelDatabaseManager.shutdown();
         }
+        if (recordStore != null) {
+            recordStore.close();
+        }
+        shutdownRemoteExecutor();
         getLogger().info("Progression v1.0 disabled!");
     }
 
+    // Let in-flight remote calls finish, then interrupt whatever is still blocked
+    private void shutdownRemoteExecutor() {
+        if (remoteExecutor == null) {
+            return;
+        }
+        remoteExecutor.shutdown();
+        try {
+            if (!remoteExecutor.awaitTermination(5, java.util.concurrent.TimeUnit.SECONDS)) {
+                getLogger().warning("Remote requests still running after 5 seconds, interrupting them");
+                remoteExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            remoteExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public RecordStore getRecordStore() {
+        return recordStore;
+    }
+
+    /**
+     * @return Executor for blocking HTTP calls, one virtual thread per task
+     */
+    public java.util.concurrent.ExecutorService getRemoteExecutor() {
+        return remoteExecutor;
+    }
+
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         if (!disabled) {
@@ -445,10 +513,11 @@ public class Main extends JavaPlugin implements Listener {
                 }
                 // Parse sync type
                 String syncType = args.length > 1 ? args[1].toLowerCase() : "all";
+                boolean forceFull = args.length > 2 && args[2].equalsIgnoreCase("full");
                 switch (syncType) {
                     case "all":
                         sender.sendMessage("§aStarting full sync: stats, medals, points, awards...");
-                        statSyncTask.syncAllPlayers(sender);
+                        statSyncTask.syncAllPlayers(sender, forceFull);
                         if (awardManager != null && awardManager.isEnabled()) {
                             // TODO: Implement granular syncs in AwardManager
                             // Disabled automatic Supabase syncing - use local storage for Minecraft
@@ -459,7 +528,7 @@ public class Main extends JavaPlugin implements Listener {
                         break;
                     case "stats":
                         sender.sendMessage("§aSyncing only player stats...");
-                        statSyncTask.syncAllPlayers(sender);
+                        statSyncTask.syncAllPlayers(sender, forceFull);
                         break;
                     case "awards":
                         sender.sendMessage("§cAutomatic award syncing to Supabase is disabled. Use local storage for Minecraft.");
@@ -527,7 +596,7 @@ public class Main extends JavaPlugin implements Listener {
                         }
                         
                         // Reinitialize
-                        supabaseManager = new SupabaseManager(this, logManager);
+                        supabaseManager = new SupabaseManager(this, logManager, remoteExecutor);
                         if (!supabaseManager.initialize(getConfig().getConfigurationSection("supabase"))) {
                             sender.sendMessage("§cSupabase reinitialization failed! Check console for details.");
                             logManager.severe("Supabase reinitialization failed after reload!");
@@ -610,8 +679,11 @@ public class Main extends JavaPlugin implements Listener {
                 sender.sendMessage("§aStatus:");
                 sender.sendMessage("§7Plugin: " + (disabled ? "§cDisabled" : "§aEnabled"));
                 sender.sendMessage("§7Database Type: " + dbType);
-                sender.sendMessage("§7MySQL: " + (dbManager != null && dbManager.isConnected() ? "§aConnected" : "§cDisconnected"));
+                sender.sendMessage("§7MySQL: " + (dbManager != null ? dbManager.describeHealth() : "§cDisconnected"));
                 sender.sendMessage("§7Supabase: " + (supabaseManager != null && supabaseManager.isEnabled() ? "§aConnected" : "§cDisconnected"));
+                if (supabaseManager != null && supabaseManager.getQueueMetrics() != null) {
+                    sender.sendMessage("§7Supabase Queue: §f" + supabaseManager.getQueueMetrics());
+                }
                 sender.sendMessage("§7PlaceholderManager: " + (placeholderManager != null ? "§aInitialized" : "§cNot Initialized"));
                 sender.sendMessage("§7StatSyncTask: " + (statSyncTask != null ? "§aInitialized" : "§cNot Initialized"));
                 sender.sendMessage("§7PlaceholderAPI: " + (getServer().getPluginManager().getPlugin("PlaceholderAPI") != null ? "§aActive" : "§cInactive"));
@@ -725,6 +797,7 @@ public class Main extends JavaPlugin implements Listener {
             if (subCommand.equals("help") && sender.hasPermission("progression.sqlstats.help")) {
                 sender.sendMessage("§aProgression Commands:");
                 sender.sendMessage("§7/sqlstats sync - Sync all player stats to database (initial sync)");
+                sender.sendMessage("§7/sqlstats sync <all|stats> full - Re-sync every player, even with unchanged stat files");
                 sender.sendMessage("§7/sqlstats export [json] - Export stats to JSON file");
                 sender.sendMessage("§7/sqlstats view <player> <category> - View player stats for a category");
                 sender.sendMessage("§7/sqlstats reload - Reload configuration");
@@ -848,22 +921,64 @@ public class Main extends JavaPlugin implements Listener {
         // Write to file in plugins folder
         File outputFile = new File(getDataFolder(), "possible_stats.json");
         Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        try (FileWriter writer = new FileWriter(outputFile)) {
-            gson.toJson(stats, writer);
-        }
+        AtomicFiles.writeText(outputFile, false, writer -> gson.toJson(stats, writer));
     }
 
     // Sync and recalculate all awards/stats for all players (online and offline)
     public void syncAllAwardsAndStatsForAllPlayers() {
         if (awardManager != null && awardManager.isEnabled()) {
+            // Skip the recalculation when neither the stat files nor the online players changed since the last one
+            Map<UUID, List<File>> statFiles = null;
+            java.util.Set<UUID> onlinePlayers = new java.util.HashSet<>();
+            for (Player player : getServer().getOnlinePlayers()) {
+                onlinePlayers.add(player.getUniqueId());
+            }
+            if (awardManifest != null) {
+                statFiles = StatSnapshot.scanStatFiles(getServer(), getLogger());
+                if (onlinePlayers.equals(lastAwardOnlinePlayers) && !awardManifest.hasAnyChanged(statFiles)) {
+                    logManager.debug("No stat files changed since the last award calculation, skipping");
+                    return;
+                }
+                
+                // Once awards were ranked, only feed in players who joined, left or whose stats changed
+                java.util.Set<UUID> rankedPlayers = awardManager.getRankedPlayers();
+                if (rankedPlayers != null) {
+                    Map<UUID, StatVector> changedStats = new HashMap<>();
+                    Map<UUID, String> changedNames = new HashMap<>();
+                    for (Player player : getServer().getOnlinePlayers()) {
+                        UUID uuid = player.getUniqueId();
+                        List<File> files = statFiles.getOrDefault(uuid, java.util.Collections.emptyList());
+                        if (awardManifest.hasChanged(uuid, files) || !rankedPlayers.contains(uuid)) {
+                            changedStats.put(uuid, StatSnapshot.load(uuid, player.getName(), files, getLogger()).toStatVector());
+                            changedNames.put(uuid, player.getName());
+                        }
+                    }
+                    rankedPlayers.removeAll(onlinePlayers);
+                    if (awardManager.updateAwards(changedStats, rankedPlayers, changedNames)) {
+                        lastAwardOnlinePlayers = onlinePlayers;
+                        awardManifest.markAllSynced(statFiles);
+                        awardManifest.save();
+                        return;
+                    }
+                }
+            }
+            
             // Load all stats for all players (offline and online)
-            Map<UUID, Map<String, Object>> allStats = awardManager.loadAllPlayerStats();
-            Map<Player, Map<String, Object>> onlineStats = new HashMap<>();
+            Map<UUID, StatVector> allStats = awardManager.loadAllPlayerVectors();
+            Map<UUID, StatVector> onlineStats = new HashMap<>();
+            Map<UUID, String> onlineNames = new HashMap<>();
             for (Player player : getServer().getOnlinePlayers()) {
-                onlineStats.put(player, allStats.getOrDefault(player.getUniqueId(), new HashMap<>()));
+                onlineStats.put(player.getUniqueId(), allStats.getOrDefault(player.getUniqueId(), StatVector.EMPTY));
+                onlineNames.put(player.getUniqueId(), player.getName());
             }
             // Calculate and sync for all players (offline and online)
-            awardManager.calculateAllAwards(onlineStats);
+            awardManager.calculateAwards(onlineStats, onlineNames);
+            
+            lastAwardOnlinePlayers = onlinePlayers;
+            if (awardManifest != null) {
+                awardManifest.markAllSynced(statFiles);
+                awardManifest.save();
+            }
         }
     }
 
@@ -0,0 +1,480 @@
+package com.swinefeather.progression;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Collects player rows and stat rows for many players and categories and writes them with
+ * multi-row INSERT ... ON DUPLICATE KEY UPDATE statements, one transaction per chunk. Once
+ * chunkRows rows are pending the chunk is written before the next player is added, so all rows
+ * of a player end up in one chunk; close() writes the rest. A row added again before its chunk is
+ * written replaces the pending one, the same as a second upsert would.
+ * With a write log, stat rows whose final value is already in MySQL are dropped when the chunk is
+ * written, and the log is updated once the chunk commits, only for players with rows written or
+ * a new full write, so a failed chunk's rows are written again next time.
+ * While MySQL is unreachable, or when a chunk fails on a connection error, the chunk's players are
+ * put on the DatabaseManager's pending queue instead, to be written from fresh stats once it's back.
+ * When MySQL rejects a row, the chunk is written again one player per transaction, so only the
+ * players whose rows are rejected fail.
+ * With schema v2 the rows go to the compact tables of MySqlSchemaV2 instead of stats_&lt;category&gt;.
+ * Not thread-safe; one writer belongs to one sync.
+ */
+public class MySqlBulkWriter implements AutoCloseable {
+    // Rows per statement, well under MySQL's 65535 placeholder limit
+    private static final int ROWS_PER_STATEMENT = 500;
+
+    private final DatabaseManager dbManager;
+    private final Logger log;
+    private final int chunkRows;
+    private final MySqlWriteLog writeLog;
+    private final boolean forceFull;
+    private final MySqlSchemaV2 schemaV2;
+    private final Set<String> unknownCategories = new HashSet<>();
+    private final Set<UUID> deferredPlayers = new HashSet<>();
+    private final Set<UUID> failedPlayers = new HashSet<>();
+    // Write log state of the players in the pending chunk, and who is written in full this sync
+    private final Map<UUID, MySqlWriteLog.PlayerState> touched = new HashMap<>();
+    private final Set<UUID> fullWrites = new HashSet<>();
+    private final Map<UUID, String> players = new LinkedHashMap<>();
+    private final Map<String, Map<String, StatRow>> stats = new LinkedHashMap<>();
+    private int pendingRows;
+
+    private int chunks;
+    private int failedChunks;
+    private long roundTrips;
+    private long writtenPlayers;
+    private long writtenStats;
+    private long unchangedStats;
+    private long writeMillis;
+
+    private static class StatRow {
+        private final UUID playerUUID;
+        private final String statKey;
+        private final long value;
+
+        private StatRow(UUID playerUUID, String statKey, long value) {
+            this.playerUUID = playerUUID;
+            this.statKey = statKey;
+            this.value = value;
+        }
+    }
+
+    /**
+     * @param chunkRows Pending rows that trigger a write, each write is one transaction
+     * @param writeLog Last committed values, null to write every row
+     * @param forceFull Write every row even if the write log has it, and refresh the log
+     * @param schemaV2 The v2 tables to write to, null for the per-category v1 tables
+     */
+    public MySqlBulkWriter(DatabaseManager dbManager, Logger log, int chunkRows, MySqlWriteLog writeLog, boolean forceFull, MySqlSchemaV2 schemaV2) {
+        this.dbManager = dbManager;
+        this.log = log;
+        this.chunkRows = Math.max(1, chunkRows);
+        this.writeLog = writeLog;
+        this.forceFull = forceFull;
+        this.schemaV2 = schemaV2;
+    }
+
+    public void addPlayer(UUID playerUUID, String playerName) {
+        if (pendingRows >= chunkRows && !players.containsKey(playerUUID)) {
+            flush();
+        }
+        if (players.put(playerUUID, playerName) == null) {
+            pendingRows++;
+        }
+    }
+
+    public void addStats(String categoryName, UUID playerUUID, Map<String, Long> values) {
+        String category = DatabaseManager.statCategory(categoryName);
+        if (!DatabaseManager.isStatCategory(category)) {
+            // No table for it; writing it would fail the whole chunk
+            unknownCategories.add(category);
+            return;
+        }
+        Map<String, StatRow> rows = stats.computeIfAbsent(category, k -> new LinkedHashMap<>());
+        String uuid = playerUUID.toString();
+        if (writeLog != null) {
+            touch(playerUUID);
+        }
+        for (Map.Entry<String, Long> entry : values.entrySet()) {
+            String statKey = DatabaseManager.sanitizeStatKey(entry.getKey());
+            if (rows.put(uuid + '|' + statKey, new StatRow(playerUUID, statKey, entry.getValue())) == null) {
+                pendingRows++;
+            }
+        }
+    }
+
+    private MySqlWriteLog.PlayerState touch(UUID playerUUID) {
+        MySqlWriteLog.PlayerState state = touched.get(playerUUID);
+        if (state == null) {
+            state = writeLog.load(playerUUID);
+            long now = System.currentTimeMillis();
+            if (fullWrites.contains(playerUUID) || forceFull || writeLog.needsFullWrite(state, now)) {
+                fullWrites.add(playerUUID);
+                state.setFullWriteTime(now);
+            }
+            touched.put(playerUUID, state);
+        }
+        return state;
+    }
+
+    /**
+     * Add every category of one world's parsed stat file.
+     */
+    public void addWorldStats(UUID playerUUID, StatSnapshot.WorldStats worldStats) {
+        for (Map.Entry<String, Map<String, Long>> entry : worldStats.getStats().entrySet()) {
+            addStats(entry.getKey(), playerUUID, entry.getValue());
+        }
+    }
+
+    /**
+     * Write everything pending in one transaction. Player rows go first, the stat tables reference them.
+     * If MySQL rejects the chunk it is written again player by player.
+     */
+    public void flush() {
+        if (pendingRows == 0) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Set<UUID> changed = dropUnchanged();
+        int playerCount = players.size();
+        int statCount = pendingRows - playerCount;
+        if (!dbManager.isConnected()) {
+            // Fail fast instead of waiting on the connection timeout
+            defer();
+            reset();
+            return;
+        }
+        try (Connection conn = dbManager.getConnection()) {
+            if (schemaV2 != null) {
+                // Dictionary ids are committed on their own, outside the chunk's transaction
+                for (Map.Entry<String, Map<String, StatRow>> table : stats.entrySet()) {
+                    List<String> statKeys = new ArrayList<>();
+                    for (StatRow row : table.getValue().values()) {
+                        statKeys.add(row.statKey);
+                    }
+                    roundTrips += schemaV2.register(conn, schemaV2.categoryId(table.getKey()), statKeys);
+                }
+                statCount -= dropUnregistered();
+            }
+            Map<String, List<StatRow>> statRows = new LinkedHashMap<>();
+            for (Map.Entry<String, Map<String, StatRow>> table : stats.entrySet()) {
+                statRows.put(table.getKey(), new ArrayList<>(table.getValue().values()));
+            }
+            try {
+                writeTransaction(conn, players, statRows);
+                writtenPlayers += playerCount;
+                writtenStats += statCount;
+                saveWriteLog(changed);
+            } catch (SQLException e) {
+                if (DatabaseManager.isConnectionFailure(e)) {
+                    throw e;
+                }
+                log.warning(String.format("MySQL rejected a chunk of %d players and %d stats, writing them one by one: %s",
+                    playerCount, statCount, e.getMessage()));
+                writeEach(conn, statRows, changed);
+            }
+        } catch (SQLException e) {
+            failedChunks++;
+            log.severe(String.format("Failed to write %d players and %d stats to MySQL: %s", playerCount, statCount, e.getMessage()));
+            dbManager.reportFailure(e);
+            defer();
+        } finally {
+            chunks++;
+            writeMillis += System.currentTimeMillis() - start;
+            reset();
+        }
+    }
+
+    /**
+     * Drop stat rows whose pending value is the one MySQL already has, and record the others in
+     * the players' write log state. Runs once a player's rows are all in, so when worlds disagree
+     * on a stat only the value that is actually written is compared and recorded.
+     * @return Players whose write log record has to be saved once their rows commit
+     */
+    private Set<UUID> dropUnchanged() {
+        Set<UUID> changed = new HashSet<>();
+        if (writeLog == null) {
+            return changed;
+        }
+        for (UUID playerUUID : touched.keySet()) {
+            if (fullWrites.contains(playerUUID)) {
+                changed.add(playerUUID);
+            }
+        }
+        for (Map.Entry<String, Map<String, StatRow>> table : stats.entrySet()) {
+            Iterator<StatRow> rows = table.getValue().values().iterator();
+            while (rows.hasNext()) {
+                StatRow row = rows.next();
+                MySqlWriteLog.PlayerState state = touched.get(row.playerUUID);
+                if (!fullWrites.contains(row.playerUUID) && state.matches(table.getKey(), row.statKey, row.value)) {
+                    rows.remove();
+                    pendingRows--;
+                    unchangedStats++;
+                } else {
+                    state.record(table.getKey(), row.statKey, row.value);
+                    changed.add(row.playerUUID);
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Drop v2 stat rows whose key still has no dictionary id after registering, and take them
+     * out of the players' write log state so the next sync tries them again.
+     * @return Number of rows dropped
+     */
+    private int dropUnregistered() {
+        int dropped = 0;
+        for (Map.Entry<String, Map<String, StatRow>> table : stats.entrySet()) {
+            int categoryId = schemaV2.categoryId(table.getKey());
+            Iterator<StatRow> rows = table.getValue().values().iterator();
+            while (rows.hasNext()) {
+                StatRow row = rows.next();
+                if (schemaV2.statId(categoryId, row.statKey) != null) {
+                    continue;
+                }
+                rows.remove();
+                pendingRows--;
+                dropped++;
+                MySqlWriteLog.PlayerState state = touched.get(row.playerUUID);
+                if (state != null) {
+                    state.forget(table.getKey(), row.statKey);
+                }
+            }
+        }
+        if (dropped > 0) {
+            log.warning("Skipped " + dropped + " stats without a stat dictionary id, they will be written by a later sync");
+        }
+        return dropped;
+    }
+
+    private void saveWriteLog(Set<UUID> committed) {
+        if (committed.isEmpty()) {
+            return;
+        }
+        Map<UUID, MySqlWriteLog.PlayerState> states = new HashMap<>();
+        for (UUID playerUUID : committed) {
+            states.put(playerUUID, touched.get(playerUUID));
+        }
+        writeLog.save(states);
+    }
+
+    /**
+     * Write the pending chunk one player per transaction. Players whose rows are still rejected
+     * are logged and left out, the rest commit. A connection failure stops it and is thrown.
+     */
+    private void writeEach(Connection conn, Map<String, List<StatRow>> statRows, Set<UUID> changed) throws SQLException {
+        Map<UUID, Map<String, List<StatRow>>> byPlayer = new LinkedHashMap<>();
+        for (UUID playerUUID : players.keySet()) {
+            byPlayer.put(playerUUID, new LinkedHashMap<>());
+        }
+        for (Map.Entry<String, List<StatRow>> table : statRows.entrySet()) {
+            for (StatRow row : table.getValue()) {
+                byPlayer.computeIfAbsent(row.playerUUID, k -> new LinkedHashMap<>())
+                    .computeIfAbsent(table.getKey(), k -> new ArrayList<>()).add(row);
+            }
+        }
+        Set<UUID> committed = new HashSet<>();
+        for (Map.Entry<UUID, Map<String, List<StatRow>>> player : byPlayer.entrySet()) {
+            UUID playerUUID = player.getKey();
+            Map<UUID, String> playerRow = players.containsKey(playerUUID)
+                ? Collections.singletonMap(playerUUID, players.get(playerUUID)) : Collections.emptyMap();
+            int statCount = 0;
+            for (List<StatRow> rows : player.getValue().values()) {
+                statCount += rows.size();
+            }
+            try {
+                writeTransaction(conn, playerRow, player.getValue());
+                writtenPlayers += playerRow.size();
+                writtenStats += statCount;
+                if (changed.contains(playerUUID)) {
+                    committed.add(playerUUID);
+                }
+            } catch (SQLException e) {
+                if (DatabaseManager.isConnectionFailure(e)) {
+                    throw e;
+                }
+                failedPlayers.add(playerUUID);
+                log.severe(String.format("Failed to write player %s to MySQL: %s", playerUUID, e.getMessage()));
+            }
+        }
+        saveWriteLog(committed);
+    }
+
+    private void writeTransaction(Connection conn, Map<UUID, String> playerRows, Map<String, List<StatRow>> statRows) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            writePlayers(conn, playerRows);
+            for (Map.Entry<String, List<StatRow>> table : statRows.entrySet()) {
+                if (schemaV2 != null) {
+                    writeStatsV2(conn, schemaV2.categoryId(table.getKey()), table.getValue());
+                } else {
+                    writeStats(conn, table.getKey(), table.getValue());
+                }
+            }
+            conn.commit();
+            roundTrips++;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private void reset() {
+        players.clear();
+        stats.clear();
+        touched.clear();
+        pendingRows = 0;
+    }
+
+    private void defer() {
+        Set<UUID> chunkPlayers = new HashSet<>(players.keySet());
+        for (Map<String, StatRow> rows : stats.values()) {
+            for (StatRow row : rows.values()) {
+                chunkPlayers.add(row.playerUUID);
+            }
+        }
+        chunkPlayers.removeAll(deferredPlayers);
+        deferredPlayers.addAll(chunkPlayers);
+        dbManager.queuePending(chunkPlayers);
+    }
+
+    private void writePlayers(Connection conn, Map<UUID, String> playerRows) throws SQLException {
+        List<Map.Entry<UUID, String>> rows = new ArrayList<>(playerRows.entrySet());
+        for (int from = 0; from < rows.size(); from += ROWS_PER_STATEMENT) {
+            int to = Math.min(rows.size(), from + ROWS_PER_STATEMENT);
+            String sql = "INSERT INTO players (player_uuid, player_name, first_joined, last_updated) VALUES "
+                + repeat("(?, ?, NOW(), NOW())", to - from)
+                + " ON DUPLICATE KEY UPDATE player_name = VALUES(player_name), last_updated = NOW()";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int index = 1;
+                for (int i = from; i < to; i++) {
+                    stmt.setString(index++, rows.get(i).getKey().toString());
+                    stmt.setString(index++, rows.get(i).getValue());
+                }
+                stmt.executeUpdate();
+                roundTrips++;
+            }
+            if (schemaV2 != null) {
+                // The v1 players table stays current too, stats_placeholders references it
+                String sqlV2 = "INSERT INTO " + MySqlSchemaV2.PLAYERS_TABLE + " (player_id, player_name, first_joined, last_updated) VALUES "
+                    + repeat("(?, ?, NOW(), NOW())", to - from)
+                    + " ON DUPLICATE KEY UPDATE player_name = VALUES(player_name), last_updated = NOW()";
+                try (PreparedStatement stmt = conn.prepareStatement(sqlV2)) {
+                    int index = 1;
+                    for (int i = from; i < to; i++) {
+                        stmt.setBytes(index++, MySqlSchemaV2.toBytes(rows.get(i).getKey()));
+                        stmt.setString(index++, rows.get(i).getValue());
+                    }
+                    stmt.executeUpdate();
+                    roundTrips++;
+                }
+            }
+        }
+    }
+
+    private void writeStats(Connection conn, String category, List<StatRow> rows) throws SQLException {
+        for (int from = 0; from < rows.size(); from += ROWS_PER_STATEMENT) {
+            int to = Math.min(rows.size(), from + ROWS_PER_STATEMENT);
+            String sql = "INSERT INTO stats_" + category + " (player_uuid, stat_key, stat_value) VALUES "
+                + repeat("(?, ?, ?)", to - from)
+                + " ON DUPLICATE KEY UPDATE stat_value = VALUES(stat_value)";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int index = 1;
+                for (int i = from; i < to; i++) {
+                    StatRow row = rows.get(i);
+                    stmt.setString(index++, row.playerUUID.toString());
+                    stmt.setString(index++, row.statKey);
+                    stmt.setLong(index++, row.value);
+                }
+                stmt.executeUpdate();
+                roundTrips++;
+            }
+        }
+    }
+
+    // Rows without a dictionary id were taken out by dropUnregistered()
+    private void writeStatsV2(Connection conn, int categoryId, List<StatRow> rows) throws SQLException {
+        for (int from = 0; from < rows.size(); from += ROWS_PER_STATEMENT) {
+            int to = Math.min(rows.size(), from + ROWS_PER_STATEMENT);
+            String sql = "INSERT INTO " + MySqlSchemaV2.STATS_TABLE + " (player_id, category_id, stat_id, stat_value) VALUES "
+                + repeat("(?, ?, ?, ?)", to - from)
+                + " ON DUPLICATE KEY UPDATE stat_value = VALUES(stat_value)";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int index = 1;
+                for (int i = from; i < to; i++) {
+                    StatRow row = rows.get(i);
+                    stmt.setBytes(index++, MySqlSchemaV2.toBytes(row.playerUUID));
+                    stmt.setInt(index++, categoryId);
+                    stmt.setInt(index++, schemaV2.statId(categoryId, row.statKey));
+                    stmt.setLong(index++, row.value);
+                }
+                stmt.executeUpdate();
+                roundTrips++;
+            }
+        }
+    }
+
+    private static String repeat(String group, int count) {
+        StringBuilder sql = new StringBuilder(count * (group.length() + 2));
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(group);
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Write whatever is still pending.
+     */
+    @Override
+    public void close() {
+        flush();
+        if (!unknownCategories.isEmpty()) {
+            log.warning("Skipped stats in categories without a MySQL table: " + String.join(", ", unknownCategories));
+        }
+    }
+
+    public long getRoundTrips() { return roundTrips; }
+    public long getWrittenPlayers() { return writtenPlayers; }
+    public long getWrittenStats() { return writtenStats; }
+    public long getUnchangedStats() { return unchangedStats; }
+    public int getFailedChunks() { return failedChunks; }
+
+    /**
+     * @return Players put on the pending queue by this writer
+     */
+    public Set<UUID> getDeferredPlayers() { return deferredPlayers; }
+
+    /**
+     * @return Players whose rows MySQL rejected even when written on their own
+     */
+    public Set<UUID> getFailedPlayers() { return failedPlayers; }
+
+    /**
+     * @return One line with the rows written, transactions and statement round trips
+     */
+    public String describe() {
+        return writtenPlayers + " players and " + writtenStats + " stats (" + unchangedStats + " unchanged skipped) in " + chunks + " transactions ("
+            + failedChunks + " failed), " + roundTrips + " round trips, " + writeMillis + "ms"
+            + (failedPlayers.isEmpty() ? "" : ", " + failedPlayers.size() + " players rejected")
+            + (deferredPlayers.isEmpty() ? "" : ", " + deferredPlayers.size() + " players queued until MySQL is reachable");
+    }
+}
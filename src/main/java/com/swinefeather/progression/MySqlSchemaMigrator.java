@@ -0,0 +1,244 @@
+package com.swinefeather.progression;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Copies the v1 tables (players and stats_&lt;category&gt;) into the v2 tables one batch at a time.
+ * Each batch is read in key order after the last copied row and committed together with that
+ * position in schema_v2_migration, so the copy resumes where it stopped after a restart.
+ * Rows are inserted with INSERT IGNORE: once schema v2 is on, syncs write only to v2, so a row
+ * that is already there is newer than its v1 copy.
+ */
+public class MySqlSchemaMigrator {
+    private static final String PROGRESS_TABLE = "schema_v2_migration";
+    private static final String PLAYERS_SOURCE = "players";
+
+    private final DatabaseManager dbManager;
+    private final MySqlSchemaV2 schema;
+    private final List<String> categories;
+    private final Logger log;
+    private final int batchRows;
+    private final Map<String, Progress> progress = new HashMap<>();
+    private boolean progressLoaded;
+    private long copiedRows;
+
+    private static class Progress {
+        private String lastUUID = "";
+        private String lastKey = "";
+        private boolean done;
+    }
+
+    public MySqlSchemaMigrator(DatabaseManager dbManager, MySqlSchemaV2 schema, List<String> categories, Logger log, int batchRows) {
+        this.dbManager = dbManager;
+        this.schema = schema;
+        this.categories = categories;
+        this.log = log;
+        this.batchRows = Math.max(1, batchRows);
+    }
+
+    /**
+     * Copy the next batch.
+     * @return true once every v1 table has been copied
+     */
+    public boolean step() throws SQLException {
+        try (Connection conn = dbManager.getConnection()) {
+            if (!progressLoaded) {
+                loadProgress(conn);
+                progressLoaded = true;
+            }
+            for (String source : sources()) {
+                Progress position = progress.computeIfAbsent(source, k -> new Progress());
+                if (position.done) {
+                    continue;
+                }
+                if (source.equals(PLAYERS_SOURCE)) {
+                    copyPlayers(conn, position);
+                } else {
+                    copyStats(conn, source, position);
+                }
+                if (position.done) {
+                    log.info("Schema v2 migration finished " + source + " (" + copiedRows + " rows copied so far)");
+                }
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private List<String> sources() {
+        List<String> sources = new ArrayList<>();
+        sources.add(PLAYERS_SOURCE);
+        for (String category : categories) {
+            sources.add("stats_" + category);
+        }
+        return sources;
+    }
+
+    private void loadProgress(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS " + PROGRESS_TABLE + " (" +
+                            "source_table VARCHAR(64) PRIMARY KEY," +
+                            "last_uuid VARCHAR(36) NOT NULL," +
+                            "last_key VARCHAR(255) NOT NULL," +
+                            "done BOOLEAN NOT NULL)");
+            try (ResultSet rs = stmt.executeQuery("SELECT source_table, last_uuid, last_key, done FROM " + PROGRESS_TABLE)) {
+                while (rs.next()) {
+                    Progress position = new Progress();
+                    position.lastUUID = rs.getString("last_uuid");
+                    position.lastKey = rs.getString("last_key");
+                    position.done = rs.getBoolean("done");
+                    progress.put(rs.getString("source_table"), position);
+                }
+            }
+        }
+    }
+
+    private void copyPlayers(Connection conn, Progress position) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        String lastUUID = position.lastUUID;
+        int read = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT player_uuid, player_name, first_joined, last_updated FROM players WHERE player_uuid > ? ORDER BY player_uuid LIMIT ?")) {
+            stmt.setString(1, position.lastUUID);
+            stmt.setInt(2, batchRows);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    read++;
+                    lastUUID = rs.getString("player_uuid");
+                    UUID playerUUID = parseUUID(lastUUID);
+                    if (playerUUID != null) {
+                        rows.add(new Object[] { MySqlSchemaV2.toBytes(playerUUID), rs.getString("player_name"),
+                            rs.getTimestamp("first_joined"), rs.getTimestamp("last_updated") });
+                    }
+                }
+            }
+        }
+        commit(conn, PLAYERS_SOURCE, position, lastUUID, "", read < batchRows, () -> {
+            if (rows.isEmpty()) {
+                return;
+            }
+            StringBuilder sql = new StringBuilder("INSERT IGNORE INTO " + MySqlSchemaV2.PLAYERS_TABLE
+                + " (player_id, player_name, first_joined, last_updated) VALUES ");
+            for (int i = 0; i < rows.size(); i++) {
+                sql.append(i > 0 ? ", (?, ?, ?, ?)" : "(?, ?, ?, ?)");
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                int index = 1;
+                for (Object[] row : rows) {
+                    stmt.setBytes(index++, (byte[]) row[0]);
+                    stmt.setString(index++, (String) row[1]);
+                    stmt.setTimestamp(index++, (Timestamp) row[2]);
+                    stmt.setTimestamp(index++, (Timestamp) row[3]);
+                }
+                stmt.executeUpdate();
+            }
+        });
+        copiedRows += rows.size();
+    }
+
+    private void copyStats(Connection conn, String source, Progress position) throws SQLException {
+        int categoryId = schema.categoryId(source.substring("stats_".length()));
+        List<Object[]> rows = new ArrayList<>();
+        Set<String> statKeys = new LinkedHashSet<>();
+        String lastUUID = position.lastUUID;
+        String lastKey = position.lastKey;
+        int read = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT player_uuid, stat_key, stat_value FROM " + source
+                    + " WHERE player_uuid > ? OR (player_uuid = ? AND stat_key > ?) ORDER BY player_uuid, stat_key LIMIT ?")) {
+            stmt.setString(1, position.lastUUID);
+            stmt.setString(2, position.lastUUID);
+            stmt.setString(3, position.lastKey);
+            stmt.setInt(4, batchRows);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    read++;
+                    lastUUID = rs.getString("player_uuid");
+                    lastKey = rs.getString("stat_key");
+                    UUID playerUUID = parseUUID(lastUUID);
+                    if (playerUUID != null) {
+                        rows.add(new Object[] { MySqlSchemaV2.toBytes(playerUUID), lastKey, rs.getLong("stat_value") });
+                        statKeys.add(lastKey);
+                    }
+                }
+            }
+        }
+        // New dictionary ids are committed on their own, like the writers do
+        schema.register(conn, categoryId, statKeys);
+        commit(conn, source, position, lastUUID, lastKey, read < batchRows, () -> {
+            if (rows.isEmpty()) {
+                return;
+            }
+            StringBuilder sql = new StringBuilder("INSERT IGNORE INTO " + MySqlSchemaV2.STATS_TABLE
+                + " (player_id, category_id, stat_id, stat_value) VALUES ");
+            for (int i = 0; i < rows.size(); i++) {
+                sql.append(i > 0 ? ", (?, ?, ?, ?)" : "(?, ?, ?, ?)");
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                int index = 1;
+                for (Object[] row : rows) {
+                    stmt.setBytes(index++, (byte[]) row[0]);
+                    stmt.setInt(index++, categoryId);
+                    stmt.setInt(index++, schema.statId(categoryId, (String) row[1]));
+                    stmt.setLong(index++, (Long) row[2]);
+                }
+                stmt.executeUpdate();
+            }
+        });
+        copiedRows += rows.size();
+    }
+
+    private interface SqlWork {
+        void run() throws SQLException;
+    }
+
+    // Copies a batch and records the new position in one transaction
+    private void commit(Connection conn, String source, Progress position, String lastUUID, String lastKey, boolean done, SqlWork copy) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            copy.run();
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO " + PROGRESS_TABLE + " (source_table, last_uuid, last_key, done) VALUES (?, ?, ?, ?) " +
+                            "ON DUPLICATE KEY UPDATE last_uuid = VALUES(last_uuid), last_key = VALUES(last_key), done = VALUES(done)")) {
+                stmt.setString(1, source);
+                stmt.setString(2, lastUUID);
+                stmt.setString(3, lastKey);
+                stmt.setBoolean(4, done);
+                stmt.executeUpdate();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        position.lastUUID = lastUUID;
+        position.lastKey = lastKey;
+        position.done = done;
+    }
+
+    private static UUID parseUUID(String value) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public long getCopiedRows() { return copiedRows; }
+}
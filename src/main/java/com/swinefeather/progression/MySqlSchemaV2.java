@@ -0,0 +1,175 @@
+package com.swinefeather.progression;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact MySQL layout enabled with mysql.schema_version: 2. Players are keyed by their UUID as
+ * BINARY(16), stat keys are replaced by SMALLINT ids from stat_dictionary, and every category
+ * lives in one player_stats_v2 table partitioned by category. The (stat_id, stat_value) index
+ * also carries the primary key, so top-N queries per stat are answered from the index alone.
+ * Partitioned InnoDB tables can't have foreign keys, so player_stats_v2 has none.
+ */
+public class MySqlSchemaV2 {
+    public static final String PLAYERS_TABLE = "players_v2";
+    public static final String STATS_TABLE = "player_stats_v2";
+    public static final String DICTIONARY_TABLE = "stat_dictionary";
+
+    private final List<String> categories;
+    // "categoryId|stat_key" to stat id, shared by every writer
+    private final Map<String, Integer> statIds = new ConcurrentHashMap<>();
+
+    /**
+     * @param categories Stat categories in a fixed order; the position plus one is the category id
+     */
+    public MySqlSchemaV2(List<String> categories) {
+        this.categories = categories;
+    }
+
+    public void createTables(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS " + PLAYERS_TABLE + " (" +
+                            "player_id BINARY(16) PRIMARY KEY," +
+                            "player_name VARCHAR(16)," +
+                            "first_joined TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                            "last_updated TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            stmt.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS " + DICTIONARY_TABLE + " (" +
+                            "stat_id SMALLINT UNSIGNED AUTO_INCREMENT PRIMARY KEY," +
+                            "category_id TINYINT UNSIGNED NOT NULL," +
+                            "stat_key VARCHAR(255) NOT NULL," +
+                            "UNIQUE KEY uk_category_key (category_id, stat_key))");
+
+            StringBuilder partitions = new StringBuilder();
+            for (int i = 0; i < categories.size(); i++) {
+                if (i > 0) {
+                    partitions.append(", ");
+                }
+                partitions.append("PARTITION p_").append(categories.get(i)).append(" VALUES IN (").append(i + 1).append(")");
+            }
+            stmt.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS " + STATS_TABLE + " (" +
+                            "player_id BINARY(16) NOT NULL," +
+                            "category_id TINYINT UNSIGNED NOT NULL," +
+                            "stat_id SMALLINT UNSIGNED NOT NULL," +
+                            "stat_value BIGINT NOT NULL," +
+                            "PRIMARY KEY (player_id, category_id, stat_id)," +
+                            "KEY idx_stat_value (stat_id, stat_value)) " +
+                            "PARTITION BY LIST (category_id) (" + partitions + ")");
+        }
+    }
+
+    /**
+     * @return The category's id, or -1 if it has no partition
+     */
+    public int categoryId(String category) {
+        int index = categories.indexOf(category);
+        return index < 0 ? -1 : index + 1;
+    }
+
+    /**
+     * @return The category with this id, or null if there is none
+     */
+    public String categoryName(int categoryId) {
+        return categoryId >= 1 && categoryId <= categories.size() ? categories.get(categoryId - 1) : null;
+    }
+
+    /**
+     * Read every known stat id, so writers only go to the database for new stat keys.
+     */
+    public void loadDictionary(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT stat_id, category_id, stat_key FROM " + DICTIONARY_TABLE);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                statIds.put(rs.getInt("category_id") + "|" + rs.getString("stat_key"), rs.getInt("stat_id"));
+            }
+        }
+    }
+
+    /**
+     * @return The stat's id, or null if it isn't in the dictionary yet
+     */
+    public Integer statId(int categoryId, String statKey) {
+        return statIds.get(categoryId + "|" + statKey);
+    }
+
+    /**
+     * Add missing stat keys to the dictionary. Runs on its own auto-commit statement, so the ids
+     * are visible to every connection right away; a key added by someone else at the same time is
+     * simply read back.
+     * @return Number of round trips used
+     */
+    public int register(Connection conn, int categoryId, Collection<String> statKeys) throws SQLException {
+        List<String> missing = new ArrayList<>();
+        for (String statKey : statKeys) {
+            if (statId(categoryId, statKey) == null) {
+                missing.add(statKey);
+            }
+        }
+        if (missing.isEmpty()) {
+            return 0;
+        }
+        StringBuilder sql = new StringBuilder("INSERT IGNORE INTO " + DICTIONARY_TABLE + " (category_id, stat_key) VALUES ");
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < missing.size(); i++) {
+            sql.append(i > 0 ? ", (?, ?)" : "(?, ?)");
+            in.append(i > 0 ? ", ?" : "?");
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (String statKey : missing) {
+                stmt.setInt(index++, categoryId);
+                stmt.setString(index++, statKey);
+            }
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT stat_id, stat_key FROM " + DICTIONARY_TABLE + " WHERE category_id = ? AND stat_key IN (" + in + ")")) {
+            int index = 1;
+            stmt.setInt(index++, categoryId);
+            for (String statKey : missing) {
+                stmt.setString(index++, statKey);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    statIds.put(categoryId + "|" + rs.getString("stat_key"), rs.getInt("stat_id"));
+                }
+            }
+        }
+        return 2;
+    }
+
+    /**
+     * @return Stat ids to their category and key, for reading the stats table back
+     */
+    public Map<Integer, String[]> describeStats() {
+        Map<Integer, String[]> stats = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : statIds.entrySet()) {
+            String key = entry.getKey();
+            int split = key.indexOf('|');
+            stats.put(entry.getValue(), new String[] { categoryName(Integer.parseInt(key.substring(0, split))), key.substring(split + 1) });
+        }
+        return stats;
+    }
+
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
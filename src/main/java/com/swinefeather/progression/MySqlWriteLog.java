@@ -0,0 +1,168 @@
+package com.swinefeather.progression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Remembers the stat values last committed to MySQL for each player, so a sync only has to write
+ * the rows that changed. Stat keys are kept as 64-bit hashes next to their values, one record per
+ * player in the RecordStore. Each record also holds the time of the player's last full write;
+ * once that is older than the reconcile interval the next sync writes every row again, which
+ * repairs tables that were changed or cleared behind the plugin's back.
+ */
+public class MySqlWriteLog {
+    private static final int FORMAT = 1;
+
+    private final RecordStore store;
+    private final LogManager logger;
+    private final long reconcileMillis;
+    private final String namespace;
+
+    /**
+     * What one player has in MySQL, per category: stat key hash to value.
+     */
+    public static class PlayerState {
+        private final Map<String, Map<Long, Long>> categories;
+        private long fullWriteTime;
+
+        private PlayerState(Map<String, Map<Long, Long>> categories, long fullWriteTime) {
+            this.categories = categories;
+            this.fullWriteTime = fullWriteTime;
+        }
+
+        /**
+         * @return true if the stat already has this value in MySQL
+         */
+        public boolean matches(String category, String statKey, long value) {
+            Map<Long, Long> values = categories.get(category);
+            if (values == null) {
+                return false;
+            }
+            Long written = values.get(hash(statKey));
+            return written != null && written == value;
+        }
+
+        public void record(String category, String statKey, long value) {
+            categories.computeIfAbsent(category, k -> new HashMap<>()).put(hash(statKey), value);
+        }
+
+        /**
+         * Drop a stat recorded for a row that wasn't written after all.
+         */
+        public void forget(String category, String statKey) {
+            Map<Long, Long> values = categories.get(category);
+            if (values != null) {
+                values.remove(hash(statKey));
+            }
+        }
+
+        public long getFullWriteTime() { return fullWriteTime; }
+        public void setFullWriteTime(long fullWriteTime) { this.fullWriteTime = fullWriteTime; }
+    }
+
+    /**
+     * @param reconcileMillis Age of the last full write after which a player is written in full again
+     * @param namespace RecordStore namespace of the records
+     */
+    public MySqlWriteLog(RecordStore store, LogManager logger, long reconcileMillis, String namespace) {
+        this.store = store;
+        this.logger = logger;
+        this.reconcileMillis = reconcileMillis;
+        this.namespace = namespace;
+    }
+
+    /**
+     * @return The player's last committed values, empty if none are known or the record is unreadable
+     */
+    public PlayerState load(UUID playerUUID) {
+        try {
+            byte[] bytes = store.get(namespace, playerUUID.toString());
+            if (bytes != null) {
+                return decode(bytes);
+            }
+        } catch (IOException e) {
+            logger.warning("Could not read the MySQL write log for " + playerUUID + ", writing all stats: " + e.getMessage());
+        }
+        return new PlayerState(new HashMap<>(), 0L);
+    }
+
+    /**
+     * @return true if the player's last full write is older than the reconcile interval
+     */
+    public boolean needsFullWrite(PlayerState state, long now) {
+        return now - state.fullWriteTime >= reconcileMillis;
+    }
+
+    /**
+     * Store the values of a committed chunk. If this fails the rows are simply written again next time.
+     */
+    public void save(Map<UUID, PlayerState> states) {
+        Map<String, byte[]> records = new LinkedHashMap<>();
+        for (Map.Entry<UUID, PlayerState> entry : states.entrySet()) {
+            records.put(entry.getKey().toString(), encode(entry.getValue()));
+        }
+        try {
+            store.putAll(namespace, records);
+        } catch (IOException e) {
+            logger.warning("Could not update the MySQL write log: " + e.getMessage());
+        }
+    }
+
+    private static byte[] encode(PlayerState state) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(FORMAT);
+            out.writeLong(state.fullWriteTime);
+            out.writeInt(state.categories.size());
+            for (Map.Entry<String, Map<Long, Long>> category : state.categories.entrySet()) {
+                out.writeUTF(category.getKey());
+                out.writeInt(category.getValue().size());
+                for (Map.Entry<Long, Long> stat : category.getValue().entrySet()) {
+                    out.writeLong(stat.getKey());
+                    out.writeLong(stat.getValue());
+                }
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static PlayerState decode(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readByte() != FORMAT) {
+            throw new IOException("unknown record format");
+        }
+        long fullWriteTime = in.readLong();
+        int categoryCount = in.readInt();
+        Map<String, Map<Long, Long>> categories = new HashMap<>();
+        for (int c = 0; c < categoryCount; c++) {
+            String category = in.readUTF();
+            int count = in.readInt();
+            Map<Long, Long> values = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                values.put(in.readLong(), in.readLong());
+            }
+            categories.put(category, values);
+        }
+        return new PlayerState(categories, fullWriteTime);
+    }
+
+    // 64-bit FNV-1a; with a few hundred keys per category a collision is practically impossible
+    private static long hash(String statKey) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < statKey.length(); i++) {
+            hash ^= statKey.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
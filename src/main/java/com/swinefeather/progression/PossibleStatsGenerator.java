@@ -4,7 +4,7 @@ import org.bukkit.Material;
 import org.bukkit.entity.EntityType;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import java.io.FileWriter;
+import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
@@ -105,9 +105,7 @@ public class PossibleStatsGenerator {
 
         // Write to file
         Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        try (FileWriter writer = new FileWriter("possible_stats.json")) {
-            gson.toJson(stats, writer);
-        }
+        AtomicFiles.writeText(new File("possible_stats.json"), false, writer -> gson.toJson(stats, writer));
         System.out.println("Generated possible_stats.json with all possible stats in nested format.");
     }
 } 
\ No newline at end of file
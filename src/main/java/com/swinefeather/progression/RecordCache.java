@@ -0,0 +1,95 @@
+package com.swinefeather.progression;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, lazily filled cache of records kept in the RecordStore. Missing keys are loaded on
+ * first access, and once the cache is over capacity the least recently used records that may be
+ * evicted are dropped. Records the owner still needs, such as online players or unsaved changes,
+ * are skipped by the eviction predicate, so the cache can stay over capacity while they are.
+ */
+public class RecordCache<K, V> {
+    private final int capacity;
+    private final Function<K, V> loader;
+    private final Predicate<K> evictable;
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param capacity Records kept before evicting
+     * @param loader Reads a record from disk, null if there is none
+     * @param evictable Whether a record may be dropped right now
+     */
+    public RecordCache(int capacity, Function<K, V> loader, Predicate<K> evictable) {
+        this.capacity = Math.max(1, capacity);
+        this.loader = loader;
+        this.evictable = evictable;
+    }
+
+    /**
+     * @return The cached or loaded record, or null if there is none
+     */
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) {
+                entries.put(key, value);
+                evict();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return The cached or loaded record, or a new one from the factory
+     */
+    public synchronized V getOrCreate(K key, Supplier<V> factory) {
+        V value = get(key);
+        if (value == null) {
+            value = factory.get();
+            entries.put(key, value);
+            evict();
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, value);
+        evict();
+    }
+
+    /**
+     * @return A copy of the records in memory
+     */
+    public synchronized Map<K, V> snapshot() {
+        return new LinkedHashMap<>(entries);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void evict() {
+        if (entries.size() <= capacity) {
+            return;
+        }
+        List<K> dropped = new ArrayList<>();
+        int excess = entries.size() - capacity;
+        for (Iterator<K> it = entries.keySet().iterator(); it.hasNext() && dropped.size() < excess; ) {
+            K key = it.next();
+            if (evictable.test(key)) {
+                dropped.add(key);
+            }
+        }
+        for (K key : dropped) {
+            entries.remove(key);
+        }
+    }
+}
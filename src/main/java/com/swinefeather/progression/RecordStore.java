@@ -0,0 +1,485 @@
+package com.swinefeather.progression;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+/**
+ * One append-only file holding every locally saved record (levels, achievements, awards), keyed by
+ * namespace and key. Writes append a record and the in-memory index points at the newest copy, so
+ * a save is one sequential write instead of rewriting a file per player. Startup reads the file
+ * once to rebuild the index. When stale copies make up most of the file it is compacted into a
+ * fresh file that replaces the old one.
+ * Record layout: body length, CRC32 of the body, then the body (op, namespace, key, value length, value).
+ * A torn record at the end, left by a crash, is cut off on open. A corrupt record in the middle is
+ * skipped up to the next intact record, and the file is copied aside before either repair.
+ * Closing writes the index next to the data file, so the next open only scans records appended after it.
+ * Appends aren't forced to disk one by one; sync() flushes everything written since the last call at once.
+ */
+public class RecordStore {
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final long COMPACT_MIN_BYTES = 1024 * 1024;
+    private static final int INDEX_MAGIC = 0x50524958;
+
+    private static class Location {
+        private final long position;
+        private final int length;
+        private final int recordBytes;
+
+        private Location(long position, int length, int recordBytes) {
+            this.position = position;
+            this.length = length;
+            this.recordBytes = recordBytes;
+        }
+    }
+
+    private final File file;
+    private final File indexFile;
+    private final LogManager logger;
+    private final Map<String, Map<String, Location>> index = new HashMap<>();
+    private RandomAccessFile data;
+    private long liveBytes;
+    private boolean unsynced;
+
+    /**
+     * Open the store, creating the file if needed, and index every record in it.
+     */
+    public RecordStore(File file, LogManager logger) throws IOException {
+        this.file = file;
+        this.indexFile = new File(file.getParentFile(), file.getName() + ".idx");
+        this.logger = logger;
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent.getPath());
+        }
+        this.data = new RandomAccessFile(file, "rw");
+        scan(loadIndex());
+    }
+
+    /**
+     * Read the index saved by close().
+     * @return Data file length the index covers, 0 if there is no usable index
+     */
+    private long loadIndex() {
+        if (!indexFile.isFile()) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile), 1 << 16))) {
+            if (in.readInt() != INDEX_MAGIC) {
+                return 0;
+            }
+            long covered = in.readLong();
+            if (covered > data.length()) {
+                return 0;
+            }
+            int namespaces = in.readInt();
+            for (int n = 0; n < namespaces; n++) {
+                String namespace = in.readUTF();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    String key = in.readUTF();
+                    track(namespace, key, new Location(in.readLong(), in.readInt(), in.readInt()));
+                }
+            }
+            return covered;
+        } catch (IOException e) {
+            logger.warning("Ignoring unreadable index " + indexFile.getName() + ", rescanning " + file.getName());
+            index.clear();
+            liveBytes = 0;
+            return 0;
+        }
+    }
+
+    private void saveIndex() throws IOException {
+        AtomicFiles.write(indexFile, true, stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(INDEX_MAGIC);
+            out.writeLong(data.length());
+            out.writeInt(index.size());
+            for (Map.Entry<String, Map<String, Location>> namespace : index.entrySet()) {
+                out.writeUTF(namespace.getKey());
+                out.writeInt(namespace.getValue().size());
+                for (Map.Entry<String, Location> entry : namespace.getValue().entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue().position);
+                    out.writeInt(entry.getValue().length);
+                    out.writeInt(entry.getValue().recordBytes);
+                }
+            }
+            out.flush();
+        });
+    }
+
+    /**
+     * Index the records from a position on. Corrupt records followed by intact ones are skipped,
+     * corrupt bytes running to the end of the file are cut off.
+     */
+    private void scan(long from) throws IOException {
+        long end = data.length();
+        long position = from;
+        long skipped = 0;
+        CRC32 crc = new CRC32();
+        while (position < end) {
+            position = scanRecords(position, end, crc);
+            if (position >= end) {
+                break;
+            }
+            long next = resync(position + 1, end, crc);
+            if (next < 0) {
+                break;
+            }
+            logger.warning("Skipping " + (next - position) + " corrupt bytes at offset " + position + " of " + file.getName());
+            skipped += next - position;
+            position = next;
+        }
+        if (skipped == 0 && position >= end) {
+            return;
+        }
+        // Skipped bytes are dropped by the next compaction, keep what was there in case it matters
+        File copy = new File(file.getParentFile(), file.getName() + ".corrupt-" + System.currentTimeMillis());
+        Files.copy(file.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        logger.warning("Copied " + file.getName() + " to " + copy.getName() + " before repairing it");
+        if (position < end) {
+            logger.warning("Dropping " + (end - position) + " bytes of incomplete records at the end of " + file.getName());
+            data.setLength(position);
+        }
+    }
+
+    /**
+     * @return Position of the first record that is cut short or corrupt, or the end of the file
+     */
+    private long scanRecords(long from, long end, CRC32 crc) throws IOException {
+        long position = from;
+        try (FileInputStream stream = new FileInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16))) {
+            stream.getChannel().position(from);
+            while (position < end) {
+                int recordBytes = readRecord(in, position, end, crc, true);
+                if (recordBytes < 0) {
+                    break;
+                }
+                position += recordBytes;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Look for the next intact record after a corrupt one. Only offsets whose header fits in the
+     * file and whose body starts with a known op are read in full.
+     * @return Position of the record, -1 if there is none before the end
+     */
+    private long resync(long from, long end, CRC32 crc) throws IOException {
+        try (FileInputStream stream = new FileInputStream(file);
+             BufferedInputStream in = new BufferedInputStream(stream, 1 << 16)) {
+            stream.getChannel().position(from);
+            // Body length, CRC and op of the record that would start at candidate
+            byte[] window = new byte[9];
+            int filled = 0;
+            int next;
+            while (filled < window.length && (next = in.read()) >= 0) {
+                window[filled++] = (byte) next;
+            }
+            if (filled < window.length) {
+                return -1;
+            }
+            long candidate = from;
+            while (true) {
+                int bodyLength = ((window[0] & 0xFF) << 24) | ((window[1] & 0xFF) << 16) | ((window[2] & 0xFF) << 8) | (window[3] & 0xFF);
+                byte op = window[8];
+                if (bodyLength > 0 && bodyLength <= end - candidate - 8 && (op == PUT || op == DELETE)) {
+                    data.seek(candidate);
+                    if (readRecord(data, candidate, end, crc, false) > 0) {
+                        return candidate;
+                    }
+                }
+                if ((next = in.read()) < 0) {
+                    return -1;
+                }
+                System.arraycopy(window, 1, window, 0, window.length - 1);
+                window[window.length - 1] = (byte) next;
+                candidate++;
+            }
+        }
+    }
+
+    /**
+     * Read the record at a position and, if apply is set, add it to the index.
+     * @return Size of the record, -1 if it is cut short or corrupt
+     */
+    private int readRecord(DataInput in, long position, long end, CRC32 crc, boolean apply) throws IOException {
+        try {
+            int bodyLength = in.readInt();
+            if (bodyLength <= 0 || bodyLength > end - position - 8) {
+                return -1;
+            }
+            long checksum = in.readInt() & 0xFFFFFFFFL;
+            byte[] body = new byte[bodyLength];
+            in.readFully(body);
+            crc.reset();
+            crc.update(body);
+            if (crc.getValue() != checksum) {
+                return -1;
+            }
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(body));
+            byte op = record.readByte();
+            String namespace = record.readUTF();
+            String key = record.readUTF();
+            int recordBytes = 8 + bodyLength;
+            Location location = null;
+            if (op == PUT) {
+                int length = record.readInt();
+                // The value is the tail of the body
+                if (length != record.available()) {
+                    return -1;
+                }
+                location = new Location(position + recordBytes - length, length, recordBytes);
+            } else if (op != DELETE) {
+                return -1;
+            }
+            if (apply) {
+                track(namespace, key, location);
+            }
+            return recordBytes;
+        } catch (EOFException | UTFDataFormatException e) {
+            return -1;
+        }
+    }
+
+    private void track(String namespace, String key, Location location) {
+        Map<String, Location> keys = index.computeIfAbsent(namespace, n -> new HashMap<>());
+        Location previous = location != null ? keys.put(key, location) : keys.remove(key);
+        if (previous != null) {
+            liveBytes -= previous.recordBytes;
+        }
+        if (location != null) {
+            liveBytes += location.recordBytes;
+        }
+    }
+
+    /**
+     * @return The newest value of a key, or null if there is none
+     */
+    public synchronized byte[] get(String namespace, String key) throws IOException {
+        Map<String, Location> keys = index.get(namespace);
+        Location location = keys != null ? keys.get(key) : null;
+        return location != null ? read(location) : null;
+    }
+
+    /**
+     * Read every value of a namespace in file order.
+     */
+    public synchronized Map<String, byte[]> readAll(String namespace) throws IOException {
+        Map<String, Location> keys = index.get(namespace);
+        if (keys == null || keys.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        List<Map.Entry<String, Location>> entries = new ArrayList<>(keys.entrySet());
+        entries.sort((a, b) -> Long.compare(a.getValue().position, b.getValue().position));
+        Map<String, byte[]> values = new LinkedHashMap<>(entries.size() * 2);
+        for (Map.Entry<String, Location> entry : entries) {
+            values.put(entry.getKey(), read(entry.getValue()));
+        }
+        return values;
+    }
+
+    public synchronized boolean isEmpty(String namespace) {
+        Map<String, Location> keys = index.get(namespace);
+        return keys == null || keys.isEmpty();
+    }
+
+    public void put(String namespace, String key, byte[] value) throws IOException {
+        putAll(namespace, Collections.singletonMap(key, value));
+    }
+
+    /**
+     * Append many values in one write.
+     */
+    public synchronized void putAll(String namespace, Map<String, byte[]> values) throws IOException {
+        if (values.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        long start = data.length();
+        List<String> keys = new ArrayList<>(values.size());
+        List<Location> locations = new ArrayList<>(values.size());
+        for (Map.Entry<String, byte[]> entry : values.entrySet()) {
+            long position = start + buffer.size();
+            int recordBytes = writeRecord(buffer, PUT, namespace, entry.getKey(), entry.getValue());
+            keys.add(entry.getKey());
+            locations.add(new Location(position + recordBytes - entry.getValue().length, entry.getValue().length, recordBytes));
+        }
+        append(buffer.toByteArray(), start);
+        for (int i = 0; i < keys.size(); i++) {
+            track(namespace, keys.get(i), locations.get(i));
+        }
+        compactIfWasteful();
+    }
+
+    public synchronized void delete(String namespace, String key) throws IOException {
+        Map<String, Location> keys = index.get(namespace);
+        if (keys == null || !keys.containsKey(key)) {
+            return;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        writeRecord(buffer, DELETE, namespace, key, null);
+        append(buffer.toByteArray(), data.length());
+        track(namespace, key, null);
+        compactIfWasteful();
+    }
+
+    /**
+     * Copy every file in a legacy folder into a namespace, keyed by file name without the extension,
+     * then rename the folder so it isn't imported again.
+     * @param validKey Keys to import, others are skipped
+     * @return Number of imported files
+     */
+    public int importDirectory(String namespace, File directory, String extension, Predicate<String> validKey) throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(extension));
+        if (files == null || files.length == 0) {
+            return 0;
+        }
+        Map<String, byte[]> values = new LinkedHashMap<>();
+        for (File legacy : files) {
+            String key = legacy.getName().substring(0, legacy.getName().length() - extension.length());
+            if (validKey.test(key)) {
+                values.put(key, Files.readAllBytes(legacy.toPath()));
+            }
+        }
+        putAll(namespace, values);
+        File imported = new File(directory.getParentFile(), directory.getName() + "-imported");
+        if (!directory.renameTo(imported)) {
+            logger.warning("Imported " + directory.getPath() + " but could not rename it, it will be imported again");
+        }
+        return values.size();
+    }
+
+    /**
+     * Force records appended since the last call to disk. Does nothing if there are none.
+     */
+    public synchronized void sync() {
+        if (!unsynced) {
+            return;
+        }
+        try {
+            data.getFD().sync();
+            unsynced = false;
+        } catch (IOException e) {
+            logger.warning("Failed to flush " + file.getName() + " to disk: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Compact if it frees at least half of the file, save the index and close it.
+     */
+    public synchronized void close() {
+        try {
+            compactIfWasteful();
+            if (unsynced) {
+                data.getFD().sync();
+            }
+            saveIndex();
+            data.close();
+        } catch (IOException e) {
+            logger.severe("Failed to close " + file.getName(), e);
+        }
+    }
+
+    private byte[] read(Location location) throws IOException {
+        byte[] value = new byte[location.length];
+        data.seek(location.position);
+        data.readFully(value);
+        return value;
+    }
+
+    private void append(byte[] records, long position) throws IOException {
+        data.seek(position);
+        data.write(records);
+        unsynced = true;
+    }
+
+    private static int writeRecord(ByteArrayOutputStream buffer, byte op, String namespace, String key, byte[] value) throws IOException {
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(value != null ? value.length + 64 : 64);
+        DataOutputStream body = new DataOutputStream(bodyBytes);
+        body.writeByte(op);
+        body.writeUTF(namespace);
+        body.writeUTF(key);
+        if (value != null) {
+            body.writeInt(value.length);
+            body.write(value);
+        }
+        byte[] bytes = bodyBytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(bytes.length);
+        out.writeInt((int) crc.getValue());
+        out.write(bytes);
+        return 8 + bytes.length;
+    }
+
+    private void compactIfWasteful() throws IOException {
+        long size = data.length();
+        if (size < COMPACT_MIN_BYTES || liveBytes * 2 > size) {
+            return;
+        }
+        File compacted = new File(file.getParentFile(), file.getName() + ".compact");
+        Map<String, Map<String, Location>> moved = new HashMap<>();
+        try (RandomAccessFile out = new RandomAccessFile(compacted, "rw")) {
+            out.setLength(0);
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            for (Map.Entry<String, Map<String, Location>> namespace : index.entrySet()) {
+                Map<String, Location> keys = new HashMap<>();
+                for (Map.Entry<String, Location> entry : namespace.getValue().entrySet()) {
+                    byte[] value = read(entry.getValue());
+                    long position = out.length() + buffer.size();
+                    int recordBytes = writeRecord(buffer, PUT, namespace.getKey(), entry.getKey(), value);
+                    keys.put(entry.getKey(), new Location(position + recordBytes - value.length, value.length, recordBytes));
+                    if (buffer.size() >= 1 << 20) {
+                        out.seek(out.length());
+                        out.write(buffer.toByteArray());
+                        buffer.reset();
+                    }
+                }
+                moved.put(namespace.getKey(), keys);
+            }
+            out.seek(out.length());
+            out.write(buffer.toByteArray());
+            out.getFD().sync();
+        }
+        data.close();
+        // Positions change, an older saved index would point into the wrong records
+        Files.deleteIfExists(indexFile.toPath());
+        try {
+            Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            index.clear();
+            index.putAll(moved);
+            // The compacted file was synced before the move
+            unsynced = false;
+        } finally {
+            // Reopens the old file if the move failed, its index is still valid
+            data = new RandomAccessFile(file, "rw");
+        }
+        logger.debug("Compacted " + file.getName() + " from " + size + " to " + data.length() + " bytes");
+    }
+}
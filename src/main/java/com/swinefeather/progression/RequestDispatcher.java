@@ -0,0 +1,186 @@
+package com.swinefeather.progression;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs queued requests on a fixed number of worker loops. The queue is bounded, so producers
+ * wait or get refused when the workers fall behind, and a token bucket spaces out request
+ * starts instead of sleeping between them. Counters are kept so the backlog can be inspected.
+ */
+public class RequestDispatcher {
+    private final String name;
+    private final LogManager logger;
+    private final BlockingQueue<Runnable> queue;
+    private final int capacity;
+    private final int workerCount;
+    private final Set<Thread> workers = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch stopped;
+
+    // Token bucket, refilled at one token per interval up to burst tokens
+    private final long intervalNanos;
+    private final int burst;
+    private double tokens;
+    private long lastRefill;
+
+    private volatile boolean running = true;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong throttledNanos = new AtomicLong();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peakQueued = new AtomicInteger();
+
+    /**
+     * @param name Used in log messages
+     * @param executor Runs the worker loops, one task per worker for the dispatcher's lifetime
+     * @param workerCount Requests running at the same time
+     * @param capacity Requests that may wait in the queue
+     * @param intervalMillis Average time between request starts, 0 for no limit
+     * @param burst Requests that may start back to back after an idle period
+     * @param logger Logger for failed requests
+     */
+    public RequestDispatcher(String name, Executor executor, int workerCount, int capacity, long intervalMillis, int burst, LogManager logger) {
+        this.name = name;
+        this.logger = logger;
+        this.capacity = Math.max(1, capacity);
+        this.queue = new ArrayBlockingQueue<>(this.capacity);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, intervalMillis));
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefill = System.nanoTime();
+
+        this.workerCount = Math.max(1, workerCount);
+        this.stopped = new CountDownLatch(this.workerCount);
+        for (int i = 0; i < this.workerCount; i++) {
+            executor.execute(this::work);
+        }
+    }
+
+    /**
+     * Queue a request.
+     * @param task The request to run on a worker
+     * @param timeoutMillis How long to wait for room in a full queue, 0 to give up right away
+     * @return false if the dispatcher is shut down or the queue stayed full
+     */
+    public boolean submit(Runnable task, long timeoutMillis) {
+        if (!running) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        boolean queued;
+        try {
+            queued = timeoutMillis > 0 ? queue.offer(task, timeoutMillis, TimeUnit.MILLISECONDS) : queue.offer(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        submitted.incrementAndGet();
+        peakQueued.accumulateAndGet(queue.size(), Math::max);
+        return true;
+    }
+
+    private void work() {
+        workers.add(Thread.currentThread());
+        try {
+            while (running || !queue.isEmpty()) {
+                Runnable task;
+                try {
+                    task = queue.poll(1, TimeUnit.SECONDS);
+                    if (task == null) {
+                        continue;
+                    }
+                    acquirePermit();
+                } catch (InterruptedException e) {
+                    break;
+                }
+                active.incrementAndGet();
+                try {
+                    task.run();
+                    completed.incrementAndGet();
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                    logger.severe(name + " request failed", e);
+                } finally {
+                    active.decrementAndGet();
+                }
+            }
+        } finally {
+            workers.remove(Thread.currentThread());
+            stopped.countDown();
+        }
+    }
+
+    private void acquirePermit() throws InterruptedException {
+        if (intervalNanos == 0) {
+            return;
+        }
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                tokens = Math.min(burst, tokens + (double) (now - lastRefill) / intervalNanos);
+                lastRefill = now;
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                }
+                waitNanos = (long) ((1 - tokens) * intervalNanos);
+            }
+            throttledNanos.addAndGet(waitNanos);
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Stop accepting requests and give the workers some time to finish the queue.
+     * Whatever is still queued afterwards is dropped.
+     */
+    public void shutdown(long timeoutMillis) {
+        running = false;
+        try {
+            stopped.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        int dropped = queue.size();
+        queue.clear();
+        if (dropped > 0) {
+            logger.warning(name + " shut down with " + dropped + " queued requests not sent");
+        }
+    }
+
+    public int getQueued() { return queue.size(); }
+    public int getCapacity() { return capacity; }
+    public int getPeakQueued() { return peakQueued.get(); }
+    public int getActive() { return active.get(); }
+    public long getSubmitted() { return submitted.get(); }
+    public long getCompleted() { return completed.get(); }
+    public long getFailed() { return failed.get(); }
+    public long getRejected() { return rejected.get(); }
+    public long getThrottledMillis() { return TimeUnit.NANOSECONDS.toMillis(throttledNanos.get()); }
+
+    /**
+     * @return One line with the queue depth and counters
+     */
+    public String describe() {
+        return "queued " + getQueued() + "/" + capacity + " (peak " + getPeakQueued() + "), active " + getActive() + "/" + workerCount
+            + ", submitted " + getSubmitted() + ", completed " + getCompleted() + ", failed " + getFailed()
+            + ", rejected " + getRejected() + ", throttled " + getThrottledMillis() + "ms";
+    }
+}
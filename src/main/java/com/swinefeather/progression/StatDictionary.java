@@ -0,0 +1,114 @@
+package com.swinefeather.progression;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Global dictionary giving every "category.stat" pair a dense int ID, so player stats can be held
+ * as StatVectors instead of one String-keyed map per player. Seeded from possible_stats.json by
+ * StatSchema and extended whenever a stat file contains a key the schema doesn't list.
+ * Keys are stored without the "minecraft:" namespace. IDs are never reused or removed.
+ */
+public final class StatDictionary {
+    private static final Map<String, Integer> CATEGORY_IDS = new ConcurrentHashMap<>();
+    private static final Map<String, Map<String, Integer>> STAT_IDS = new ConcurrentHashMap<>();
+
+    // Reverse lookups, grown under the class lock and published through the volatile fields
+    private static volatile String[] categories = new String[16];
+    private static volatile String[] statNames = new String[1024];
+    private static volatile int[] statCategories = new int[1024];
+    private static volatile int categoryCount = 0;
+    private static volatile int statCount = 0;
+
+    private StatDictionary() {
+    }
+
+    /**
+     * Get the ID of a stat, assigning the next free one if it hasn't been seen before.
+     * @param category Category without namespace, e.g. "mined"
+     * @param stat Stat without namespace, e.g. "stone"
+     * @return Dense stat ID
+     */
+    public static int idOf(String category, String stat) {
+        Map<String, Integer> categoryStats = STAT_IDS.get(category);
+        if (categoryStats != null) {
+            Integer id = categoryStats.get(stat);
+            if (id != null) {
+                return id;
+            }
+        }
+        return register(category, stat);
+    }
+
+    /**
+     * Look up a stat without registering it.
+     * @return The stat ID, or -1 if the stat was never seen
+     */
+    public static int lookup(String category, String stat) {
+        Map<String, Integer> categoryStats = STAT_IDS.get(category);
+        if (categoryStats == null) {
+            return -1;
+        }
+        Integer id = categoryStats.get(stat);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * @return The category ID, or -1 if no stat in that category was ever seen
+     */
+    public static int categoryId(String category) {
+        Integer id = CATEGORY_IDS.get(category);
+        return id != null ? id : -1;
+    }
+
+    public static String categoryName(int categoryId) {
+        return categories[categoryId];
+    }
+
+    public static String statName(int statId) {
+        return statNames[statId];
+    }
+
+    public static int categoryOf(int statId) {
+        return statCategories[statId];
+    }
+
+    public static int size() {
+        return statCount;
+    }
+
+    private static synchronized int register(String category, String stat) {
+        Map<String, Integer> categoryStats = STAT_IDS.get(category);
+        if (categoryStats != null) {
+            Integer existing = categoryStats.get(stat);
+            if (existing != null) {
+                return existing;
+            }
+        }
+
+        Integer categoryId = CATEGORY_IDS.get(category);
+        if (categoryId == null) {
+            categoryId = categoryCount;
+            if (categoryId == categories.length) {
+                categories = Arrays.copyOf(categories, categoryId * 2);
+            }
+            categories[categoryId] = category;
+            categoryCount = categoryId + 1;
+            CATEGORY_IDS.put(category, categoryId);
+            categoryStats = new ConcurrentHashMap<>();
+            STAT_IDS.put(category, categoryStats);
+        }
+
+        int id = statCount;
+        if (id == statNames.length) {
+            statNames = Arrays.copyOf(statNames, id * 2);
+            statCategories = Arrays.copyOf(statCategories, id * 2);
+        }
+        statNames[id] = stat;
+        statCategories[id] = categoryId;
+        statCount = id + 1;
+        categoryStats.put(stat, id);
+        return id;
+    }
+}
@@ -0,0 +1,281 @@
+package com.swinefeather.progression;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Streams every player with their stats and placeholders into a JsonWriter. Each table is read
+ * once, in player order, a page at a time (keyset paging on its primary key), and the readers
+ * are merge-joined on the player UUID. Memory use depends on the page size, not on the number
+ * of players, and the number of queries on the row count divided by the page size.
+ * UUIDs are stored lowercase, so MySQL's order of player_uuid matches String order here, and the
+ * byte order of the v2 BINARY(16) ids matches both.
+ */
+public class StatExporter {
+    private final Connection conn;
+    private final MySqlSchemaV2 schemaV2;
+    private final List<String> categories;
+    private final int pageRows;
+    private final BiConsumer<Long, Long> progress;
+
+    /**
+     * @param schemaV2 The v2 tables to read stats from, null for the v1 stats_&lt;category&gt; tables
+     * @param categories Stat categories, in output order for v1
+     * @param pageRows Rows fetched per query
+     * @param progress Called with players written and total players every tenth of the way
+     */
+    public StatExporter(Connection conn, MySqlSchemaV2 schemaV2, List<String> categories, int pageRows, BiConsumer<Long, Long> progress) {
+        this.conn = conn;
+        this.schemaV2 = schemaV2;
+        this.categories = categories;
+        this.pageRows = Math.max(1, pageRows);
+        this.progress = progress;
+    }
+
+    /**
+     * @return Number of players written
+     */
+    public long export(JsonWriter json) throws SQLException, IOException {
+        long total;
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM players");
+             ResultSet rs = stmt.executeQuery()) {
+            total = rs.next() ? rs.getLong(1) : 0L;
+        }
+        long step = Math.max(1L, total / 10);
+
+        TableCursor players = new TableCursor("players",
+            new String[] { "player_uuid" }, new String[] { "player_name", "first_joined", "last_updated" });
+        List<TableCursor> statTables = new ArrayList<>();
+        Map<Integer, String[]> statNames = null;
+        if (schemaV2 != null) {
+            schemaV2.loadDictionary(conn);
+            statNames = schemaV2.describeStats();
+            statTables.add(new TableCursor(MySqlSchemaV2.STATS_TABLE,
+                new String[] { "player_id", "category_id", "stat_id" }, new String[] { "stat_value" }));
+        } else {
+            for (String category : categories) {
+                statTables.add(new TableCursor("stats_" + category,
+                    new String[] { "player_uuid", "stat_key" }, new String[] { "stat_value" }));
+            }
+        }
+        TableCursor placeholders = new TableCursor("stats_placeholders",
+            new String[] { "player_uuid", "placeholder_key" }, new String[] { "value" });
+
+        json.beginObject();
+        json.name("timestamp").value(LocalDateTime.now().toString());
+        json.name("players").beginArray();
+        long written = 0;
+        Object[] player;
+        while ((player = players.next()) != null) {
+            String uuid = playerKey(player[0]);
+            json.beginObject();
+            json.name("uuid").value(uuid);
+            json.name("name").value((String) player[1]);
+            json.name("first_joined").value((String) player[2]);
+            json.name("last_updated").value((String) player[3]);
+
+            for (int i = 0; i < statTables.size(); i++) {
+                TableCursor table = statTables.get(i);
+                if (schemaV2 != null) {
+                    writeStatsV2(json, table, uuid, statNames);
+                } else {
+                    writeStats(json, table, uuid, "stats_" + categories.get(i));
+                }
+            }
+
+            if (seek(placeholders, uuid)) {
+                json.name("stats_placeholders").beginArray();
+                while (matches(placeholders, uuid)) {
+                    Object[] row = placeholders.next();
+                    json.beginObject().name("key").value((String) row[1]).name("value").value((String) row[2]).endObject();
+                }
+                json.endArray();
+            }
+            json.endObject();
+
+            written++;
+            if (written % step == 0 || written == total) {
+                progress.accept(written, total);
+            }
+        }
+        json.endArray();
+        json.endObject();
+        return written;
+    }
+
+    // A category object holds the positive values only and is left out when there are none
+    private void writeStats(JsonWriter json, TableCursor table, String uuid, String name) throws SQLException, IOException {
+        if (!seek(table, uuid)) {
+            return;
+        }
+        boolean open = false;
+        while (matches(table, uuid)) {
+            Object[] row = table.next();
+            // stat_value is nullable in v1, a NULL counts as 0 like any other non-positive value
+            Long value = (Long) row[2];
+            if (value != null && value > 0) {
+                if (!open) {
+                    json.name(name).beginObject();
+                    open = true;
+                }
+                json.name((String) row[1]).value(value);
+            }
+        }
+        if (open) {
+            json.endObject();
+        }
+    }
+
+    // v2 rows come ordered by category, so each category's stats are contiguous
+    private void writeStatsV2(JsonWriter json, TableCursor table, String uuid, Map<Integer, String[]> statNames) throws SQLException, IOException {
+        if (!seek(table, uuid)) {
+            return;
+        }
+        String openCategory = null;
+        while (matches(table, uuid)) {
+            Object[] row = table.next();
+            String[] stat = statNames.get(((Long) row[2]).intValue());
+            Long value = (Long) row[3];
+            if (stat == null || stat[0] == null || value == null || value <= 0) {
+                continue;
+            }
+            if (!stat[0].equals(openCategory)) {
+                if (openCategory != null) {
+                    json.endObject();
+                }
+                json.name("stats_" + stat[0]).beginObject();
+                openCategory = stat[0];
+            }
+            json.name(stat[1]).value(value);
+        }
+        if (openCategory != null) {
+            json.endObject();
+        }
+    }
+
+    /**
+     * Skip rows of players that come before this one (rows without a players row).
+     * @return true if the cursor is now at one of this player's rows
+     */
+    private static boolean seek(TableCursor table, String uuid) throws SQLException {
+        Object[] row;
+        while ((row = table.peek()) != null && playerKey(row[0]).compareTo(uuid) < 0) {
+            table.next();
+        }
+        return matches(table, uuid);
+    }
+
+    private static boolean matches(TableCursor table, String uuid) throws SQLException {
+        Object[] row = table.peek();
+        return row != null && playerKey(row[0]).equals(uuid);
+    }
+
+    private static String playerKey(Object value) {
+        return value instanceof byte[] ? MySqlSchemaV2.fromBytes((byte[]) value).toString() : (String) value;
+    }
+
+    /**
+     * Reads one table in primary key order, a page at a time, continuing after the last key read.
+     * Row values are the key columns then the other columns: Long for integer columns, byte[] for
+     * binary columns and strings for the rest. SQL NULL is null.
+     */
+    private class TableCursor {
+        private final String sql;
+        private final String firstPageSql;
+        private final int keyCount;
+        private final Deque<Object[]> page = new ArrayDeque<>();
+        private Object[] last;
+        private boolean exhausted;
+
+        private TableCursor(String table, String[] keys, String[] values) {
+            this.keyCount = keys.length;
+            String select = "SELECT " + String.join(", ", keys) + ", " + String.join(", ", values) + " FROM " + table;
+            String order = " ORDER BY " + String.join(", ", keys) + " LIMIT ?";
+            // (k1 > ?) OR (k1 = ? AND k2 > ?) OR ...
+            StringBuilder after = new StringBuilder();
+            for (int i = 0; i < keys.length; i++) {
+                after.append(i > 0 ? " OR (" : "(");
+                for (int j = 0; j < i; j++) {
+                    after.append(keys[j]).append(" = ? AND ");
+                }
+                after.append(keys[i]).append(" > ?)");
+            }
+            this.firstPageSql = select + order;
+            this.sql = select + " WHERE " + after + order;
+        }
+
+        Object[] peek() throws SQLException {
+            if (page.isEmpty() && !exhausted) {
+                fill();
+            }
+            return page.peekFirst();
+        }
+
+        Object[] next() throws SQLException {
+            Object[] row = peek();
+            if (row != null) {
+                page.removeFirst();
+            }
+            return row;
+        }
+
+        private void fill() throws SQLException {
+            try (PreparedStatement stmt = conn.prepareStatement(last == null ? firstPageSql : sql)) {
+                int index = 1;
+                if (last != null) {
+                    for (int i = 0; i < keyCount; i++) {
+                        for (int j = 0; j <= i; j++) {
+                            stmt.setObject(index++, last[j]);
+                        }
+                    }
+                }
+                stmt.setInt(index, pageRows);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    ResultSetMetaData meta = rs.getMetaData();
+                    int columns = meta.getColumnCount();
+                    int read = 0;
+                    while (rs.next()) {
+                        Object[] row = new Object[columns];
+                        for (int i = 0; i < columns; i++) {
+                            row[i] = read(rs, i + 1, meta.getColumnType(i + 1));
+                        }
+                        page.addLast(row);
+                        last = row;
+                        read++;
+                    }
+                    exhausted = read < pageRows;
+                }
+            }
+        }
+
+        private Object read(ResultSet rs, int column, int type) throws SQLException {
+            switch (type) {
+                case Types.BINARY:
+                case Types.VARBINARY:
+                    return rs.getBytes(column);
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                    long value = rs.getLong(column);
+                    return rs.wasNull() ? null : value;
+                default:
+                    return rs.getString(column);
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class StatResolver {
     private final LogManager logger;
@@ -236,96 +237,67 @@ public class StatResolver {
         STAT_ALIASES.put("advancements.biomes", new String[]{"advancements.biomes", "minecraft:advancements.biomes"});
     }
     
+    // Stat paths seen by the ad hoc resolveStatValue calls, compiled on first use
+    private final Map<String, ResolvedStat> compiledPaths = new ConcurrentHashMap<>();
+    
     public StatResolver(LogManager logger) {
         this.logger = logger;
     }
     
-    public Long resolveStatValue(Map<String, Object> stats, String statPath) {
+    /**
+     * Split a stat path and its aliases once so it can be resolved repeatedly without any string work.
+     * Award and achievement definitions compile their paths when the config is loaded.
+     * @param statPath Path in category.stat or category.subcategory.stat form
+     * @return The compiled path, never null. Invalid paths resolve to null.
+     */
+    public ResolvedStat compile(String statPath) {
         String[] pathParts = statPath.split("\\.");
         if (pathParts.length < 2 || pathParts.length > 3) {
             logger.warning("Invalid stat path format: " + statPath + " (expected format: category.stat or category.subcategory.stat)");
-            return null;
-        }
-        
-        String category = pathParts[0];
-        String statName;
-        
-        if (pathParts.length == 2) {
-            statName = pathParts[1];
-        } else {
-            // Handle 3-part paths like custom.damage_taken.fire
-            statName = pathParts[1] + "." + pathParts[2];
-        }
-        
-        logger.statPath("Looking for stat: " + category + "." + statName);
-        logger.availableStats("Available categories: " + stats.keySet());
-        
-        // Try the original path first
-        Long value = getStatValueFromPath(stats, category, statName);
-        if (value != null) {
-            logger.statDetail("Found stat value: " + value + " for " + statPath);
-            return value;
+            return new ResolvedStat(statPath, null, false);
         }
         
-        // Special handling for "total" stats - aggregate all values in the category
-        if (statName.equals("total")) {
-            value = getTotalForCategory(stats, category);
-            if (value != null) {
-                logger.statDetail("Calculated total for " + category + ": " + value);
-                return value;
-            }
-        }
+        List<StatKey> candidates = new ArrayList<>();
+        StatKey primary = StatKey.fromParts(pathParts);
+        candidates.add(primary);
         
-        // Try alternative paths from aliases
+        // Alternative paths from aliases
         String[] aliases = STAT_ALIASES.get(statPath);
         if (aliases != null) {
             for (String alias : aliases) {
                 String[] aliasParts = alias.split("\\.");
                 if (aliasParts.length >= 2) {
-                    String aliasCategory = aliasParts[0];
-                    String aliasStatName;
-                    
-                    if (aliasParts.length == 2) {
-                        aliasStatName = aliasParts[1];
-                    } else {
-                        // Handle 3-part aliases
-                        aliasStatName = aliasParts[1] + "." + aliasParts[2];
-                    }
-                    
-                    logger.statPath("Trying alias: " + alias);
-                    value = getStatValueFromPath(stats, aliasCategory, aliasStatName);
-                    if (value != null) {
-                        logger.statDetail("Found stat value: " + value + " for alias " + alias);
-                        return value;
-                    }
+                    candidates.add(StatKey.fromParts(aliasParts));
                 }
             }
         }
         
-        // Try with minecraft: prefix
-        String minecraftPath = "minecraft:" + statPath;
-        String[] minecraftParts = minecraftPath.split("\\.");
-        if (minecraftParts.length >= 2) {
-            String minecraftCategory = minecraftParts[0];
-            String minecraftStatName;
-            
-            if (minecraftParts.length == 2) {
-                minecraftStatName = minecraftParts[1];
-            } else {
-                // Handle 3-part minecraft paths
-                minecraftStatName = minecraftParts[1] + "." + minecraftParts[2];
-            }
-            
-            logger.statPath("Trying minecraft prefix: " + minecraftPath);
-            value = getStatValueFromPath(stats, minecraftCategory, minecraftStatName);
-            if (value != null) {
-                logger.statDetail("Found stat value: " + value + " for minecraft path " + minecraftPath);
-                return value;
-            }
-        }
+        // With minecraft: prefix
+        candidates.add(StatKey.fromParts(("minecraft:" + statPath).split("\\.")));
         
-        logger.statDetail("Stat not found: " + statPath + " (tried all aliases)");
-        return null;
+        logger.statPath("Compiled stat path " + statPath + " with " + candidates.size() + " lookups");
+        return new ResolvedStat(statPath, candidates.toArray(new StatKey[0]), primary.statName.equals("total"));
+    }
+    
+    /**
+     * A placeholder for stats that aren't vanilla stat paths, such as the town stats of town
+     * achievements. It always resolves to null and isn't logged as invalid.
+     */
+    public ResolvedStat unresolved(String statPath) {
+        return new ResolvedStat(statPath, null, false);
+    }
+    
+    public Long resolveStatValue(Map<String, Object> stats, String statPath) {
+        return compiledPaths.computeIfAbsent(statPath, this::compile).resolve(stats);
+    }
+    
+    /**
+     * Resolve a stat path against a StatVector, with the same fallbacks as the map version:
+     * the path itself, "total" as the category sum, then the configured aliases.
+     * Namespaces are ignored since the dictionary stores stripped keys.
+     */
+    public Long resolveStatValue(StatVector stats, String statPath) {
+        return compiledPaths.computeIfAbsent(statPath, this::compile).resolve(stats);
     }
     
     private Long getStatValueFromPath(Map<String, Object> stats, String category, String statName) {
@@ -337,7 +309,9 @@ public class StatResolver {
         if (categoryData instanceof Map) {
             @SuppressWarnings("unchecked")
             Map<String, Object> categoryMap = (Map<String, Object>) categoryData;
-            logger.availableStats("Available stats in category " + category + ": " + categoryMap.keySet());
+            if (logger.isAvailableStatsEnabled()) {
+                logger.availableStats("Available stats in category " + category + ": " + categoryMap.keySet());
+            }
             
             Object value = categoryMap.get(statName);
             if (value == null) {
@@ -381,7 +355,9 @@ public class StatResolver {
                 }
             }
             
-            logger.statDetail("Aggregated " + count + " stats in category " + category + " for total: " + total);
+            if (logger.isStatDetailEnabled()) {
+                logger.statDetail("Aggregated " + count + " stats in category " + category + " for total: " + total);
+            }
             return total > 0 ? total : null;
         }
         
@@ -407,4 +383,113 @@ public class StatResolver {
         
         return availableStats;
     }
+    
+    // One category/stat pair to try, with the namespace-stripped form used by StatDictionary
+    private static final class StatKey {
+        private final String category;
+        private final String statName;
+        private final String dictionaryCategory;
+        private final String dictionaryStat;
+        private volatile int statId = -1;
+        
+        private StatKey(String category, String statName) {
+            this.category = category;
+            this.statName = statName;
+            this.dictionaryCategory = StatSnapshot.internKey(category);
+            this.dictionaryStat = StatSnapshot.internKey(statName);
+        }
+        
+        static StatKey fromParts(String[] parts) {
+            // 3-part paths like custom.damage_taken.fire keep the last two parts as the stat name
+            return new StatKey(parts[0], parts.length == 2 ? parts[1] : parts[1] + "." + parts[2]);
+        }
+        
+        int statId() {
+            int id = statId;
+            if (id < 0) {
+                // Not cached until the stat exists, it may be registered by a later file
+                id = StatDictionary.lookup(dictionaryCategory, dictionaryStat);
+                statId = id;
+            }
+            return id;
+        }
+    }
+    
+    /**
+     * A stat path compiled by {@link #compile(String)}: the path itself, its aliases and the
+     * minecraft: prefixed variant in lookup order, plus whether "total" means the category sum.
+     */
+    public final class ResolvedStat {
+        private final String statPath;
+        private final StatKey[] candidates;
+        private final boolean total;
+        private volatile int categoryId = -1;
+        
+        private ResolvedStat(String statPath, StatKey[] candidates, boolean total) {
+            this.statPath = statPath;
+            this.candidates = candidates;
+            this.total = total;
+        }
+        
+        public String getStatPath() { return statPath; }
+        public boolean isValid() { return candidates != null; }
+        public boolean isTotal() { return total; }
+        public String getCategory() { return candidates != null ? candidates[0].category : null; }
+        public String getStatName() { return candidates != null ? candidates[0].statName : null; }
+        
+        /**
+         * @return The value from a nested category -> (stat -> value) map, or null if not found
+         */
+        public Long resolve(Map<String, Object> stats) {
+            if (candidates == null) {
+                return null;
+            }
+            
+            Long value = getStatValueFromPath(stats, candidates[0].category, candidates[0].statName);
+            if (value == null && total) {
+                value = getTotalForCategory(stats, candidates[0].category);
+            }
+            for (int i = 1; value == null && i < candidates.length; i++) {
+                value = getStatValueFromPath(stats, candidates[i].category, candidates[i].statName);
+            }
+            
+            if (logger.isStatDetailEnabled()) {
+                logger.statDetail(value != null ? "Found stat value: " + value + " for " + statPath : "Stat not found: " + statPath + " (tried all aliases)");
+            }
+            return value;
+        }
+        
+        /**
+         * @return The value from a StatVector, or null if not found
+         */
+        public Long resolve(StatVector stats) {
+            if (candidates == null) {
+                return null;
+            }
+            
+            int statId = candidates[0].statId();
+            if (stats.contains(statId)) {
+                return stats.get(statId);
+            }
+            if (total) {
+                int id = categoryId;
+                if (id < 0) {
+                    id = StatDictionary.categoryId(candidates[0].dictionaryCategory);
+                    categoryId = id;
+                }
+                long sum = stats.categoryTotal(id);
+                if (sum > 0) {
+                    return sum;
+                }
+            }
+            // Namespaced candidates strip to an ID already tried, skipping them is just a cheap miss
+            for (int i = 1; i < candidates.length; i++) {
+                int aliasId = candidates[i].statId();
+                if (stats.contains(aliasId)) {
+                    return stats.get(aliasId);
+                }
+            }
+            return null;
+        }
+    }
 } 
\ No newline at end of file
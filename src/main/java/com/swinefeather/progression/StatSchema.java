@@ -0,0 +1,205 @@
+package com.swinefeather.progression;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Every stat key listed in possible_stats.json, loaded once and reloaded only when the
+ * file's last-modified time changes. Keys are kept as one sorted array of flat
+ * "category_stat" names, the same form StatSnapshot.toFlatStats() produces.
+ * Missing stats are reported as zero when read instead of being copied into each player's map.
+ * Loading also registers every listed counter with StatDictionary.
+ */
+public class StatSchema {
+    private static final Long ZERO = 0L;
+
+    private final File schemaFile;
+    private final File legacyFile;
+    private final Logger log;
+    private volatile String[] flatKeys = new String[0];
+    private volatile File loadedFrom;
+    private volatile long loadedModified = -1L;
+
+    /**
+     * @param schemaFile possible_stats.json in the plugin folder, as written by /sqlstats generate_stats
+     * @param log Logger for load failures
+     */
+    public StatSchema(File schemaFile, Logger log) {
+        this.schemaFile = schemaFile;
+        // PossibleStatsGenerator writes to the working directory
+        this.legacyFile = new File("possible_stats.json");
+        this.log = log;
+    }
+
+    /**
+     * Wrap a player's flat stats so every schema key reads as 0 when the player has no value for it.
+     * @param flatStats The player's flat stats, not copied
+     * @return A read-only zero-filled view
+     */
+    public Map<String, Object> zeroFilled(Map<String, Object> flatStats) {
+        String[] keys = currentKeys();
+        if (keys.length == 0) {
+            return flatStats;
+        }
+        return new ZeroFilledStats(flatStats, keys);
+    }
+
+    public int size() {
+        return currentKeys().length;
+    }
+
+    private String[] currentKeys() {
+        File file = schemaFile.exists() ? schemaFile : legacyFile;
+        long modified = file.lastModified();
+        if (!file.equals(loadedFrom) || modified != loadedModified) {
+            reload(file, modified);
+        }
+        return flatKeys;
+    }
+
+    private synchronized void reload(File file, long modified) {
+        if (file.equals(loadedFrom) && modified == loadedModified) {
+            return;
+        }
+        String[] keys = new String[0];
+        if (modified != 0L) {
+            try {
+                keys = readFlatKeys(file);
+                log.info("Loaded " + keys.length + " possible stats from " + file.getPath());
+            } catch (IOException | IllegalStateException e) {
+                log.warning("Could not load possible_stats.json: " + e.getMessage());
+            }
+        }
+        flatKeys = keys;
+        loadedModified = modified;
+        loadedFrom = file;
+    }
+
+    private static String[] readFlatKeys(File file) throws IOException {
+        List<String> keys = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String category = StatSnapshot.internKey(reader.nextName());
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginObject();
+                boolean counters = !"advancements".equals(category);
+                while (reader.hasNext()) {
+                    String stat = StatSnapshot.internKey(reader.nextName());
+                    keys.add((category + "_" + stat).intern());
+                    if (counters) {
+                        // Listed stats get dictionary IDs in schema order
+                        StatDictionary.idOf(category, stat);
+                    }
+                    reader.skipValue();
+                }
+                reader.endObject();
+            }
+            reader.endObject();
+        }
+        return keys.stream().distinct().sorted().toArray(String[]::new);
+    }
+
+    // Player stats backed view, schema keys the player lacks are appended with value 0
+    private static final class ZeroFilledStats extends AbstractMap<String, Object> {
+        private final Map<String, Object> stats;
+        private final String[] schemaKeys;
+        private Set<Map.Entry<String, Object>> entrySet;
+
+        ZeroFilledStats(Map<String, Object> stats, String[] schemaKeys) {
+            this.stats = stats;
+            this.schemaKeys = schemaKeys;
+        }
+
+        private boolean inSchema(Object key) {
+            return key instanceof String && Arrays.binarySearch(schemaKeys, key) >= 0;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Object value = stats.get(key);
+            if (value == null && inSchema(key)) {
+                return ZERO;
+            }
+            return value;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return stats.containsKey(key) || inSchema(key);
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            if (entrySet == null) {
+                entrySet = new AbstractSet<Map.Entry<String, Object>>() {
+                    @Override
+                    public Iterator<Map.Entry<String, Object>> iterator() {
+                        return new ZeroFilledIterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        int missing = 0;
+                        for (String key : schemaKeys) {
+                            if (!stats.containsKey(key)) {
+                                missing++;
+                            }
+                        }
+                        return stats.size() + missing;
+                    }
+                };
+            }
+            return entrySet;
+        }
+
+        private final class ZeroFilledIterator implements Iterator<Map.Entry<String, Object>> {
+            private final Iterator<Map.Entry<String, Object>> statIterator = stats.entrySet().iterator();
+            private int schemaIndex = 0;
+
+            @Override
+            public boolean hasNext() {
+                if (statIterator.hasNext()) {
+                    return true;
+                }
+                while (schemaIndex < schemaKeys.length && stats.containsKey(schemaKeys[schemaIndex])) {
+                    schemaIndex++;
+                }
+                return schemaIndex < schemaKeys.length;
+            }
+
+            @Override
+            public Map.Entry<String, Object> next() {
+                if (statIterator.hasNext()) {
+                    Map.Entry<String, Object> entry = statIterator.next();
+                    return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue());
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return new SimpleImmutableEntry<>(schemaKeys[schemaIndex++], ZERO);
+            }
+        }
+    }
+}
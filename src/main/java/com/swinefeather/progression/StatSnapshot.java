@@ -0,0 +1,331 @@
+package com.swinefeather.progression;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import org.bukkit.Server;
+import org.bukkit.World;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Immutable view of one player's vanilla statistics, parsed once from every world's
+ * stats/&lt;uuid&gt;.json and shared by MySQL, Supabase, awards, achievements and XP.
+ * Category and stat keys are stored without the "minecraft:" namespace.
+ */
+public final class StatSnapshot {
+    private static final String NAMESPACE = "minecraft:";
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_CACHED_KEYS = 65536;
+    // Raw JSON key -> stripped, interned key
+    private static final Map<String, String> KEY_CACHE = new ConcurrentHashMap<>();
+
+    private final UUID playerUUID;
+    private final String playerName;
+    private final List<WorldStats> worlds;
+    private final Map<String, Map<String, Long>> stats;
+    private final Map<String, Boolean> advancements;
+    private final long createdAt;
+    private volatile StatVector statVector;
+
+    private StatSnapshot(UUID playerUUID, String playerName, List<WorldStats> worlds) {
+        this.playerUUID = playerUUID;
+        this.playerName = playerName;
+        this.worlds = Collections.unmodifiableList(worlds);
+        this.createdAt = System.currentTimeMillis();
+
+        if (worlds.size() == 1) {
+            this.stats = worlds.get(0).getStats();
+            this.advancements = worlds.get(0).getAdvancements();
+        } else {
+            // Sum counters across worlds, same as the award loader always did
+            Map<String, Map<String, Long>> merged = new HashMap<>();
+            Map<String, Boolean> mergedAdvancements = new HashMap<>();
+            for (WorldStats world : worlds) {
+                for (Map.Entry<String, Map<String, Long>> category : world.getStats().entrySet()) {
+                    Map<String, Long> target = merged.computeIfAbsent(category.getKey(), k -> new HashMap<>());
+                    for (Map.Entry<String, Long> stat : category.getValue().entrySet()) {
+                        target.merge(stat.getKey(), stat.getValue(), Long::sum);
+                    }
+                }
+                for (Map.Entry<String, Boolean> advancement : world.getAdvancements().entrySet()) {
+                    mergedAdvancements.merge(advancement.getKey(), advancement.getValue(), Boolean::logicalOr);
+                }
+            }
+            merged.replaceAll((category, values) -> Collections.unmodifiableMap(values));
+            this.stats = Collections.unmodifiableMap(merged);
+            this.advancements = Collections.unmodifiableMap(mergedAdvancements);
+        }
+    }
+
+    /**
+     * Parse the given stat files (one per world) into a single snapshot.
+     * Files that fail to parse are logged and skipped.
+     * @param playerUUID The player's UUID
+     * @param playerName The player's name, may be null
+     * @param statFiles The player's stat files
+     * @param log Logger for parse failures
+     * @return StatSnapshot, empty if no file could be read
+     */
+    public static StatSnapshot load(UUID playerUUID, String playerName, List<File> statFiles, Logger log) {
+        List<WorldStats> worlds = new ArrayList<>(statFiles.size());
+        for (File statFile : statFiles) {
+            try {
+                worlds.add(parseFile(statFile));
+            } catch (IOException e) {
+                log.warning("Failed to collect stats from " + statFile.getName() + ": " + e.getMessage());
+            }
+        }
+        return new StatSnapshot(playerUUID, playerName, worlds);
+    }
+
+    /**
+     * Parse every world's stat file for a single player.
+     */
+    public static StatSnapshot load(Server server, UUID playerUUID, String playerName, Logger log) {
+        return load(playerUUID, playerName, findStatFiles(server, playerUUID), log);
+    }
+
+    public static List<File> findStatFiles(Server server, UUID playerUUID) {
+        List<File> statFiles = new ArrayList<>();
+        for (World world : server.getWorlds()) {
+            File statFile = new File(world.getWorldFolder(), "stats/" + playerUUID + ".json");
+            if (statFile.exists()) {
+                statFiles.add(statFile);
+            }
+        }
+        return statFiles;
+    }
+
+    /**
+     * Lists every world's stats folder once and groups the stat files by player UUID.
+     */
+    public static Map<UUID, List<File>> scanStatFiles(Server server, Logger log) {
+        Map<UUID, List<File>> allPlayers = new LinkedHashMap<>();
+        for (World world : server.getWorlds()) {
+            File statsFolder = new File(world.getWorldFolder(), "stats");
+            if (!statsFolder.exists() || !statsFolder.isDirectory()) {
+                log.warning("Stats folder not found in world: " + world.getName());
+                continue;
+            }
+
+            File[] statFiles = statsFolder.listFiles((dir, name) -> name.endsWith(".json"));
+            if (statFiles == null) {
+                log.warning("No stat files found in: " + statsFolder.getPath());
+                continue;
+            }
+
+            for (File statFile : statFiles) {
+                try {
+                    UUID playerUUID = UUID.fromString(statFile.getName().replace(".json", ""));
+                    allPlayers.computeIfAbsent(playerUUID, k -> new ArrayList<>()).add(statFile);
+                } catch (Exception e) {
+                    log.warning("Failed to process stat file: " + statFile.getName() + " - " + e.getMessage());
+                }
+            }
+        }
+        return allPlayers;
+    }
+
+    /**
+     * Stream a vanilla stat file straight into the per-category maps without building a JSON tree.
+     * @param statFile The stat file
+     * @return Parsed world stats
+     * @throws IOException If the file cannot be read or is not valid JSON
+     */
+    public static WorldStats parseFile(File statFile) throws IOException {
+        Map<String, Map<String, Long>> stats = new HashMap<>();
+        Map<String, Boolean> advancements = new HashMap<>();
+        try (JsonReader reader = new JsonReader(new BufferedReader(
+                new InputStreamReader(new FileInputStream(statFile), StandardCharsets.UTF_8), READ_BUFFER_SIZE))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String section = reader.nextName();
+                if ("stats".equals(section) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    readStats(reader, stats);
+                } else if ("advancements".equals(section) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    readAdvancements(reader, advancements);
+                } else {
+                    // DataVersion and anything else we don't track
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Malformed stat file: " + e.getMessage(), e);
+        }
+        stats.replaceAll((category, values) -> Collections.unmodifiableMap(values));
+        return new WorldStats(statFile, Collections.unmodifiableMap(stats), Collections.unmodifiableMap(advancements));
+    }
+
+    private static void readStats(JsonReader reader, Map<String, Map<String, Long>> stats) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String category = internKey(reader.nextName());
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            Map<String, Long> categoryData = stats.computeIfAbsent(category, k -> new HashMap<>());
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String statKey = internKey(reader.nextName());
+                if (reader.peek() != JsonToken.NUMBER) {
+                    reader.skipValue();
+                    continue;
+                }
+                long value;
+                try {
+                    value = reader.nextLong();
+                } catch (NumberFormatException e) {
+                    // Not an integer, the number is still buffered in the reader
+                    value = (long) reader.nextDouble();
+                }
+                categoryData.put(statKey, value);
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+    }
+
+    private static void readAdvancements(JsonReader reader, Map<String, Boolean> advancements) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String advancementKey = internKey(reader.nextName());
+            JsonToken token = reader.peek();
+            if (token == JsonToken.BOOLEAN) {
+                advancements.put(advancementKey, reader.nextBoolean());
+            } else if (token == JsonToken.BEGIN_OBJECT) {
+                // Criteria object, any recorded criterion means the advancement was started
+                reader.beginObject();
+                boolean hasCriteria = reader.hasNext();
+                while (reader.hasNext()) {
+                    reader.nextName();
+                    reader.skipValue();
+                }
+                reader.endObject();
+                if (hasCriteria) {
+                    advancements.put(advancementKey, true);
+                }
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Strip the "minecraft:" namespace and return a shared instance, so the same few thousand
+     * category and stat names are not allocated again for every file.
+     */
+    static String internKey(String rawKey) {
+        String key = KEY_CACHE.get(rawKey);
+        if (key != null) {
+            return key;
+        }
+        key = stripNamespace(rawKey).intern();
+        if (KEY_CACHE.size() < MAX_CACHED_KEYS) {
+            KEY_CACHE.putIfAbsent(rawKey, key);
+        }
+        return key;
+    }
+
+    public UUID getPlayerUUID() { return playerUUID; }
+    public String getPlayerName() { return playerName; }
+    public List<WorldStats> getWorlds() { return worlds; }
+    public Map<String, Map<String, Long>> getStats() { return stats; }
+    public Map<String, Boolean> getAdvancements() { return advancements; }
+    public long getCreatedAt() { return createdAt; }
+    public boolean isEmpty() { return stats.isEmpty() && advancements.isEmpty(); }
+
+    public long getStat(String category, String statKey) {
+        Map<String, Long> categoryStats = stats.get(category);
+        if (categoryStats == null) return 0L;
+        Long value = categoryStats.get(statKey);
+        return value != null ? value : 0L;
+    }
+
+    /**
+     * Counters as a StatVector, built on first use and shared afterwards.
+     */
+    public StatVector toStatVector() {
+        StatVector vector = statVector;
+        if (vector == null) {
+            vector = StatVector.fromStats(stats);
+            statVector = vector;
+        }
+        return vector;
+    }
+
+    /**
+     * Nested copy in the shape StatResolver expects: category -> (stat -> value), plus "advancements".
+     * @return Mutable map owned by the caller
+     */
+    public Map<String, Object> toNestedMap() {
+        Map<String, Object> nested = new HashMap<>();
+        for (Map.Entry<String, Map<String, Long>> category : stats.entrySet()) {
+            nested.put(category.getKey(), new HashMap<String, Object>(category.getValue()));
+        }
+        if (!advancements.isEmpty()) {
+            nested.put("advancements", new HashMap<String, Object>(advancements));
+        }
+        return nested;
+    }
+
+    /**
+     * Flat copy with "category_stat" keys, as uploaded to Supabase.
+     * @return Mutable map owned by the caller
+     */
+    public Map<String, Object> toFlatStats() {
+        Map<String, Object> flat = new HashMap<>();
+        for (Map.Entry<String, Map<String, Long>> category : stats.entrySet()) {
+            for (Map.Entry<String, Long> stat : category.getValue().entrySet()) {
+                flat.put(category.getKey() + "_" + stat.getKey(), stat.getValue());
+            }
+        }
+        for (Map.Entry<String, Boolean> advancement : advancements.entrySet()) {
+            flat.put("advancements_" + advancement.getKey(), advancement.getValue());
+        }
+        return flat;
+    }
+
+    private static String stripNamespace(String key) {
+        return key.startsWith(NAMESPACE) ? key.substring(NAMESPACE.length()) : key;
+    }
+
+    // One world's stat file
+    public static final class WorldStats {
+        private final File file;
+        private final Map<String, Map<String, Long>> stats;
+        private final Map<String, Boolean> advancements;
+
+        WorldStats(File file, Map<String, Map<String, Long>> stats, Map<String, Boolean> advancements) {
+            this.file = file;
+            this.stats = stats;
+            this.advancements = advancements;
+        }
+
+        public File getFile() { return file; }
+        public Map<String, Map<String, Long>> getStats() { return stats; }
+        public Map<String, Boolean> getAdvancements() { return advancements; }
+
+        public Long getPlayTime() {
+            Map<String, Long> custom = stats.get("custom");
+            return custom != null ? custom.get("play_time") : null;
+        }
+    }
+}
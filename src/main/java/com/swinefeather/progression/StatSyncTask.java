@@ -1,21 +1,32 @@
 package com.swinefeather.progression;
 
 import java.io.File;
-import java.io.FileReader;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.bukkit.World;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
 
 public class StatSyncTask {
     private final JavaPlugin plugin;
@@ -23,6 +34,10 @@ public class StatSyncTask {
     private final SupabaseManager supabaseManager;
     private final PlaceholderManager placeholderManager;
     private final long minimumPlaytimeTicks;
+    private final int syncParallelism;
+    private final int syncQueueCapacity;
+    private final SyncManifest syncManifest;
+    private final StatSchema statSchema;
 
     public StatSyncTask(JavaPlugin plugin, DatabaseManager dbManager, SupabaseManager supabaseManager, PlaceholderManager placeholderManager) {
         this.plugin = plugin;
@@ -30,9 +45,27 @@ public class StatSyncTask {
         this.supabaseManager = supabaseManager;
         this.placeholderManager = placeholderManager;
         this.minimumPlaytimeTicks = plugin.getConfig().getLong("minimum-playtime-ticks", 0L);
+        this.syncParallelism = Math.max(1, plugin.getConfig().getInt("sync-parallelism", 4));
+        this.syncQueueCapacity = Math.max(1, plugin.getConfig().getInt("sync-queue-capacity", 64));
+        if (plugin.getConfig().getBoolean("sync-incremental", true)) {
+            this.syncManifest = new SyncManifest(new File(plugin.getDataFolder(), "sync_manifest.json"), plugin.getLogger());
+            this.syncManifest.load();
+        } else {
+            this.syncManifest = null;
+        }
+        this.statSchema = new StatSchema(new File(plugin.getDataFolder(), "possible_stats.json"), plugin.getLogger());
     }
 
     public void syncAllPlayers(CommandSender sender) {
+        syncAllPlayers(sender, false);
+    }
+
+    /**
+     * Sync every player's stat files to MySQL, Supabase and placeholders.
+     * @param sender Receives progress messages, may be null
+     * @param forceFull Re-sync every player even if their stat files are unchanged since the last sync
+     */
+    public void syncAllPlayers(CommandSender sender, boolean forceFull) {
         if (!Main.isSyncEnabled(plugin)) {
             plugin.getLogger().info("[Progression] All syncs are globally disabled. Skipping all syncs.");
             if (sender != null) sender.sendMessage("§eAll syncs are globally disabled. No sync will be performed.");
@@ -49,84 +82,97 @@ public class StatSyncTask {
         long startTime = System.currentTimeMillis();
         int processedPlayers = 0;
         int failedPlayers = 0;
+        int skippedPlayers = 0;
+        boolean incremental = syncManifest != null && !forceFull;
+        ExecutorService parsePool = null;
         
         try {
-            // Collect all player UUIDs from all worlds first
-            Map<UUID, String> allPlayers = new HashMap<>();
-            
-            for (World world : plugin.getServer().getWorlds()) {
-                File statsFolder = new File(world.getWorldFolder(), "stats");
-                if (!statsFolder.exists() || !statsFolder.isDirectory()) {
-                    plugin.getLogger().warning("Stats folder not found in world: " + world.getName());
-                    continue;
-                }
-
-                File[] statFiles = statsFolder.listFiles((dir, name) -> name.endsWith(".json"));
-                if (statFiles == null) {
-                    plugin.getLogger().warning("No stat files found in: " + statsFolder.getPath());
-                    continue;
-                }
+            // Stage 1: scan every world's stats folder and group the files per player
+            Map<UUID, List<File>> allPlayers = StatSnapshot.scanStatFiles(plugin.getServer(), plugin.getLogger());
 
-                for (File statFile : statFiles) {
+            // Stage 2: parse each player's files on a bounded pool. Parsed players are handed
+            // to the sink through a bounded queue, so workers block when the sinks fall behind.
+            BlockingQueue<ParsedPlayer> parsedQueue = new ArrayBlockingQueue<>(syncQueueCapacity);
+            parsePool = Executors.newFixedThreadPool(syncParallelism, new ParseThreadFactory());
+            for (Map.Entry<UUID, List<File>> entry : allPlayers.entrySet()) {
+                UUID playerUUID = entry.getKey();
+                List<File> statFiles = entry.getValue();
+                parsePool.execute(() -> {
+                    ParsedPlayer parsed;
                     try {
-                        UUID playerUUID = UUID.fromString(statFile.getName().replace(".json", ""));
-                        String playerName = plugin.getServer().getOfflinePlayer(playerUUID).getName();
-                        if (playerName == null) {
-                            playerName = "Unknown_" + playerUUID.toString().substring(0, 8);
+                        if (incremental && !syncManifest.hasChanged(playerUUID, statFiles)) {
+                            parsed = ParsedPlayer.skipped(playerUUID, statFiles);
+                        } else {
+                            parsed = parsePlayer(playerUUID, statFiles);
                         }
-                        allPlayers.put(playerUUID, playerName);
                     } catch (Exception e) {
-                        plugin.getLogger().warning("Failed to process stat file: " + statFile.getName() + " - " + e.getMessage());
+                        plugin.getLogger().warning("Failed to parse stats for " + playerUUID + ": " + e.getMessage());
+                        parsed = ParsedPlayer.failed(playerUUID, statFiles);
                     }
-                }
+                    try {
+                        parsedQueue.put(parsed);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
             }
+            parsePool.shutdown();
 
-            // Now process each player with stats from ALL worlds
-            for (Map.Entry<UUID, String> entry : allPlayers.entrySet()) {
-                UUID playerUUID = entry.getKey();
-                String playerName = entry.getValue();
-                
-                plugin.getLogger().info("Processing player: " + playerName);
-                
-                // Collect stats from ALL worlds for this player
-                Map<String, Object> combinedStats = collectPlayerStatsFromWorlds(playerUUID);
-                
-                if (combinedStats.isEmpty()) {
+            // Stage 3: merge and fan out to MySQL, Supabase and placeholders on this thread.
+            // Supabase rows are collected and sent batch_size players per request.
+            Map<UUID, Map<String, Object>> supabaseStats = new LinkedHashMap<>();
+            Map<UUID, String> supabaseNames = new HashMap<>();
+            MySqlBulkWriter mysqlWriter = dbManager != null ? dbManager.newBulkWriter(forceFull) : null;
+            List<UUID> placeholderPlayers = new ArrayList<>();
+            // Players handed to the sinks, marked in the manifest once the sinks have their rows
+            Map<UUID, List<File>> unconfirmed = new LinkedHashMap<>();
+            Map<CompletableFuture<Boolean>, Set<UUID>> supabaseSends = new LinkedHashMap<>();
+            for (int i = 0; i < allPlayers.size(); i++) {
+                ParsedPlayer parsed = parsedQueue.take();
+                if (parsed.isSkipped()) {
+                    skippedPlayers++;
                     continue;
                 }
-                
-                // Save to MySQL if available
-                if (dbManager != null && dbManager.isConnected()) {
-                    dbManager.savePlayerInfo(playerUUID, playerName);
-                    // For MySQL, we need to process each world's stats separately since it uses individual tables
-                    for (World world : plugin.getServer().getWorlds()) {
-                        File statFile = new File(world.getWorldFolder(), "stats/" + playerUUID + ".json");
-                        if (statFile.exists() && hasMinimumPlaytime(statFile)) {
-                            syncPlayerStats(playerUUID, statFile);
-                        }
-                    }
-                }
-                
-                // Save to Supabase for ALL players (online and offline)
-                if (supabaseManager != null && supabaseManager.isEnabled()) {
-                    supabaseManager.syncPlayerStats(playerUUID, playerName, combinedStats);
+                if (parsed.isFailed()) {
+                    failedPlayers++;
+                    continue;
                 }
-                
-                if (placeholderManager != null) {
-                    placeholderManager.syncPlayerPlaceholders(playerUUID);
+                if (parsed.getCombinedStats().isEmpty()) {
+                    continue;
                 }
-                
-                // DISABLED: Achievement checking and XP calculation to prevent level-up spam
-                // These will only be calculated when explicitly triggered or when players join
-                if (plugin instanceof Main) {
-                    Main mainPlugin = (Main) plugin;
-                    if (mainPlugin.achievementManager != null) {
-                        // Only sync stats, don't check achievements or calculate XP to prevent level-up spam
-                        plugin.getLogger().info("Skipping achievement checking and XP calculation during sync to prevent level-up spam");
+                try {
+                    plugin.getLogger().info("Processing player: " + parsed.getPlayerName());
+                    syncParsedPlayer(parsed, mysqlWriter, supabaseStats, supabaseNames, placeholderPlayers);
+                    if (supabaseManager != null && supabaseStats.size() >= supabaseManager.getBatchSize()) {
+                        flushSupabase(supabaseStats, supabaseNames, supabaseSends);
                     }
+                    if (parsed.isComplete()) {
+                        // A stat file that failed to parse has to be read again next time
+                        unconfirmed.put(parsed.getPlayerUUID(), parsed.getStatFiles());
+                    }
+                    processedPlayers++;
+                } catch (Exception e) {
+                    plugin.getLogger().warning("Failed to sync player " + parsed.getPlayerName() + ": " + e.getMessage());
+                    failedPlayers++;
+                }
+            }
+            flushSupabase(supabaseStats, supabaseNames, supabaseSends);
+            if (mysqlWriter != null) {
+                mysqlWriter.close();
+                plugin.getLogger().info("MySQL sync wrote " + mysqlWriter.describe());
+            }
+            if (syncManifest != null) {
+                confirmSynced(unconfirmed, mysqlWriter, supabaseSends);
+            }
+            // Placeholder rows reference the player rows, so they wait until those are written
+            if (placeholderManager != null) {
+                for (UUID playerUUID : placeholderPlayers) {
+                    placeholderManager.syncPlayerPlaceholders(playerUUID);
                 }
-                
-                processedPlayers++;
+            }
+            
+            if (syncManifest != null) {
+                syncManifest.save();
             }
             
             long endTime = System.currentTimeMillis();
@@ -134,19 +180,172 @@ public class StatSyncTask {
             
             if (sender != null) {
                 sender.sendMessage("§aFull sync completed for " + processedPlayers + " players in " + duration + "ms!");
+                if (skippedPlayers > 0) {
+                    sender.sendMessage("§7Skipped " + skippedPlayers + " players with unchanged stats. Use 'full' to force a complete sync.");
+                }
                 if (failedPlayers > 0) {
                     sender.sendMessage("§cFailed to process " + failedPlayers + " players.");
                 }
             }
-            plugin.getLogger().info("Full sync completed: " + processedPlayers + " players processed in " + duration + "ms");
+            plugin.getLogger().info("Full sync completed: " + processedPlayers + " players processed, " + skippedPlayers + " unchanged skipped in " + duration + "ms");
             // Full sync completed
             
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (sender != null) {
+                sender.sendMessage("§cFull sync was interrupted.");
+            }
+            plugin.getLogger().warning("Full sync was interrupted after " + processedPlayers + " players");
         } catch (Exception e) {
             if (sender != null) {
                 sender.sendMessage("§cFull sync failed: " + e.getMessage());
             }
             plugin.getLogger().severe("Full sync failed: " + e.getMessage());
+        } finally {
+            if (parsePool != null) {
+                parsePool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Parses each of the player's stat files exactly once and merges them into one snapshot.
+     */
+    private ParsedPlayer parsePlayer(UUID playerUUID, List<File> statFiles) {
+        StatSnapshot snapshot = StatSnapshot.load(playerUUID, resolvePlayerName(playerUUID), statFiles, plugin.getLogger());
+        return new ParsedPlayer(snapshot, statFiles, mergePlayerStats(snapshot));
+    }
+
+    private String resolvePlayerName(UUID playerUUID) {
+        String playerName = plugin.getServer().getOfflinePlayer(playerUUID).getName();
+        if (playerName == null) {
+            playerName = "Unknown_" + playerUUID.toString().substring(0, 8);
+        }
+        return playerName;
+    }
+
+    /**
+     * Sink fan-out for one parsed player: MySQL, Supabase, placeholders and achievements.
+     * MySQL and Supabase rows are added to pending batches instead of being sent right away,
+     * and the player is queued for the placeholder sync that runs after the MySQL rows are written.
+     * @param mysqlWriter null when MySQL isn't available
+     */
+    private void syncParsedPlayer(ParsedPlayer parsed, MySqlBulkWriter mysqlWriter, Map<UUID, Map<String, Object>> supabaseStats,
+                                  Map<UUID, String> supabaseNames, List<UUID> placeholderPlayers) {
+        UUID playerUUID = parsed.getPlayerUUID();
+
+        // Save to MySQL if available
+        if (mysqlWriter != null) {
+            savePlayerToDatabase(parsed, mysqlWriter);
         }
+        
+        // Save to Supabase for ALL players (online and offline)
+        if (supabaseManager != null && supabaseManager.isEnabled()) {
+            supabaseStats.put(playerUUID, parsed.getCombinedStats());
+            supabaseNames.put(playerUUID, parsed.getPlayerName());
+        }
+        
+        placeholderPlayers.add(playerUUID);
+        
+        checkAchievements(parsed);
+    }
+
+    /**
+     * Check the player's achievements against the snapshot this sync already parsed.
+     * Only tiers not unlocked yet grant XP, so a repeated sync doesn't award anything twice.
+     */
+    private void checkAchievements(ParsedPlayer parsed) {
+        if (parsed.getSnapshot() == null || !(plugin instanceof Main)) {
+            return;
+        }
+        AchievementManager achievementManager = ((Main) plugin).achievementManager;
+        if (achievementManager != null) {
+            achievementManager.checkPlayerAchievements(parsed.getSnapshot());
+        }
+    }
+
+    /**
+     * @param sends Receives the send's result and the players in it
+     */
+    private void flushSupabase(Map<UUID, Map<String, Object>> supabaseStats, Map<UUID, String> supabaseNames,
+                               Map<CompletableFuture<Boolean>, Set<UUID>> sends) {
+        if (supabaseStats.isEmpty()) {
+            return;
+        }
+        Set<UUID> batch = new HashSet<>(supabaseStats.keySet());
+        // The request bodies are built before this returns, so the maps can be reused
+        sends.put(supabaseManager.syncPlayerStatsBulk(supabaseStats, supabaseNames), batch);
+        supabaseStats.clear();
+        supabaseNames.clear();
+    }
+
+    /**
+     * Mark players synced in the manifest once MySQL committed their rows and Supabase sent them
+     * or holds them in its outbox. Players that didn't make it stay unchanged in the manifest, so
+     * the next incremental sync picks them up again. Sends still running after timeout_seconds
+     * are treated the same way.
+     */
+    private void confirmSynced(Map<UUID, List<File>> unconfirmed, MySqlBulkWriter mysqlWriter,
+                               Map<CompletableFuture<Boolean>, Set<UUID>> supabaseSends) throws InterruptedException {
+        Set<UUID> failed = new HashSet<>();
+        if (!supabaseSends.isEmpty()) {
+            try {
+                CompletableFuture.allOf(supabaseSends.keySet().toArray(new CompletableFuture[0]))
+                    .get(supabaseManager.getTimeoutSeconds(), TimeUnit.SECONDS);
+            } catch (TimeoutException | ExecutionException e) {
+                plugin.getLogger().warning("Not every Supabase send finished in time, those players will be synced again next time");
+            }
+            for (Map.Entry<CompletableFuture<Boolean>, Set<UUID>> send : supabaseSends.entrySet()) {
+                if (!Boolean.TRUE.equals(send.getKey().getNow(false))) {
+                    failed.addAll(send.getValue());
+                }
+            }
+        }
+        if (mysqlWriter != null) {
+            failed.addAll(mysqlWriter.getDeferredPlayers());
+            failed.addAll(mysqlWriter.getFailedPlayers());
+        }
+        for (Map.Entry<UUID, List<File>> entry : unconfirmed.entrySet()) {
+            if (!failed.contains(entry.getKey())) {
+                syncManifest.markSynced(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void savePlayerToDatabase(ParsedPlayer parsed, MySqlBulkWriter mysqlWriter) {
+        mysqlWriter.addPlayer(parsed.getPlayerUUID(), parsed.getPlayerName());
+        // For MySQL, we need to process each world's stats separately since it uses individual tables
+        for (StatSnapshot.WorldStats worldStats : parsed.getSnapshot().getWorlds()) {
+            if (hasMinimumPlaytime(worldStats)) {
+                mysqlWriter.addWorldStats(parsed.getPlayerUUID(), worldStats);
+            }
+        }
+    }
+
+    /**
+     * Write the players queued while MySQL was unreachable, from their current stat files.
+     * Players that fail again stay queued.
+     */
+    public void syncPendingMysql() {
+        Set<UUID> pending = dbManager.getPendingPlayers();
+        if (pending.isEmpty()) {
+            return;
+        }
+        plugin.getLogger().info("MySQL is reachable, writing " + pending.size() + " queued players");
+        MySqlBulkWriter mysqlWriter = dbManager.newBulkWriter(false);
+        try {
+            for (UUID playerUUID : pending) {
+                ParsedPlayer parsed = parsePlayer(playerUUID, StatSnapshot.findStatFiles(plugin.getServer(), playerUUID));
+                if (!parsed.getCombinedStats().isEmpty()) {
+                    savePlayerToDatabase(parsed, mysqlWriter);
+                }
+            }
+        } finally {
+            mysqlWriter.close();
+        }
+        pending.removeAll(mysqlWriter.getDeferredPlayers());
+        dbManager.clearPending(pending);
+        plugin.getLogger().info("MySQL queue wrote " + mysqlWriter.describe());
     }
 
     public void syncOnlinePlayers(CommandSender sender) {
@@ -159,22 +358,36 @@ public class StatSyncTask {
 
         try {
             Map<Player, Map<String, Object>> allPlayerStats = new HashMap<>();
+            MySqlBulkWriter mysqlWriter = dbManager != null ? dbManager.newBulkWriter(false) : null;
+            List<UUID> placeholderPlayers = new ArrayList<>();
             
             for (Player player : plugin.getServer().getOnlinePlayers()) {
                 UUID playerUUID = player.getUniqueId();
                 // Syncing stats for online player
                 
-                // Collect stats for both MySQL and Supabase
-                Map<String, Object> stats = collectPlayerStatsFromWorlds(playerUUID);
+                // Parse once for both MySQL and Supabase
+                ParsedPlayer parsed = parsePlayer(playerUUID, StatSnapshot.findStatFiles(plugin.getServer(), playerUUID));
                 
                 // Save to MySQL if available
-                if (dbManager != null && dbManager.isConnected()) {
-                    syncSinglePlayer(playerUUID, sender);
+                if (mysqlWriter != null && !parsed.getCombinedStats().isEmpty()) {
+                    savePlayerToDatabase(parsed, mysqlWriter);
+                    placeholderPlayers.add(playerUUID);
                 }
                 
                 // Prepare for Supabase batch sync
                 if (supabaseManager != null && supabaseManager.isEnabled()) {
-                    allPlayerStats.put(player, stats);
+                    allPlayerStats.put(player, parsed.getCombinedStats());
+                }
+                
+                checkAchievements(parsed);
+            }
+            if (mysqlWriter != null) {
+                mysqlWriter.close();
+                plugin.getLogger().info("MySQL sync wrote " + mysqlWriter.describe());
+            }
+            if (placeholderManager != null) {
+                for (UUID playerUUID : placeholderPlayers) {
+                    placeholderManager.syncPlayerPlaceholders(playerUUID);
                 }
             }
             
@@ -214,14 +427,10 @@ public class StatSyncTask {
         }
 
         try {
-            String playerName = plugin.getServer().getOfflinePlayer(playerUUID).getName();
-            if (playerName == null) {
-                playerName = "Unknown_" + playerUUID.toString().substring(0, 8);
-                plugin.getLogger().warning("Player name not found for UUID: " + playerUUID + ", using: " + playerName);
-            }
-            
-            // Collect stats from ALL worlds for this player
-            Map<String, Object> combinedStats = collectPlayerStatsFromWorlds(playerUUID);
+            // Collect stats from ALL worlds for this player, parsing each file once
+            ParsedPlayer parsed = parsePlayer(playerUUID, StatSnapshot.findStatFiles(plugin.getServer(), playerUUID));
+            String playerName = parsed.getPlayerName();
+            Map<String, Object> combinedStats = parsed.getCombinedStats();
             
             if (combinedStats.isEmpty()) {
                 if (sender != null) {
@@ -232,14 +441,9 @@ public class StatSyncTask {
             }
             
             // Save to MySQL if available
-            if (dbManager != null && dbManager.isConnected()) {
-                dbManager.savePlayerInfo(playerUUID, playerName);
-                // For MySQL, we need to process each world's stats separately since it uses individual tables
-                for (World world : plugin.getServer().getWorlds()) {
-                    File statFile = new File(world.getWorldFolder(), "stats/" + playerUUID + ".json");
-                    if (statFile.exists() && hasMinimumPlaytime(statFile)) {
-                        syncPlayerStats(playerUUID, statFile);
-                    }
+            if (dbManager != null) {
+                try (MySqlBulkWriter mysqlWriter = dbManager.newBulkWriter(false)) {
+                    savePlayerToDatabase(parsed, mysqlWriter);
                 }
             }
             
@@ -257,6 +461,8 @@ public class StatSyncTask {
                 placeholderManager.syncPlayerPlaceholders(playerUUID);
             }
             
+            checkAchievements(parsed);
+            
             if (sender != null) {
                 sender.sendMessage("§aStat sync for player " + playerName + " completed!");
             }
@@ -287,190 +493,25 @@ public class StatSyncTask {
     }
     
     private Map<String, Object> collectPlayerStatsFromWorlds(UUID playerUUID) {
-        Map<String, Object> allStats = new HashMap<>();
-        // Load possible stats from JSON (if available)
-        Map<String, Map<String, Object>> possibleStats = null;
-        try {
-            java.nio.file.Path path = java.nio.file.Paths.get("possible_stats.json");
-            if (java.nio.file.Files.exists(path)) {
-                String json = new String(java.nio.file.Files.readAllBytes(path));
-                com.google.gson.Gson gson = new com.google.gson.Gson();
-                java.lang.reflect.Type type = new com.google.gson.reflect.TypeToken<Map<String, Map<String, Object>>>(){}.getType();
-                possibleStats = gson.fromJson(json, type);
-            }
-        } catch (Exception e) {
-            plugin.getLogger().warning("Could not load possible_stats.json: " + e.getMessage());
-        }
-        for (World world : plugin.getServer().getWorlds()) {
-            File statFile = new File(world.getWorldFolder(), "stats/" + playerUUID + ".json");
-            if (statFile.exists()) {
-                Map<String, Object> worldStats = collectPlayerStats(playerUUID, statFile);
-                allStats.putAll(worldStats);
-            }
-        }
-        // Fill in missing stats with zero if possibleStats is available
-        if (possibleStats != null) {
-            for (Map.Entry<String, Map<String, Object>> entry : possibleStats.entrySet()) {
-                String category = entry.getKey();
-                Map<String, Object> possibleCategoryStats = entry.getValue();
-                Map<String, Object> playerCategoryStats = (Map<String, Object>) allStats.getOrDefault(category, new HashMap<>());
-                for (String statKey : possibleCategoryStats.keySet()) {
-                    if (!playerCategoryStats.containsKey(statKey)) {
-                        playerCategoryStats.put(statKey, 0L);
-                        plugin.getLogger().warning("Player " + playerUUID + " missing stat: " + category + "." + statKey);
-                    }
-                }
-                allStats.put(category, playerCategoryStats);
-            }
-        }
-        // Flatten the nested stats map
-        Map<String, Object> flatStats = flattenStatsMap(allStats);
-        return flatStats;
+        return mergePlayerStats(StatSnapshot.load(plugin.getServer(), playerUUID, null, plugin.getLogger()));
     }
 
     /**
-     * Flattens a nested stats map (e.g. {"custom": {"play_time": 123}}) to flat keys ("custom_play_time": 123)
+     * Builds the flat stats map uploaded to Supabase from a player's snapshot.
+     * Stats listed in possible_stats.json that the player never recorded read as 0.
      */
-    private Map<String, Object> flattenStatsMap(Map<String, Object> nestedStats) {
-        Map<String, Object> flat = new HashMap<>();
-        for (Map.Entry<String, Object> entry : nestedStats.entrySet()) {
-            String category = entry.getKey();
-            Object value = entry.getValue();
-            if (value instanceof Map) {
-                Map<?, ?> subMap = (Map<?, ?>) value;
-                for (Map.Entry<?, ?> subEntry : subMap.entrySet()) {
-                    String statKey = subEntry.getKey().toString();
-                    Object statValue = subEntry.getValue();
-                    flat.put(category + "_" + statKey, statValue);
-                }
-            } else {
-                flat.put(category, value);
-            }
-        }
-        return flat;
+    private Map<String, Object> mergePlayerStats(StatSnapshot snapshot) {
+        return statSchema.zeroFilled(snapshot.toFlatStats());
     }
     
-    private Map<String, Object> collectPlayerStats(UUID playerUUID, File statFile) {
-        Map<String, Object> stats = new HashMap<>();
-        try (FileReader reader = new FileReader(statFile)) {
-            JSONParser parser = new JSONParser();
-            JSONObject json = (JSONObject) parser.parse(reader);
-            
-            // Collect stats
-            JSONObject statsSection = (JSONObject) json.get("stats");
-            if (statsSection != null) {
-                for (Object categoryObj : statsSection.keySet()) {
-                    String category = (String) categoryObj;
-                    JSONObject categoryStats = (JSONObject) statsSection.get(category);
-                    Map<String, Object> categoryData = new HashMap<>();
-                    
-                    for (Object statObj : categoryStats.keySet()) {
-                        String statKey = statObj.toString();
-                        Object valueObj = categoryStats.get(statKey);
-                        String cleanStatKey = statKey.replace("minecraft:", "");
-                        
-                        if (valueObj instanceof Long) {
-                            categoryData.put(cleanStatKey, (Long) valueObj);
-                        } else if (valueObj instanceof Integer) {
-                            categoryData.put(cleanStatKey, ((Integer) valueObj).longValue());
-                        } else {
-                            categoryData.put(cleanStatKey, valueObj.toString());
-                        }
-                    }
-                    
-                    String cleanCategory = category.replace("minecraft:", "");
-                    stats.put(cleanCategory, categoryData);
-                }
-            }
-            
-            // Collect advancements
-            JSONObject advancementsSection = (JSONObject) json.get("advancements");
-            if (advancementsSection != null) {
-                Map<String, Object> advancementsData = new HashMap<>();
-                for (Object advancementObj : advancementsSection.keySet()) {
-                    String advancementKey = advancementObj.toString();
-                    Object advancementValue = advancementsSection.get(advancementKey);
-                    String cleanAdvancementKey = advancementKey.replace("minecraft:", "");
-                    
-                    if (advancementValue instanceof JSONObject) {
-                        JSONObject criteria = (JSONObject) advancementValue;
-                        if (!criteria.isEmpty()) {
-                            advancementsData.put(cleanAdvancementKey, true);
-                        }
-                    } else if (advancementValue instanceof Boolean) {
-                        advancementsData.put(cleanAdvancementKey, (Boolean) advancementValue);
-                    }
-                }
-                stats.put("advancements", advancementsData);
-            }
-            
-        } catch (Exception e) {
-            plugin.getLogger().warning("Failed to collect stats from " + statFile.getName() + ": " + e.getMessage());
-        }
-        return stats;
-    }
-
-    private boolean hasMinimumPlaytime(File statFile) {
-        try (FileReader reader = new FileReader(statFile)) {
-            JSONParser parser = new JSONParser();
-            JSONObject json = (JSONObject) parser.parse(reader);
-            JSONObject statsSection = (JSONObject) json.get("stats");
-            if (statsSection != null) {
-                JSONObject customStats = (JSONObject) statsSection.get("minecraft:custom");
-                if (customStats != null) {
-                    Long playTime = (Long) customStats.get("minecraft:play_time");
-                    if (playTime != null) {
-                        plugin.getLogger().info("Playtime for " + statFile.getName() + ": " + playTime + " ticks");
-                        return playTime >= minimumPlaytimeTicks;
-                    }
-                }
-            }
-            plugin.getLogger().info("No playtime data for " + statFile.getName() + ", including anyway");
-            return true;
-        } catch (Exception e) {
-            plugin.getLogger().warning("Failed to read playtime from " + statFile.getName() + ": " + e.getMessage());
-            return true;
-        }
-    }
-
-    private void syncPlayerStats(UUID playerUUID, File statFile) {
-        try (FileReader reader = new FileReader(statFile)) {
-            JSONParser parser = new JSONParser();
-            JSONObject json = (JSONObject) parser.parse(reader);
-            Map<String, Map<String, Long>> categorizedStats = new HashMap<>();
-
-            JSONObject statsSection = (JSONObject) json.get("stats");
-            if (statsSection != null) {
-                for (Object categoryObj : statsSection.keySet()) {
-                    String category = (String) categoryObj;
-                    JSONObject categoryStats = (JSONObject) statsSection.get(category);
-                    Map<String, Long> stats = new HashMap<>();
-                    for (Object statObj : categoryStats.keySet()) {
-                        String statKey = statObj.toString();
-                        Object valueObj = categoryStats.get(statKey);
-                        Long value = valueObj instanceof Long ? (Long) valueObj : 0L;
-                        stats.put(statKey, value);
-                    }
-                    categorizedStats.put(category, stats);
-                }
-            }
-
-            if (dbManager != null && dbManager.isConnected()) {
-                for (Map.Entry<String, Map<String, Long>> entry : categorizedStats.entrySet()) {
-                    String category = entry.getKey().replace("minecraft:", "");
-                    Map<String, Long> stats = entry.getValue();
-                    dbManager.savePlayerStats(category, playerUUID, stats);
-                }
-            }
-            
-            // Save placeholder stats to Supabase if available
-            if (supabaseManager != null && supabaseManager.isEnabled()) {
-                // This will be handled by the Supabase sync
-                plugin.getLogger().info("Supabase sync will handle placeholder stats");
-            }
-        } catch (Exception e) {
-            plugin.getLogger().severe("Failed to sync player stats for " + playerUUID + ": " + e.getMessage());
+    private boolean hasMinimumPlaytime(StatSnapshot.WorldStats worldStats) {
+        Long playTime = worldStats.getPlayTime();
+        if (playTime != null) {
+            plugin.getLogger().info("Playtime for " + worldStats.getFile().getName() + ": " + playTime + " ticks");
+            return playTime >= minimumPlaytimeTicks;
         }
+        plugin.getLogger().info("No playtime data for " + worldStats.getFile().getName() + ", including anyway");
+        return true;
     }
 
     @SuppressWarnings("deprecation")
@@ -519,4 +560,54 @@ public class StatSyncTask {
             plugin.getLogger().severe("Error viewing stats: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // A player's snapshot plus the merged stats handed to Supabase
+    private static class ParsedPlayer {
+        private final UUID playerUUID;
+        private final StatSnapshot snapshot;
+        private final List<File> statFiles;
+        private final Map<String, Object> combinedStats;
+        private final boolean skipped;
+
+        ParsedPlayer(StatSnapshot snapshot, List<File> statFiles, Map<String, Object> combinedStats) {
+            this(snapshot.getPlayerUUID(), snapshot, statFiles, combinedStats, false);
+        }
+
+        private ParsedPlayer(UUID playerUUID, StatSnapshot snapshot, List<File> statFiles, Map<String, Object> combinedStats, boolean skipped) {
+            this.playerUUID = playerUUID;
+            this.snapshot = snapshot;
+            this.statFiles = statFiles;
+            this.combinedStats = combinedStats;
+            this.skipped = skipped;
+        }
+
+        static ParsedPlayer failed(UUID playerUUID, List<File> statFiles) {
+            return new ParsedPlayer(playerUUID, null, statFiles, new HashMap<>(), false);
+        }
+
+        static ParsedPlayer skipped(UUID playerUUID, List<File> statFiles) {
+            return new ParsedPlayer(playerUUID, null, statFiles, new HashMap<>(), true);
+        }
+
+        public UUID getPlayerUUID() { return playerUUID; }
+        public String getPlayerName() { return snapshot != null ? snapshot.getPlayerName() : null; }
+        public StatSnapshot getSnapshot() { return snapshot; }
+        public List<File> getStatFiles() { return statFiles; }
+        public Map<String, Object> getCombinedStats() { return combinedStats; }
+        public boolean isSkipped() { return skipped; }
+        public boolean isFailed() { return snapshot == null && !skipped; }
+        // Every stat file parsed, so the manifest may record them
+        public boolean isComplete() { return snapshot != null && snapshot.getWorlds().size() == statFiles.size(); }
+    }
+
+    private static class ParseThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Progression-StatParse-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
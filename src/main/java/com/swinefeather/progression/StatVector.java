@@ -0,0 +1,153 @@
+package com.swinefeather.progression;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Compact, immutable copy of one player's counters: stat IDs from StatDictionary in ascending
+ * order with their values alongside. Replaces the nested String-keyed maps for passes that hold
+ * every player's stats in memory at once. Advancements are not included.
+ */
+public final class StatVector {
+    public static final StatVector EMPTY = new StatVector(new int[0], new long[0]);
+
+    private final int[] ids;
+    private final long[] values;
+
+    private StatVector(int[] ids, long[] values) {
+        this.ids = ids;
+        this.values = values;
+    }
+
+    /**
+     * Build a vector from parsed per-category counters. Keys must already be namespace-stripped.
+     */
+    public static StatVector fromStats(Map<String, Map<String, Long>> stats) {
+        int total = 0;
+        for (Map<String, Long> categoryStats : stats.values()) {
+            total += categoryStats.size();
+        }
+        int[] ids = new int[total];
+        long[] values = new long[total];
+        int count = 0;
+        for (Map.Entry<String, Map<String, Long>> category : stats.entrySet()) {
+            for (Map.Entry<String, Long> stat : category.getValue().entrySet()) {
+                if (stat.getValue() == null) continue;
+                ids[count] = StatDictionary.idOf(category.getKey(), stat.getKey());
+                values[count] = stat.getValue();
+                count++;
+            }
+        }
+        return sorted(ids, values, count);
+    }
+
+    /**
+     * Build a vector from a nested category -> (stat -> number) map as used by StatResolver.
+     * Namespaced keys are stripped, non-numeric values and the "advancements" section are skipped.
+     */
+    public static StatVector fromNestedMap(Map<String, Object> nestedStats) {
+        int total = 0;
+        for (Object categoryData : nestedStats.values()) {
+            if (categoryData instanceof Map) {
+                total += ((Map<?, ?>) categoryData).size();
+            }
+        }
+        int[] ids = new int[total];
+        long[] values = new long[total];
+        int count = 0;
+        for (Map.Entry<String, Object> category : nestedStats.entrySet()) {
+            if (!(category.getValue() instanceof Map) || "advancements".equals(category.getKey())) continue;
+            String categoryName = StatSnapshot.internKey(category.getKey());
+            for (Map.Entry<?, ?> stat : ((Map<?, ?>) category.getValue()).entrySet()) {
+                if (!(stat.getValue() instanceof Number)) continue;
+                ids[count] = StatDictionary.idOf(categoryName, StatSnapshot.internKey(stat.getKey().toString()));
+                values[count] = ((Number) stat.getValue()).longValue();
+                count++;
+            }
+        }
+        return sorted(ids, values, count);
+    }
+
+    private static StatVector sorted(int[] ids, long[] values, int count) {
+        if (count == 0) {
+            return EMPTY;
+        }
+        // Sort ID and position packed into one long, then reorder both arrays in a single pass
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = ((long) ids[i] << 32) | i;
+        }
+        Arrays.sort(order);
+        int[] sortedIds = new int[count];
+        long[] sortedValues = new long[count];
+        for (int i = 0; i < count; i++) {
+            sortedIds[i] = (int) (order[i] >>> 32);
+            sortedValues[i] = values[(int) order[i]];
+        }
+        ids = sortedIds;
+        values = sortedValues;
+        // Same stat listed twice (namespaced and plain), keep the sum like a world merge would
+        int unique = 1;
+        for (int i = 1; i < count; i++) {
+            if (ids[i] == ids[unique - 1]) {
+                values[unique - 1] += values[i];
+            } else {
+                ids[unique] = ids[i];
+                values[unique] = values[i];
+                unique++;
+            }
+        }
+        count = unique;
+        return new StatVector(
+            count == ids.length ? ids : Arrays.copyOf(ids, count),
+            count == values.length ? values : Arrays.copyOf(values, count));
+    }
+
+    /**
+     * @return The stat's value, or 0 if the player never recorded it
+     */
+    public long get(int statId) {
+        int index = statId >= 0 ? Arrays.binarySearch(ids, statId) : -1;
+        return index >= 0 ? values[index] : 0L;
+    }
+
+    public boolean contains(int statId) {
+        return statId >= 0 && Arrays.binarySearch(ids, statId) >= 0;
+    }
+
+    /**
+     * Sum of every recorded stat in a category.
+     * @param categoryId Category ID from StatDictionary
+     * @return The total, or 0 if the player has nothing in that category
+     */
+    public long categoryTotal(int categoryId) {
+        long total = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (StatDictionary.categoryOf(ids[i]) == categoryId) {
+                total += values[i];
+            }
+        }
+        return total;
+    }
+
+    public boolean hasCategory(int categoryId) {
+        for (int id : ids) {
+            if (StatDictionary.categoryOf(id) == categoryId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public int idAt(int index) {
+        return ids[index];
+    }
+
+    public long valueAt(int index) {
+        return values[index];
+    }
+}
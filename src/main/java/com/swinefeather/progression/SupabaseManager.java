@@ -2,13 +2,14 @@ package com.swinefeather.progression;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import okhttp3.*;
 import org.bukkit.Bukkit;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
 
+import java.io.File;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -16,12 +17,15 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import com.google.gson.stream.JsonReader;
-import java.io.StringReader;
 import okhttp3.Response;
 
 public class SupabaseManager {
@@ -29,6 +33,8 @@ public class SupabaseManager {
     private final LogManager logger;
     private final Gson gson;
     private final OkHttpClient httpClient;
+    // Plugin-wide virtual-thread executor for blocking HTTP calls
+    private final ExecutorService remoteExecutor;
     
     // Configuration
     private String supabaseUrl;
@@ -36,7 +42,8 @@ public class SupabaseManager {
     private boolean enabled;
     
     // Performance settings
-    private int batchSize;
+    private int batchSize = 100;
+    private long maxRequestBytes = 1000000;
     private long batchDelayMs;
     private int maxConcurrentRequests;
     private int timeoutSeconds;
@@ -50,14 +57,26 @@ public class SupabaseManager {
     private Connection connection;
     private final Object connectionLock = new Object();
     
-    // Rate limiting
-    private final Queue<CompletableFuture<Void>> requestQueue = new LinkedList<>();
-    private final Map<String, Long> lastRequestTime = new ConcurrentHashMap<>();
-    private volatile boolean isProcessing = false;
+    // Stat upload queue, started once the configuration is read
+    private RequestDispatcher dispatcher;
+    private int queueCapacity = 1000;
+    private int rateBurst = 1;
     
-    public SupabaseManager(Plugin plugin, LogManager logManager) {
+    // Write-ahead log of stat and award upserts, replayed when sends fail or after a restart
+    private SyncOutbox outbox;
+    private BukkitTask outboxReplayTask;
+    private final AtomicBoolean outboxReplayQueued = new AtomicBoolean();
+    // Durable sends hold the read lock, a replay holds the write lock, so a replayed row can't
+    // land after a newer live send of the same row when several requests run at once
+    private final ReadWriteLock outboxSendLock = new ReentrantReadWriteLock();
+    
+    // How an upsert ended: went through, refused by Supabase (4xx), or worth retrying later
+    private enum UpsertResult { SENT, CONFLICT, REJECTED, FAILED }
+    
+    public SupabaseManager(Plugin plugin, LogManager logManager, ExecutorService remoteExecutor) {
         this.plugin = plugin;
         this.logger = logManager;
+        this.remoteExecutor = remoteExecutor;
         this.gson = new Gson();
         
         // Configure HTTP client with robust error handling
@@ -99,10 +118,13 @@ public class SupabaseManager {
         // Performance settings
         ConfigurationSection perfSection = config.getConfigurationSection("performance");
         if (perfSection != null) {
-            this.batchSize = perfSection.getInt("batch_size", 1);
+            this.batchSize = Math.max(1, perfSection.getInt("batch_size", 100));
+            this.maxRequestBytes = Math.max(1024, perfSection.getLong("max_request_bytes", 1000000));
             this.batchDelayMs = perfSection.getLong("batch_delay_ms", 1000);
             this.maxConcurrentRequests = perfSection.getInt("max_concurrent_requests", 1);
             this.timeoutSeconds = perfSection.getInt("timeout_seconds", 30);
+            this.queueCapacity = perfSection.getInt("queue_capacity", 1000);
+            this.rateBurst = perfSection.getInt("rate_burst", 1);
         }
         
         // Sync settings
@@ -125,9 +147,27 @@ public class SupabaseManager {
         }
         
         logger.debug("Supabase connection established successfully");
+        // batch_delay_ms is the average spacing between requests
+        this.dispatcher = new RequestDispatcher("Supabase", remoteExecutor, maxConcurrentRequests, queueCapacity, batchDelayMs, rateBurst, logger);
+        openOutbox(config.getConfigurationSection("outbox"));
         return true;
     }
     
+    private void openOutbox(ConfigurationSection outboxSection) {
+        if (outboxSection != null && !outboxSection.getBoolean("enabled", true)) {
+            return;
+        }
+        long segmentBytes = outboxSection != null ? outboxSection.getLong("segment_bytes", 4194304L) : 4194304L;
+        long replayTicks = 20L * Math.max(5, outboxSection != null ? outboxSection.getInt("replay_interval_seconds", 60) : 60);
+        outbox = new SyncOutbox(new File(plugin.getDataFolder(), "outbox"), segmentBytes, logger);
+        int leftOver = outbox.open();
+        if (leftOver > 0) {
+            logger.info("Found " + leftOver + " Supabase outbox segments from the last run, replaying them");
+            queueOutboxReplay();
+        }
+        outboxReplayTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::queueOutboxReplay, replayTicks, replayTicks);
+    }
+    
     private boolean testConnection() {
         try {
             // Test REST API connection
@@ -147,69 +187,29 @@ public class SupabaseManager {
     }
     
     public void syncPlayerStats(Player player, Map<String, Object> stats) {
-        if (!enabled) return;
-        
-        CompletableFuture<Void> future = new CompletableFuture<>();
-        requestQueue.offer(future);
-        
-        future.thenRunAsync(() -> {
-            try {
-                performPlayerSync(player, stats);
-            } catch (Exception e) {
-                logger.severe("Error syncing player stats for " + player.getName(), e);
-            }
-        });
-        
-        processQueue();
+        syncPlayerStats(player.getUniqueId(), player.getName(), stats);
     }
     
-    private void performPlayerSync(Player player, Map<String, Object> stats) {
-        try {
-            // Prepare player data
-            JsonObject playerData = new JsonObject();
-            playerData.addProperty("uuid", player.getUniqueId().toString());
-            playerData.addProperty("name", player.getName());
-            playerData.addProperty("last_seen", System.currentTimeMillis());
-            
-            // Prepare stats data
-            JsonObject statsData = new JsonObject();
-            for (Map.Entry<String, Object> entry : stats.entrySet()) {
-                if (entry.getValue() != null) {
-                    statsData.addProperty(entry.getKey(), entry.getValue().toString());
-                }
-            }
-            
-            // UPSERT player data
-            upsertPlayerData(playerData);
-            
-            // UPSERT stats data
-            JsonObject statsRecord = new JsonObject();
-            statsRecord.addProperty("player_uuid", player.getUniqueId().toString());
-            statsRecord.add("stats", statsData);
-            statsRecord.addProperty("last_updated", System.currentTimeMillis());
-            
-            upsertStatsData(statsRecord);
-            
-            logger.debug("Successfully synced stats for player: " + player.getName() + " (" + player.getUniqueId() + ")");
-            
-        } catch (Exception e) {
-            logger.severe("Failed to sync player stats for " + player.getName() + " (" + player.getUniqueId() + ")", e);
-        }
+    /**
+     * Utility method for upserts with retry and throttling.
+     * @return false if it gave up on an error worth retrying later (5xx, 429, network), true otherwise
+     */
+    private boolean performUpsertWithRetry(Request request, String context, int maxRetries) {
+        return upsertWithRetry(request, context, maxRetries) != UpsertResult.FAILED;
     }
     
-    // Utility method for upserts with retry and throttling
-    private void performUpsertWithRetry(Request request, String context, int maxRetries) {
+    private UpsertResult upsertWithRetry(Request request, String context, int maxRetries) {
         int attempt = 0;
         long delay = batchDelayMs;
         while (attempt <= maxRetries) {
             try (Response response = httpClient.newCall(request).execute()) {
                 if (response.isSuccessful()) {
-                    return;
+                    return UpsertResult.SENT;
                 } else {
                     // Special handling for 409 Conflict (duplicate key): this is expected for upserts
                     if (response.code() == 409) {
                         // Do not log anything for 409 upsert conflicts
-                        return;
+                        return UpsertResult.CONFLICT;
                     }
                     String responseBody = response.body() != null ? response.body().string() : "";
                     logger.warning("Failed to upsert " + context + ": " + response.code() + " " + response.message());
@@ -230,7 +230,8 @@ public class SupabaseManager {
                             delay *= 2;
                             continue;
                         }
-                        break;
+                        // A rejected row won't be accepted later either, so it isn't kept for replay
+                        return UpsertResult.REJECTED;
                     }
                 }
             } catch (IOException e) {
@@ -240,82 +241,208 @@ public class SupabaseManager {
                 delay *= 2;
             }
         }
+        return UpsertResult.FAILED;
     }
     
-    private void upsertPlayerData(JsonObject playerData) throws IOException {
-        String url = supabaseUrl + "/rest/v1/players";
-                    logger.supabaseRequest("Connecting to Supabase");
-        RequestBody body = RequestBody.create(MediaType.parse("application/json"), playerData.toString());
-        Request request = new Request.Builder()
-                .url(url)
-                .addHeader("apikey", supabaseKey)
-                .addHeader("Authorization", "Bearer " + supabaseKey)
-                .addHeader("Content-Type", "application/json")
-                .addHeader("Prefer", "resolution=merge-duplicates")
-                .post(body)
-                .build();
-        performUpsertWithRetry(request, "player data", 3);
+    /**
+     * Queue a request on the dispatcher. Waits up to timeout_seconds for room when the queue is full,
+     * except on the main thread, where a full queue drops the request instead of stalling the server.
+     */
+    private boolean dispatch(String context, Runnable task) {
+        if (dispatcher == null) {
+            logger.warning("Supabase request queue is not running, dropped " + context);
+            return false;
+        }
+        long timeoutMillis = Bukkit.isPrimaryThread() ? 0L : timeoutSeconds * 1000L;
+        if (!dispatcher.submit(task, timeoutMillis)) {
+            logger.warning("Supabase request queue is full (" + dispatcher.getQueued() + " waiting), dropped " + context);
+            return false;
+        }
+        return true;
     }
     
-    private void upsertStatsData(JsonObject statsData) throws IOException {
-        String url = supabaseUrl + "/rest/v1/player_stats";
-        RequestBody body = RequestBody.create(MediaType.parse("application/json"), statsData.toString());
-        Request request = new Request.Builder()
-                .url(url)
-                .addHeader("apikey", supabaseKey)
-                .addHeader("Authorization", "Bearer " + supabaseKey)
-                .addHeader("Content-Type", "application/json")
-                .addHeader("Prefer", "resolution=merge-duplicates")
-                .post(body)
-                .build();
-        performUpsertWithRetry(request, "stats data", 3);
+    /**
+     * Write rows to the outbox, then queue the request that sends them. Rows whose request fails
+     * or never runs stay in the outbox for the next replay.
+     * @param send Sends the rows, returning false if they should be replayed
+     * @return Completes with true once the rows are safe: written to the outbox, or sent when
+     *         there is no outbox. False if they were lost.
+     */
+    private CompletableFuture<Boolean> dispatchDurable(String context, List<SyncOutbox.Entry> entries, BooleanSupplier send) {
+        SyncOutbox.Segment segment = outbox != null ? outbox.append(entries) : null;
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        if (segment != null) {
+            // A failed send is replayed from the outbox
+            result.complete(true);
+        }
+        boolean queued = dispatch(context, () -> {
+            boolean sent = false;
+            outboxSendLock.readLock().lock();
+            try {
+                sent = send.getAsBoolean();
+            } finally {
+                outboxSendLock.readLock().unlock();
+                if (segment != null) {
+                    outbox.complete(segment, sent);
+                }
+                result.complete(sent);
+            }
+        });
+        if (!queued) {
+            if (segment != null) {
+                outbox.complete(segment, false);
+            }
+            result.complete(false);
+        }
+        return result;
     }
     
-    private void processQueue() {
-        if (isProcessing) return;
-        
-        isProcessing = true;
-        new Thread(() -> {
-            while (!requestQueue.isEmpty()) {
-                CompletableFuture<Void> future = requestQueue.poll();
-                if (future != null) {
-                    future.complete(null);
+    private void queueOutboxReplay() {
+        if (outbox == null || !outbox.needsReplay() || !outboxReplayQueued.compareAndSet(false, true)) {
+            return;
+        }
+        if (!dispatch("outbox replay", this::replayOutbox)) {
+            outboxReplayQueued.set(false);
+        }
+    }
+    
+    /**
+     * Send the latest row per key from every outbox segment, grouped by table in the order the
+     * tables were first written, batch_size rows per request. The segments are only deleted
+     * if every request went through. Live sends wait while a replay runs, so rows written to the
+     * outbox after the replay started always reach Supabase after the replayed ones.
+     */
+    private void replayOutbox() {
+        outboxSendLock.writeLock().lock();
+        try {
+            SyncOutbox.Replay replay = outbox.startReplay();
+            Map<String, List<String>> rowsByPath = new LinkedHashMap<>();
+            for (SyncOutbox.Entry entry : replay.getEntries()) {
+                rowsByPath.computeIfAbsent(entry.getPath(), path -> new ArrayList<>()).add(entry.getJson());
+            }
+            for (Map.Entry<String, List<String>> table : rowsByPath.entrySet()) {
+                if (!upsertJsonRows(table.getKey(), table.getValue(), "replayed " + table.getKey())) {
+                    logger.warning("Supabase outbox replay failed, keeping " + replay.getSegmentCount() + " segments for the next attempt");
+                    return;
                 }
-                
-                try {
-                    Thread.sleep(batchDelayMs);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
+            }
+            outbox.finishReplay(replay);
+            logger.info("Replayed " + replay.getEntries().size() + " rows from the Supabase outbox");
+        } catch (IOException e) {
+            logger.warning("Could not read the Supabase outbox: " + e.getMessage());
+        } finally {
+            outboxSendLock.writeLock().unlock();
+            outboxReplayQueued.set(false);
+        }
+    }
+    
+    /**
+     * Upsert JSON rows to one path, batch_size rows per request and closing a request early
+     * once its body would exceed max_request_bytes.
+     * @return false if a request failed and should be retried later
+     */
+    private boolean upsertJsonRows(String path, List<String> rows, String context) {
+        List<String> batch = new ArrayList<>();
+        long bodyBytes = 1;
+        for (String json : rows) {
+            long jsonBytes = utf8Length(json);
+            if (!batch.isEmpty() && (batch.size() == batchSize || bodyBytes + jsonBytes + 1 > maxRequestBytes)) {
+                if (!sendRows(path, batch, context)) {
+                    return false;
                 }
+                batch = new ArrayList<>();
+                bodyBytes = 1;
+            }
+            batch.add(json);
+            bodyBytes += jsonBytes + 1;
+        }
+        return batch.isEmpty() || sendRows(path, batch, context);
+    }
+    
+    /**
+     * Upsert rows in one request. When Supabase rejects the request, the rows are sent again in
+     * halves until the rejected ones are found, so one bad row doesn't take the rest with it.
+     * Rows rejected on their own are logged and dropped, they won't be accepted later either.
+     * A conflict is split the same way; a single conflicting row already exists and counts as sent.
+     * @return false if a request failed and should be retried later
+     */
+    private boolean sendRows(String path, List<String> rows, String context) {
+        String body = "[" + String.join(",", rows) + "]";
+        UpsertResult result = upsertWithRetry(buildUpsertRequest(path, body), rows.size() + " " + context + " rows", 3);
+        if (result == UpsertResult.CONFLICT && rows.size() == 1) {
+            return true;
+        }
+        if (result != UpsertResult.REJECTED && result != UpsertResult.CONFLICT) {
+            return result == UpsertResult.SENT;
+        }
+        if (rows.size() == 1) {
+            logger.warning("Supabase rejected a " + context + " row, dropping it: " + rows.get(0));
+            return true;
+        }
+        int half = rows.size() / 2;
+        return sendRows(path, rows.subList(0, half), context) && sendRows(path, rows.subList(half, rows.size()), context);
+    }
+    
+    /**
+     * @return Bytes the string takes as UTF-8, which is how request bodies are sent
+     */
+    private static long utf8Length(String text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
             }
-            isProcessing = false;
-        }).start();
+        }
+        return bytes;
+    }
+    
+    /**
+     * Run a one-off blocking call on the remote I/O executor instead of a Bukkit async worker.
+     */
+    private void runRemote(Runnable task) {
+        try {
+            remoteExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Skipping Supabase request, the plugin is shutting down");
+        }
+    }
+    
+    /**
+     * @return Queue depth and counters of the stat upload queue, or null if it isn't running
+     */
+    public String getQueueMetrics() {
+        return dispatcher != null ? dispatcher.describe() : null;
     }
     
     public void syncAllPlayers(Map<Player, Map<String, Object>> allPlayerStats) {
         if (!enabled) return;
         
         logger.debug("Syncing all players to Supabase...");
-        int syncedCount = 0;
-        
+        Map<UUID, Map<String, Object>> statsByUUID = new LinkedHashMap<>();
+        Map<UUID, String> playerNames = new HashMap<>();
         for (Map.Entry<Player, Map<String, Object>> entry : allPlayerStats.entrySet()) {
-            Player player = entry.getKey();
-            Map<String, Object> stats = entry.getValue();
-            
-            syncPlayerStats(player, stats);
-            syncedCount++;
-            
-            // Rate limiting
-            try {
-                Thread.sleep(batchDelayMs);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            }
+            statsByUUID.put(entry.getKey().getUniqueId(), entry.getValue());
+            playerNames.put(entry.getKey().getUniqueId(), entry.getKey().getName());
         }
         
-        logger.debug("Synced " + syncedCount + " players to Supabase");
+        // Grouped into bulk requests, the queue spaces them by batch_delay_ms
+        syncPlayerStatsBulk(statsByUUID, playerNames);
+    }
+    
+    public int getBatchSize() {
+        return batchSize;
+    }
+    
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
     }
     
     public void onPlayerQuit(Player player, Map<String, Object> stats) {
@@ -330,6 +457,18 @@ public class SupabaseManager {
     
     public void shutdown() {
         enabled = false;
+        if (outboxReplayTask != null) {
+            outboxReplayTask.cancel();
+        }
+        if (dispatcher != null) {
+            // Give queued uploads a moment to finish without holding up the server stop
+            dispatcher.shutdown(5000L);
+        }
+        if (outbox != null) {
+            // Unsent rows stay on disk and are replayed on the next start
+            outbox.close();
+        }
+        httpClient.connectionPool().evictAll();
         if (connection != null) {
             try {
                 connection.close();
@@ -341,55 +480,123 @@ public class SupabaseManager {
     
     public void syncPlayerStats(UUID uuid, String name, Map<String, Object> stats) {
         if (!enabled) return;
+        // A bulk request of one, so the rows go through the outbox like a full sync
+        syncPlayerStatsBulk(Collections.singletonMap(uuid, stats), Collections.singletonMap(uuid, name));
+    }
+    
+    private JsonObject buildPlayerRecord(UUID uuid, String name) {
+        JsonObject playerData = new JsonObject();
+        playerData.addProperty("uuid", uuid.toString());
+        playerData.addProperty("name", name);
+        // Send as BIGINT (milliseconds since epoch) as expected by the schema
+        playerData.addProperty("last_seen", System.currentTimeMillis());
+        return playerData;
+    }
+    
+    private JsonObject buildStatsRecord(UUID uuid, Map<String, Object> stats) {
+        JsonObject statsData = new JsonObject();
+        for (Map.Entry<String, Object> entry : stats.entrySet()) {
+            if (entry.getValue() != null) {
+                statsData.addProperty(entry.getKey(), entry.getValue().toString());
+            }
+        }
+        
+        JsonObject statsRecord = new JsonObject();
+        statsRecord.addProperty("player_uuid", uuid.toString());
+        statsRecord.add("stats", statsData);
+        // Send as BIGINT (milliseconds since epoch) as expected by the schema
+        statsRecord.addProperty("last_updated", System.currentTimeMillis());
+        return statsRecord;
+    }
+    
+    /**
+     * Upsert many players' rows into /players and /player_stats with JSON array bodies. Players are
+     * grouped up to batch_size per request, and a group is closed early once its stats body would
+     * exceed max_request_bytes. Each group is queued like a single player sync.
+     * @param allStats Flat stats per player
+     * @param playerNames Display name per player
+     * @return Completes with true once every player's rows were sent or written to the outbox
+     */
+    public CompletableFuture<Boolean> syncPlayerStatsBulk(Map<UUID, Map<String, Object>> allStats, Map<UUID, String> playerNames) {
+        if (!enabled) return CompletableFuture.completedFuture(false);
+        if (allStats.isEmpty()) return CompletableFuture.completedFuture(true);
         
-        CompletableFuture<Void> future = new CompletableFuture<>();
-        requestQueue.offer(future);
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
         
-        future.thenRunAsync(() -> {
+        List<String> players = new ArrayList<>();
+        List<String> stats = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        long statsBytes = 1;
+        int requests = 0;
+        for (Map.Entry<UUID, Map<String, Object>> entry : allStats.entrySet()) {
+            String playerJson = buildPlayerRecord(entry.getKey(), playerNames.get(entry.getKey())).toString();
+            String statsJson = buildStatsRecord(entry.getKey(), entry.getValue()).toString();
+            long statsJsonBytes = utf8Length(statsJson);
+            if (!stats.isEmpty() && statsBytes + statsJsonBytes + 1 > maxRequestBytes) {
+                results.add(queueBulkUpsert(players, stats, keys));
+                requests++;
+                players = new ArrayList<>();
+                stats = new ArrayList<>();
+                keys = new ArrayList<>();
+                statsBytes = 1;
+            }
+            players.add(playerJson);
+            stats.add(statsJson);
+            keys.add(entry.getKey().toString());
+            statsBytes += statsJsonBytes + 1;
+            if (stats.size() == batchSize) {
+                results.add(queueBulkUpsert(players, stats, keys));
+                requests++;
+                players = new ArrayList<>();
+                stats = new ArrayList<>();
+                keys = new ArrayList<>();
+                statsBytes = 1;
+            }
+        }
+        if (!stats.isEmpty()) {
+            results.add(queueBulkUpsert(players, stats, keys));
+            requests++;
+        }
+        logger.debug("Queued " + allStats.size() + " players for Supabase in " + requests + " bulk requests");
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+            .thenApply(done -> results.stream().allMatch(CompletableFuture::join));
+    }
+    
+    private CompletableFuture<Boolean> queueBulkUpsert(List<String> players, List<String> stats, List<String> keys) {
+        int playerCount = players.size();
+        List<SyncOutbox.Entry> entries = new ArrayList<>(playerCount * 2);
+        for (int i = 0; i < playerCount; i++) {
+            entries.add(new SyncOutbox.Entry("/rest/v1/players", keys.get(i), players.get(i)));
+        }
+        for (int i = 0; i < playerCount; i++) {
+            entries.add(new SyncOutbox.Entry("/rest/v1/player_stats", keys.get(i), stats.get(i)));
+        }
+        return dispatchDurable("stats of " + playerCount + " players", entries, () -> {
             try {
-                performPlayerSync(uuid, name, stats);
+                // Players first, player_stats references them
+                boolean sent = sendRows("/rest/v1/players", players, "players")
+                    && sendRows("/rest/v1/player_stats", stats, "player_stats");
+                if (sent) {
+                    logger.debug("Bulk synced stats for " + playerCount + " players");
+                }
+                return sent;
             } catch (Exception e) {
-                logger.severe("Error syncing player stats for " + name + " (" + uuid + ")", e);
+                logger.severe("Error bulk syncing stats for " + playerCount + " players", e);
+                return false;
             }
         });
-        
-        processQueue();
     }
     
-    private void performPlayerSync(UUID uuid, String name, Map<String, Object> stats) {
-        try {
-            // Prepare player data
-            JsonObject playerData = new JsonObject();
-            playerData.addProperty("uuid", uuid.toString());
-            playerData.addProperty("name", name);
-            // Send as BIGINT (milliseconds since epoch) as expected by the schema
-            playerData.addProperty("last_seen", System.currentTimeMillis());
-            
-            // Prepare stats data
-            JsonObject statsData = new JsonObject();
-            for (Map.Entry<String, Object> entry : stats.entrySet()) {
-                if (entry.getValue() != null) {
-                    statsData.addProperty(entry.getKey(), entry.getValue().toString());
-                }
-            }
-            
-            // UPSERT player data
-            upsertPlayerData(playerData);
-            
-            // UPSERT stats data
-            JsonObject statsRecord = new JsonObject();
-            statsRecord.addProperty("player_uuid", uuid.toString());
-            statsRecord.add("stats", statsData);
-            // Send as BIGINT (milliseconds since epoch) as expected by the schema
-            statsRecord.addProperty("last_updated", System.currentTimeMillis());
-            
-            upsertStatsData(statsRecord);
-            
-            logger.debug("Successfully synced stats for offline player: " + name);
-            
-        } catch (Exception e) {
-            logger.severe("Failed to sync player stats for " + name + " (" + uuid + ")", e);
-        }
+    private Request buildUpsertRequest(String path, String json) {
+        RequestBody body = RequestBody.create(MediaType.parse("application/json"), json);
+        return new Request.Builder()
+                .url(supabaseUrl + path)
+                .addHeader("apikey", supabaseKey)
+                .addHeader("Authorization", "Bearer " + supabaseKey)
+                .addHeader("Content-Type", "application/json")
+                .addHeader("Prefer", "resolution=merge-duplicates")
+                .post(body)
+                .build();
     }
     
     public String getLeaderboard(String stat, int limit) {
@@ -613,176 +820,136 @@ public class SupabaseManager {
         }
     }
 
-    // --- New upsert methods for awards, medals, and points ---
-    public void upsertPlayerAward(UUID uuid, String name, String awardId, String awardName, String awardDescription, double points, long awardedAt, long statValue, String statPath) {
+    private JsonObject buildAwardRecord(UUID uuid, String awardId, String awardName, String awardDescription, String tier, String medal,
+                                        double points, long statValue, String statPath, long awardedAt) {
+        // Do NOT include 'id' in the upsert body! Every row carries the same keys so rows can be sent in bulk
+        JsonObject awardData = new JsonObject();
+        awardData.addProperty("player_uuid", uuid.toString());
+        awardData.addProperty("award_id", awardId);
+        awardData.addProperty("award_name", awardName);
+        awardData.addProperty("award_description", awardDescription != null && !awardDescription.isEmpty() ? awardDescription : awardName);
+        awardData.addProperty("tier", tier);
+        awardData.addProperty("medal", medal);
+        awardData.addProperty("points", points);
+        awardData.addProperty("stat_value", statValue);
+        awardData.addProperty("stat_path", statPath != null ? statPath : "");
+        awardData.addProperty("achieved_at", awardedAt);
+        return awardData;
+    }
+    
+    /**
+     * Upsert one player_awards row per medal the players hold, in batch_size row requests.
+     * @param players Players whose medals to upload
+     * @param definitions Award definitions by ID, for names, tiers and stat paths
+     */
+    public void upsertPlayerAwards(Collection<AwardManager.PlayerAwards> players, Map<String, AwardManager.AwardDefinition> definitions) {
         if (!enabled) return;
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                String tier = "stone"; String medal = "bronze";
-                if (points >= 6.0) { tier = "diamond"; medal = "gold"; }
-                else if (points >= 4.0) { tier = "diamond"; medal = "silver"; }
-                else if (points >= 3.0) { tier = "diamond"; medal = "bronze"; }
-                else if (points >= 2.0) { tier = "iron"; medal = "gold"; }
-                else if (points >= 1.0) { tier = "iron"; medal = "silver"; }
-                else if (points >= 0.5) { tier = "stone"; medal = "gold"; }
-                // Do NOT include 'id' in the upsert body!
-                JsonObject awardData = new JsonObject();
-                awardData.addProperty("player_uuid", uuid.toString());
-                awardData.addProperty("award_id", awardId);
-                awardData.addProperty("award_name", awardName);
-                if (awardDescription != null && !awardDescription.isEmpty()) {
-                    awardData.addProperty("award_description", awardDescription);
-                }
-                awardData.addProperty("tier", tier);
-                awardData.addProperty("medal", medal);
-                awardData.addProperty("points", points);
-                if (statValue > 0) awardData.addProperty("stat_value", statValue);
-                if (statPath != null && !statPath.isEmpty()) awardData.addProperty("stat_path", statPath);
-                awardData.addProperty("achieved_at", awardedAt);
-                String url = supabaseUrl + "/rest/v1/player_awards";
-                RequestBody body = RequestBody.create(MediaType.parse("application/json"), awardData.toString());
-                Request request = new Request.Builder()
-                        .url(url)
-                        .addHeader("apikey", supabaseKey)
-                        .addHeader("Authorization", "Bearer " + supabaseKey)
-                        .addHeader("Content-Type", "application/json")
-                        .addHeader("Prefer", "resolution=merge-duplicates")
-                        .post(body)
-                        .build();
-                performUpsertWithRetry(request, "player_awards for " + name, 3);
-                updatePlayerMedalsManually(uuid, name, medal);
-                updatePlayerPointsManually(uuid, name, points);
-            } catch (Exception e) {
-                logger.severe("Error upserting player_awards for " + name, e);
+        List<JsonObject> rows = new ArrayList<>();
+        for (AwardManager.PlayerAwards playerAward : players) {
+            for (AwardManager.PlayerMedal medal : new ArrayList<>(playerAward.getMedals())) {
+                AwardManager.AwardDefinition award = definitions.get(medal.getAwardId());
+                String awardName = award != null ? award.getName() : medal.getAwardId();
+                rows.add(buildAwardRecord(playerAward.getPlayerUUID(), medal.getAwardId(), awardName,
+                    award != null ? award.getDescription() : awardName, award != null ? award.getTier() : "stone",
+                    medal.getMedalType(), medal.getPoints(), medal.getStatValue(), award != null ? award.getStatPath() : "", medal.getAwardedAt()));
             }
-        });
+        }
+        queueBulkRows("/rest/v1/player_awards?on_conflict=player_uuid,award_id", rows, "player_awards", false);
     }
-
-    public void upsertPlayerMedal(UUID uuid, String name, String awardId, String medalType, double points, int rank, long statValue, long awardedAt) {
+    
+    /**
+     * Upsert each player's medal totals as counted from their PlayerAwards, in batch_size row requests.
+     */
+    public void upsertPlayerMedalCounts(Collection<AwardManager.PlayerAwards> players) {
         if (!enabled) return;
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                // Get current medal counts for this player
-                String getUrl = supabaseUrl + "/rest/v1/player_medals?player_uuid=eq." + uuid;
-                Request getRequest = new Request.Builder()
-                        .url(getUrl)
-                        .addHeader("apikey", supabaseKey)
-                        .addHeader("Authorization", "Bearer " + supabaseKey)
-                        .build();
-                
-                int bronzeCount = 0, silverCount = 0, goldCount = 0, totalMedals = 0;
-                try (Response getResponse = httpClient.newCall(getRequest).execute()) {
-                    if (getResponse.isSuccessful() && getResponse.body() != null) {
-                        String responseBody = getResponse.body().string();
-                        if (!responseBody.equals("[]")) {
-                            JsonReader reader = new JsonReader(new StringReader(responseBody));
-                            reader.setLenient(true);
-                            com.google.gson.JsonArray arr = JsonParser.parseReader(reader).getAsJsonArray();
-                            if (arr.size() > 0) {
-                                com.google.gson.JsonObject existing = arr.get(0).getAsJsonObject();
-                                bronzeCount = existing.has("bronze_count") ? existing.get("bronze_count").getAsInt() : 0;
-                                silverCount = existing.has("silver_count") ? existing.get("silver_count").getAsInt() : 0;
-                                goldCount = existing.has("gold_count") ? existing.get("gold_count").getAsInt() : 0;
-                                totalMedals = existing.has("total_medals") ? existing.get("total_medals").getAsInt() : 0;
-                            }
-                        }
-                    }
-                }
-                
-                // Update counts based on medal type
-                switch (medalType.toLowerCase()) {
-                    case "bronze":
-                        bronzeCount++;
-                        break;
-                    case "silver":
-                        silverCount++;
-                        break;
-                    case "gold":
-                        goldCount++;
-                        break;
-                }
-                totalMedals = bronzeCount + silverCount + goldCount;
-                
-                // Upsert the updated medal counts
-                JsonObject medalData = new JsonObject();
-                medalData.addProperty("player_uuid", uuid.toString());
-                medalData.addProperty("bronze_count", bronzeCount);
-                medalData.addProperty("silver_count", silverCount);
-                medalData.addProperty("gold_count", goldCount);
-                medalData.addProperty("total_medals", totalMedals);
-                
-                String url = supabaseUrl + "/rest/v1/player_medals";
-                RequestBody body = RequestBody.create(MediaType.parse("application/json"), medalData.toString());
-                Request request = new Request.Builder()
-                        .url(url)
-                        .addHeader("apikey", supabaseKey)
-                        .addHeader("Authorization", "Bearer " + supabaseKey)
-                        .addHeader("Content-Type", "application/json")
-                        .addHeader("Prefer", "resolution=merge-duplicates")
-                        .post(body)
-                        .build();
-                performUpsertWithRetry(request, "player_medals for " + name, 3);
-            } catch (Exception e) {
-                logger.severe("Error upserting player_medals for " + name, e);
+        List<JsonObject> rows = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (AwardManager.PlayerAwards playerAward : players) {
+            JsonObject medalData = new JsonObject();
+            medalData.addProperty("player_uuid", playerAward.getPlayerUUID().toString());
+            if (playerAward.getPlayerName() != null && !playerAward.getPlayerName().isBlank()) {
+                medalData.addProperty("player_name", playerAward.getPlayerName());
             }
-        });
+            medalData.addProperty("bronze_count", playerAward.getBronzeMedals());
+            medalData.addProperty("silver_count", playerAward.getSilverMedals());
+            medalData.addProperty("gold_count", playerAward.getGoldMedals());
+            medalData.addProperty("total_medals", playerAward.getTotalMedals());
+            medalData.addProperty("last_updated", now);
+            rows.add(medalData);
+        }
+        queueBulkRows("/rest/v1/player_medals", rows, "player_medals", true);
     }
-
-    public void upsertPlayerPoint(UUID uuid, String name, double totalPoints, int bronzeCount, int silverCount, int goldCount) {
+    
+    /**
+     * Upsert each player's total points as computed from their PlayerAwards, in batch_size row requests.
+     */
+    public void upsertPlayerPoints(Collection<AwardManager.PlayerAwards> players) {
         if (!enabled) return;
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                JsonObject pointData = new JsonObject();
-                pointData.addProperty("player_uuid", uuid.toString());
-                String safeNameForPoints = resolvePlayerName(uuid, name);
-                pointData.addProperty("player_name", safeNameForPoints);
-                pointData.addProperty("total_points", totalPoints);
-                pointData.addProperty("last_updated", System.currentTimeMillis());
-                String url = supabaseUrl + "/rest/v1/player_points?on_conflict=player_uuid";
-                RequestBody body = RequestBody.create(MediaType.parse("application/json"), pointData.toString());
-                Request request = new Request.Builder()
-                        .url(url)
-                        .addHeader("apikey", supabaseKey)
-                        .addHeader("Authorization", "Bearer " + supabaseKey)
-                        .addHeader("Content-Type", "application/json")
-                        .addHeader("Prefer", "resolution=merge-duplicates")
-                        .post(body)
-                        .build();
-                performUpsertWithRetry(request, "player_points for " + name, 3);
-            } catch (Exception e) {
-                logger.severe("Error upserting player_points for " + name, e);
+        List<JsonObject> rows = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (AwardManager.PlayerAwards playerAward : players) {
+            JsonObject pointData = new JsonObject();
+            pointData.addProperty("player_uuid", playerAward.getPlayerUUID().toString());
+            if (playerAward.getPlayerName() != null && !playerAward.getPlayerName().isBlank()) {
+                pointData.addProperty("player_name", playerAward.getPlayerName());
             }
-        });
+            pointData.addProperty("total_points", playerAward.getTotalPoints());
+            pointData.addProperty("last_updated", now);
+            rows.add(pointData);
+        }
+        queueBulkRows("/rest/v1/player_points?on_conflict=player_uuid", rows, "player_points", true);
     }
-
-    public void upsertPlayerMedalCounts(UUID uuid, String name, int bronzeCount, int silverCount, int goldCount, int totalMedals) {
-        if (!enabled) return;
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                JsonObject medalData = new JsonObject();
-                medalData.addProperty("player_uuid", uuid.toString());
-                String safeNameForMedals = resolvePlayerName(uuid, name);
-                medalData.addProperty("player_name", safeNameForMedals);
-                medalData.addProperty("bronze_count", bronzeCount);
-                medalData.addProperty("silver_count", silverCount);
-                medalData.addProperty("gold_count", goldCount);
-                medalData.addProperty("total_medals", totalMedals);
-                medalData.addProperty("last_updated", System.currentTimeMillis());
-                
-                String url = supabaseUrl + "/rest/v1/player_medals";
-                RequestBody body = RequestBody.create(MediaType.parse("application/json"), medalData.toString());
-                Request request = new Request.Builder()
-                        .url(url)
-                        .addHeader("apikey", supabaseKey)
-                        .addHeader("Authorization", "Bearer " + supabaseKey)
-                        .addHeader("Content-Type", "application/json")
-                        .addHeader("Prefer", "resolution=merge-duplicates")
-                        .post(body)
-                        .build();
-                performUpsertWithRetry(request, "player_medals for " + name, 3);
-            } catch (Exception e) {
-                logger.severe("Error upserting player_medals for " + name, e);
+    
+    /**
+     * Queue rows for one table as a single dispatcher task that sends them batch_size rows per request.
+     * Rows are keyed by player_uuid plus award_id when present, which is what the outbox coalesces on.
+     * @param resolveNames Fill in player_name on rows that lack it before they are written to the outbox.
+     *        Names the server knows are filled in right away. Rows needing a Supabase lookup are
+     *        resolved and queued on the remote executor, so the caller never waits on HTTP.
+     */
+    private void queueBulkRows(String path, List<JsonObject> rows, String table, boolean resolveNames) {
+        if (rows.isEmpty()) return;
+        if (resolveNames) {
+            List<JsonObject> named = new ArrayList<>(rows.size());
+            List<JsonObject> unnamed = new ArrayList<>();
+            for (JsonObject row : rows) {
+                if (!row.has("player_name")) {
+                    String name = serverPlayerName(UUID.fromString(row.get("player_uuid").getAsString()));
+                    if (name == null) {
+                        unnamed.add(row);
+                        continue;
+                    }
+                    row.addProperty("player_name", name);
+                }
+                named.add(row);
+            }
+            if (!unnamed.isEmpty()) {
+                runRemote(() -> {
+                    for (JsonObject row : unnamed) {
+                        row.addProperty("player_name", resolvePlayerName(UUID.fromString(row.get("player_uuid").getAsString()), null));
+                    }
+                    queueBulkRows(path, unnamed, table, false);
+                });
+            }
+            rows = named;
+            if (rows.isEmpty()) return;
+        }
+        List<String> json = new ArrayList<>(rows.size());
+        List<SyncOutbox.Entry> entries = new ArrayList<>(rows.size());
+        int rowCount = rows.size();
+        for (JsonObject row : rows) {
+            String uuid = row.get("player_uuid").getAsString();
+            String key = row.has("award_id") ? SyncOutbox.key(uuid, row.get("award_id").getAsString()) : uuid;
+            String rowJson = row.toString();
+            json.add(rowJson);
+            entries.add(new SyncOutbox.Entry(path, key, rowJson));
+        }
+        dispatchDurable(rowCount + " " + table + " rows", entries, () -> {
+            boolean sent = upsertJsonRows(path, json, table);
+            if (sent) {
+                logger.debug("Upserted " + rowCount + " " + table + " rows");
             }
+            return sent;
         });
     }
 
@@ -797,7 +964,6 @@ public class SupabaseManager {
         logger.debug("Skipping leaderboard upsert - using view instead of table");
     }
     
-    // Manual update methods since triggers are disabled
     /**
      * Resolve a non-null player name for Supabase writes.
      * Order of precedence:
@@ -810,12 +976,10 @@ public class SupabaseManager {
         if (providedName != null && !providedName.trim().isEmpty()) {
             return providedName;
         }
-        try {
-            String bukkitName = plugin.getServer().getOfflinePlayer(uuid).getName();
-            if (bukkitName != null && !bukkitName.trim().isEmpty()) {
-                return bukkitName;
-            }
-        } catch (Exception ignored) { }
+        String bukkitName = serverPlayerName(uuid);
+        if (bukkitName != null) {
+            return bukkitName;
+        }
 
         try {
             String body = rawGet("/rest/v1/players?uuid=eq." + uuid);
@@ -838,153 +1002,19 @@ public class SupabaseManager {
         return "Unknown";
     }
 
-    private void updatePlayerMedalsManually(UUID uuid, String name, String medalType) {
-        try {
-            // First, get current medal counts
-            String getUrl = supabaseUrl + "/rest/v1/player_medals?player_uuid=eq." + uuid;
-            Request getRequest = new Request.Builder()
-                    .url(getUrl)
-                    .addHeader("apikey", supabaseKey)
-                    .addHeader("Authorization", "Bearer " + supabaseKey)
-                    .build();
-            
-            int bronzeCount = 0, silverCount = 0, goldCount = 0, totalMedals = 0;
-            
-            try (Response getResponse = httpClient.newCall(getRequest).execute()) {
-                if (getResponse.isSuccessful() && getResponse.body() != null) {
-                    String responseBody = getResponse.body().string();
-                    if (!responseBody.equals("[]")) {
-                        // Parse existing medal counts
-                        JsonReader reader = new JsonReader(new StringReader(responseBody));
-                        reader.setLenient(true);
-                        com.google.gson.JsonArray arr = JsonParser.parseReader(reader).getAsJsonArray();
-                        if (arr.size() > 0) {
-                            com.google.gson.JsonObject existing = arr.get(0).getAsJsonObject();
-                            bronzeCount = existing.has("bronze_count") ? existing.get("bronze_count").getAsInt() : 0;
-                            silverCount = existing.has("silver_count") ? existing.get("silver_count").getAsInt() : 0;
-                            goldCount = existing.has("gold_count") ? existing.get("gold_count").getAsInt() : 0;
-                            totalMedals = existing.has("total_medals") ? existing.get("total_medals").getAsInt() : 0;
-                        }
-                    }
-                }
-            }
-            
-            // Update counts based on medal type
-            switch (medalType.toLowerCase()) {
-                case "bronze":
-                    bronzeCount++;
-                    break;
-                case "silver":
-                    silverCount++;
-                    break;
-                case "gold":
-                    goldCount++;
-                    break;
-            }
-            totalMedals = bronzeCount + silverCount + goldCount;
-            
-            // Upsert updated medal counts
-            JsonObject medalData = new JsonObject();
-            medalData.addProperty("player_uuid", uuid.toString());
-            String safeNameForMedals = resolvePlayerName(uuid, name);
-            medalData.addProperty("player_name", safeNameForMedals);
-            medalData.addProperty("bronze_count", bronzeCount);
-            medalData.addProperty("silver_count", silverCount);
-            medalData.addProperty("gold_count", goldCount);
-            medalData.addProperty("total_medals", totalMedals);
-            medalData.addProperty("last_updated", System.currentTimeMillis());
-            
-            String url = supabaseUrl + "/rest/v1/player_medals";
-            RequestBody body = RequestBody.create(MediaType.parse("application/json"), medalData.toString());
-            Request request = new Request.Builder()
-                    .url(url)
-                    .addHeader("apikey", supabaseKey)
-                    .addHeader("Authorization", "Bearer " + supabaseKey)
-                    .addHeader("Content-Type", "application/json")
-                    .addHeader("Prefer", "resolution=merge-duplicates")
-                    .post(body)
-                    .build();
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (!response.isSuccessful()) {
-                    // 409 Conflict is expected for upserts with duplicate keys
-                    if (response.code() != 409) {
-                        logger.warning("Failed to update player_medals manually: " + response.code() + " " + response.message());
-                        if (response.body() != null) {
-                            logger.warning("Response body: " + response.body().string());
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            logger.severe("Error updating player_medals manually for " + name, e);
-        }
-    }
-    
-    private void updatePlayerPointsManually(UUID uuid, String name, double points) {
+    /**
+     * @return The name the server has for a player, or null if it doesn't know one. Never blocks on HTTP.
+     */
+    private String serverPlayerName(UUID uuid) {
         try {
-            // First, get current points
-            String getUrl = supabaseUrl + "/rest/v1/player_points?player_uuid=eq." + uuid;
-            Request getRequest = new Request.Builder()
-                    .url(getUrl)
-                    .addHeader("apikey", supabaseKey)
-                    .addHeader("Authorization", "Bearer " + supabaseKey)
-                    .build();
-            
-            double currentPoints = 0.0;
-            
-            try (Response getResponse = httpClient.newCall(getRequest).execute()) {
-                if (getResponse.isSuccessful() && getResponse.body() != null) {
-                    String responseBody = getResponse.body().string();
-                    if (!responseBody.equals("[]")) {
-                        // Parse existing points
-                        JsonReader reader = new JsonReader(new StringReader(responseBody));
-                        reader.setLenient(true);
-                        com.google.gson.JsonArray arr = JsonParser.parseReader(reader).getAsJsonArray();
-                        if (arr.size() > 0) {
-                            com.google.gson.JsonObject existing = arr.get(0).getAsJsonObject();
-                            currentPoints = existing.has("total_points") ? existing.get("total_points").getAsDouble() : 0.0;
-                        }
-                    }
-                }
-            }
-            
-            // Add new points
-            currentPoints += points;
-            
-            // Upsert updated points
-            JsonObject pointData = new JsonObject();
-            pointData.addProperty("player_uuid", uuid.toString());
-            String safeNameForPoints = resolvePlayerName(uuid, name);
-            pointData.addProperty("player_name", safeNameForPoints);
-            pointData.addProperty("total_points", currentPoints);
-            pointData.addProperty("last_updated", System.currentTimeMillis());
-            
-            String url = supabaseUrl + "/rest/v1/player_points?on_conflict=player_uuid";
-            RequestBody body = RequestBody.create(MediaType.parse("application/json"), pointData.toString());
-            Request request = new Request.Builder()
-                    .url(url)
-                    .addHeader("apikey", supabaseKey)
-                    .addHeader("Authorization", "Bearer " + supabaseKey)
-                    .addHeader("Content-Type", "application/json")
-                    .addHeader("Prefer", "resolution=merge-duplicates")
-                    .post(body)
-                    .build();
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (!response.isSuccessful()) {
-                    // 409 Conflict is expected for upserts with duplicate keys
-                    if (response.code() != 409) {
-                        logger.warning("Failed to update player_points manually: " + response.code() + " " + response.message());
-                        if (response.body() != null) {
-                            logger.warning("Response body: " + response.body().string());
-                        }
-                    }
-                }
+            String bukkitName = plugin.getServer().getOfflinePlayer(uuid).getName();
+            if (bukkitName != null && !bukkitName.trim().isEmpty()) {
+                return bukkitName;
             }
-        } catch (Exception e) {
-            logger.severe("Error updating player_points manually for " + name, e);
-        }
+        } catch (Exception ignored) { }
+        return null;
     }
-    
+
     // Utility method to perform a raw GET request to Supabase REST API
     public String rawGet(String urlPath) {
         if (!enabled) return "[]";
@@ -1021,7 +1051,7 @@ public class SupabaseManager {
     public void syncLevelDefinitions(List<LevelManager.LevelDefinition> playerLevels, List<LevelManager.LevelDefinition> townLevels) {
         if (!enabled) return;
         
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        runRemote(() -> {
             try {
                 // Sync player levels
                 for (LevelManager.LevelDefinition level : playerLevels) {
@@ -1082,7 +1112,7 @@ public class SupabaseManager {
     public void syncAchievementDefinitions(List<AchievementManager.AchievementDefinition> achievements) {
         if (!enabled) return;
         
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        runRemote(() -> {
             try {
                 for (AchievementManager.AchievementDefinition achievement : achievements) {
                     // Sync achievement definition
@@ -1144,7 +1174,7 @@ public class SupabaseManager {
     public void syncPlayerLevel(UUID uuid, String name, int level, int totalXP) {
         if (!enabled) return;
         
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        runRemote(() -> {
             try {
                 JsonObject playerData = new JsonObject();
                 playerData.addProperty("uuid", uuid.toString());
@@ -1179,7 +1209,7 @@ public class SupabaseManager {
     public void syncUnlockedAchievement(UUID uuid, String achievementId, int tier, int xpAwarded) {
         if (!enabled) return;
         
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        runRemote(() -> {
             try {
                 JsonObject achievementData = new JsonObject();
                 achievementData.addProperty("player_uuid", uuid.toString());
@@ -1211,7 +1241,7 @@ public class SupabaseManager {
     public void syncTownLevel(String townName, int level, int totalXP) {
         if (!enabled) return;
         
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        runRemote(() -> {
             try {
                 JsonObject townData = new JsonObject();
                 townData.addProperty("town_name", townName);
@@ -1242,7 +1272,7 @@ public class SupabaseManager {
     public void syncTownStats(String townName, Map<String, Object> stats) {
         if (!enabled) return;
         
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        runRemote(() -> {
             try {
                 JsonObject townData = new JsonObject();
                 townData.addProperty("town_name", townName);
@@ -1272,7 +1302,7 @@ public class SupabaseManager {
     public void syncTownAchievement(String townName, String achievementId, int tier, int xpAwarded) {
         if (!enabled) return;
         
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        runRemote(() -> {
             try {
                 JsonObject achievementData = new JsonObject();
                 achievementData.addProperty("town_name", townName);
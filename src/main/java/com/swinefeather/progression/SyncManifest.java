@@ -0,0 +1,175 @@
+package com.swinefeather.progression;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Remembers the last-modified time, size and content hash of every stat file that was
+ * successfully synced, so repeated syncs only re-parse and re-upload files that changed.
+ * Entries are keyed by world folder and player UUID ("world/uuid").
+ */
+public class SyncManifest {
+    private final File manifestFile;
+    private final Logger log;
+    private final Gson gson = new Gson();
+    private final Map<String, FileState> entries = new ConcurrentHashMap<>();
+    // State captured when a file was checked, recorded only once the sync of that player succeeded
+    private final Map<String, FileState> pending = new ConcurrentHashMap<>();
+
+    public SyncManifest(File manifestFile, Logger log) {
+        this.manifestFile = manifestFile;
+        this.log = log;
+    }
+
+    public void load() {
+        entries.clear();
+        if (!manifestFile.exists()) {
+            return;
+        }
+        try (Reader reader = new FileReader(manifestFile)) {
+            Type type = new TypeToken<Map<String, FileState>>(){}.getType();
+            Map<String, FileState> loaded = gson.fromJson(reader, type);
+            if (loaded != null) {
+                entries.putAll(loaded);
+            }
+        } catch (Exception e) {
+            log.warning("Failed to load sync manifest " + manifestFile.getName() + ", doing a full sync: " + e.getMessage());
+            entries.clear();
+        }
+    }
+
+    public synchronized void save() {
+        try {
+            AtomicFiles.writeText(manifestFile, false, writer -> gson.toJson(entries, writer));
+        } catch (IOException e) {
+            log.warning("Failed to save sync manifest " + manifestFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Check whether any of a player's stat files is new or changed since it was last marked synced.
+     * Files whose time or size moved are hashed, so a touched-but-identical file still counts as unchanged.
+     */
+    public boolean hasChanged(UUID playerUUID, List<File> statFiles) {
+        boolean changed = false;
+        for (File statFile : statFiles) {
+            if (hasChanged(playerUUID, statFile)) {
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Check whether any player's stat files changed. Stops at the first change found.
+     */
+    public boolean hasAnyChanged(Map<UUID, List<File>> allStatFiles) {
+        for (Map.Entry<UUID, List<File>> entry : allStatFiles.entrySet()) {
+            if (hasChanged(entry.getKey(), entry.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasChanged(UUID playerUUID, File statFile) {
+        String key = key(playerUUID, statFile);
+        FileState previous = entries.get(key);
+        long lastModified = statFile.lastModified();
+        long size = statFile.length();
+
+        if (previous != null && previous.lastModified == lastModified && previous.size == size) {
+            return false;
+        }
+
+        FileState current = new FileState(lastModified, size, hash(statFile));
+        if (previous != null && previous.size == size && current.hash != 0L && previous.hash == current.hash) {
+            // Rewritten with identical content, only the timestamp moved
+            entries.put(key, current);
+            return false;
+        }
+        pending.put(key, current);
+        return true;
+    }
+
+    /**
+     * Record a player's stat files as synced, using the state seen when they were checked.
+     */
+    public void markSynced(UUID playerUUID, List<File> statFiles) {
+        for (File statFile : statFiles) {
+            String key = key(playerUUID, statFile);
+            FileState state = pending.remove(key);
+            if (state == null) {
+                long lastModified = statFile.lastModified();
+                long size = statFile.length();
+                FileState previous = entries.get(key);
+                if (previous != null && previous.lastModified == lastModified && previous.size == size) {
+                    continue;
+                }
+                state = new FileState(lastModified, size, hash(statFile));
+            }
+            entries.put(key, state);
+        }
+    }
+
+    public void markAllSynced(Map<UUID, List<File>> allStatFiles) {
+        for (Map.Entry<UUID, List<File>> entry : allStatFiles.entrySet()) {
+            markSynced(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        pending.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static String key(UUID playerUUID, File statFile) {
+        File worldFolder = statFile.getParentFile() != null ? statFile.getParentFile().getParentFile() : null;
+        return (worldFolder != null ? worldFolder.getName() : "") + "/" + playerUUID;
+    }
+
+    private long hash(File statFile) {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = new FileInputStream(statFile)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+            return crc.getValue();
+        } catch (IOException e) {
+            log.warning("Failed to hash " + statFile.getName() + ": " + e.getMessage());
+            return 0L;
+        }
+    }
+
+    private static class FileState {
+        private final long lastModified;
+        private final long size;
+        private final long hash;
+
+        FileState(long lastModified, long size, long hash) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.hash = hash;
+        }
+    }
+}
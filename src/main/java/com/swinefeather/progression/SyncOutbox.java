@@ -0,0 +1,308 @@
+package com.swinefeather.progression;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Append-only log of upserts that haven't reached Supabase yet, kept as numbered segment files
+ * in one folder. Rows are appended before their request is queued and a segment is deleted once
+ * every request written to it went through, oldest segment first. A segment with a failed
+ * request, or one left over from before a restart, stays on disk together with every newer
+ * segment, so a replay that coalesces them in order always ends up with each row's latest state.
+ * Each line is "path TAB key TAB row json". Appends are fsynced before their request is queued.
+ */
+public class SyncOutbox {
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+
+    /**
+     * One row to upsert.
+     */
+    public static class Entry {
+        private final String path;
+        private final String key;
+        private final String json;
+
+        public Entry(String path, String key, String json) {
+            this.path = path;
+            this.key = key;
+            this.json = json;
+        }
+
+        public String getPath() { return path; }
+        public String getKey() { return key; }
+        public String getJson() { return json; }
+    }
+
+    /**
+     * A segment file and the requests written to it that haven't finished yet.
+     */
+    public static class Segment {
+        private final long id;
+        private final File file;
+        private int pending;
+        private boolean failed;
+        private boolean sealed;
+
+        private Segment(long id, File file) {
+            this.id = id;
+            this.file = file;
+        }
+
+        public long getId() { return id; }
+    }
+
+    private final File directory;
+    private final long segmentBytes;
+    private final LogManager logger;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private Segment active;
+    private FileOutputStream stream;
+    private long activeBytes;
+    private long nextId = 1;
+
+    /**
+     * @param directory Folder holding the segment files
+     * @param segmentBytes Size after which the next append starts a new segment
+     * @param logger Logger for I/O failures
+     */
+    public SyncOutbox(File directory, long segmentBytes, LogManager logger) {
+        this.directory = directory;
+        this.segmentBytes = Math.max(1024L, segmentBytes);
+        this.logger = logger;
+    }
+
+    /**
+     * Pick up segments left by an earlier run. They are sealed and marked for replay.
+     * @return Number of segments found
+     */
+    public synchronized int open() {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            logger.warning("Could not create outbox folder " + directory.getPath());
+            return 0;
+        }
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files == null) {
+            return 0;
+        }
+        List<Segment> found = new ArrayList<>();
+        for (File file : files) {
+            String name = file.getName();
+            try {
+                long id = Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+                Segment segment = new Segment(id, file);
+                segment.sealed = true;
+                segment.failed = true;
+                found.add(segment);
+            } catch (NumberFormatException e) {
+                logger.warning("Ignoring unexpected outbox file " + name);
+            }
+        }
+        found.sort((a, b) -> Long.compare(a.id, b.id));
+        for (Segment segment : found) {
+            segments.addLast(segment);
+            nextId = Math.max(nextId, segment.id + 1);
+        }
+        return found.size();
+    }
+
+    /**
+     * Write rows for one request. Pass the returned segment to complete() once the request ends.
+     * @return The segment the rows went to, or null if they couldn't be written
+     */
+    public synchronized Segment append(List<Entry> entries) {
+        try {
+            if (active == null || activeBytes >= segmentBytes) {
+                roll();
+            }
+            StringBuilder lines = new StringBuilder();
+            for (Entry entry : entries) {
+                lines.append(entry.getPath()).append('\t').append(entry.getKey()).append('\t').append(entry.getJson()).append('\n');
+            }
+            // Counted in the bytes that reach the file, so names outside ASCII don't overrun segmentBytes
+            byte[] bytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+            stream.write(bytes);
+            // Callers treat appended rows as delivered, so they have to survive a crash
+            stream.getFD().sync();
+            activeBytes += bytes.length;
+            active.pending++;
+            return active;
+        } catch (IOException e) {
+            logger.warning("Could not write to the Supabase outbox: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Record the end of a request appended earlier.
+     * @param sent false if the rows still have to be replayed
+     */
+    public synchronized void complete(Segment segment, boolean sent) {
+        segment.pending--;
+        if (!sent) {
+            segment.failed = true;
+        }
+        collect();
+    }
+
+    /**
+     * @return true if a segment holds rows that failed or came from an earlier run
+     */
+    public synchronized boolean needsReplay() {
+        for (Segment segment : segments) {
+            if (segment.failed) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Number of segment files on disk
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Seal the active segment and read every segment on disk, keeping the last row per path and key.
+     * Rows stay in the order their key first appeared. Lines torn by a crash, including ones
+     * whose JSON was cut short, are logged and left out. Pass the result to finishReplay().
+     */
+    public Replay startReplay() throws IOException {
+        List<Segment> batch;
+        synchronized (this) {
+            seal();
+            batch = new ArrayList<>(segments);
+        }
+        Map<String, Entry> latest = new LinkedHashMap<>();
+        int torn = 0;
+        for (Segment segment : batch) {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(segment.file), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int first = line.indexOf('\t');
+                    int second = first < 0 ? -1 : line.indexOf('\t', first + 1);
+                    if (second < 0 || !isJsonObject(line.substring(second + 1))) {
+                        // Torn write from a crash, the rest of the file is fine
+                        torn++;
+                        continue;
+                    }
+                    Entry entry = new Entry(line.substring(0, first), line.substring(first + 1, second), line.substring(second + 1));
+                    latest.put(entry.getPath() + '\t' + entry.getKey(), entry);
+                }
+            }
+        }
+        if (torn > 0) {
+            logger.warning("Skipped " + torn + " incomplete lines in the Supabase outbox");
+        }
+        return new Replay(batch, new ArrayList<>(latest.values()));
+    }
+
+    // A replayed row is merged into a JSON array body, so one broken row would fail the whole request
+    private static boolean isJsonObject(String json) {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.setLenient(false);
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return false;
+            }
+            reader.skipValue();
+            return reader.peek() == JsonToken.END_DOCUMENT;
+        } catch (IOException | IllegalStateException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Delete the replayed segments once all their rows were sent. Requests for those segments
+     * that are still in flight no longer matter, the replay sent the same or newer rows.
+     */
+    public synchronized void finishReplay(Replay replay) {
+        for (Segment segment : replay.segments) {
+            if (segments.remove(segment) && segment.file.exists() && !segment.file.delete()) {
+                logger.warning("Could not delete outbox segment " + segment.file.getName());
+            }
+        }
+    }
+
+    public synchronized void close() {
+        seal();
+    }
+
+    private void roll() throws IOException {
+        seal();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory.getPath());
+        }
+        active = new Segment(nextId++, new File(directory, PREFIX + String.format("%012d", nextId - 1) + SUFFIX));
+        stream = new FileOutputStream(active.file, true);
+        activeBytes = 0;
+        segments.addLast(active);
+    }
+
+    private void seal() {
+        if (active == null) {
+            return;
+        }
+        try {
+            stream.close();
+        } catch (IOException e) {
+            logger.warning("Could not close outbox segment " + active.file.getName() + ": " + e.getMessage());
+        }
+        active.sealed = true;
+        active = null;
+        stream = null;
+        collect();
+    }
+
+    // Drop finished segments from the head; anything after a failed one waits for the replay
+    private void collect() {
+        while (!segments.isEmpty()) {
+            Segment head = segments.peekFirst();
+            if (!head.sealed || head.pending > 0 || head.failed) {
+                return;
+            }
+            segments.removeFirst();
+            if (!head.file.delete() && head.file.exists()) {
+                logger.warning("Could not delete outbox segment " + head.file.getName());
+            }
+        }
+    }
+
+    /**
+     * Segments being replayed and their coalesced rows.
+     */
+    public static class Replay {
+        private final List<Segment> segments;
+        private final List<Entry> entries;
+
+        private Replay(List<Segment> segments, List<Entry> entries) {
+            this.segments = segments;
+            this.entries = entries;
+        }
+
+        public List<Entry> getEntries() { return entries; }
+        public int getSegmentCount() { return segments.size(); }
+    }
+
+    static String key(String... parts) {
+        return String.join("|", Arrays.asList(parts));
+    }
+}